@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.Arrays;
+
+/**
+ * Metrics of an {@link InferenceBatcher}: how many requests were coalesced
+ * into each batch, and how long requests waited before their batch ran.
+ * <p>
+ * Small batches with short delays mean that few callers run concurrently;
+ * full batches with delays near the run time mean that the model is the
+ * bottleneck.
+ * </p>
+ *
+ * @see InferenceBatcher#getStatistics()
+ */
+public final class BatchStatistics {
+
+	private final long[] batchSizeCounts;
+	private final long requests;
+	private final long queueNanos;
+	private final long maxQueueNanos;
+	private final long runNanos;
+
+	BatchStatistics(final long[] batchSizeCounts, final long requests,
+		final long queueNanos, final long maxQueueNanos, final long runNanos)
+	{
+		this.batchSizeCounts = batchSizeCounts;
+		this.requests = requests;
+		this.queueNanos = queueNanos;
+		this.maxQueueNanos = maxQueueNanos;
+		this.runNanos = runNanos;
+	}
+
+	/** Gets the number of batches run. */
+	public long getBatches() {
+		return Arrays.stream(batchSizeCounts).sum();
+	}
+
+	/** Gets the number of requests run in all batches. */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Gets the distribution of the batch sizes: the element at index {@code n}
+	 * is the number of batches of {@code n} requests.
+	 */
+	public long[] getBatchSizeCounts() {
+		return batchSizeCounts.clone();
+	}
+
+	/** Gets the mean number of requests per batch. */
+	public double meanBatchSize() {
+		final long batches = getBatches();
+		return batches == 0 ? 0 : (double) requests / batches;
+	}
+
+	/** Gets the summed time requests waited until their batch ran. */
+	public long getQueueNanos() {
+		return queueNanos;
+	}
+
+	/** Gets the longest time a request waited until its batch ran. */
+	public long getMaxQueueNanos() {
+		return maxQueueNanos;
+	}
+
+	/** Gets the mean time a request waited until its batch ran. */
+	public double meanQueueNanos() {
+		return requests == 0 ? 0 : (double) queueNanos / requests;
+	}
+
+	/**
+	 * Gets the time spent running batches, including stacking the inputs and
+	 * unstacking the outputs.
+	 */
+	public long getRunNanos() {
+		return runNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d requests in %d batches (mean size %.2f); " +
+			"queued %.3f ms on average, %.3f ms at most; run %.3f s", requests,
+			getBatches(), meanBatchSize(), meanQueueNanos() / 1e6, maxQueueNanos /
+				1e6, runNanos / 1e9);
+	}
+}
@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+
+/**
+ * A {@link Graph} cached by the {@link TensorFlowService}, with its shared
+ * sessions.
+ * <p>
+ * Like a {@link CachedModelBundle}, a cached graph can be closed by the cache
+ * at any time, e.g. when it is evicted. Callers therefore hold a
+ * {@link Lease} while they use the graph: closing retires the graph, and the
+ * graph and its sessions are only released once the last lease is closed.
+ * Graphs which are pinned, e.g. because they were handed out without a
+ * lease, are never evicted.
+ * </p>
+ * <pre>
+ * try (CachedGraph.Lease lease = tensorFlowService.leaseGraph(...)) {
+ * 	lease.session().runner()...run();
+ * }
+ * </pre>
+ */
+public class CachedGraph implements AutoCloseable {
+
+	private final Graph graph;
+	private final long estimatedBytes;
+
+	/** The shared sessions of the graph, by session config. */
+	private final Map<String, Session> sessions = new HashMap<>();
+
+	private boolean closed;
+	private boolean released;
+	private boolean pinned;
+	private int leases;
+	private long lastUseNanos = System.nanoTime();
+
+	/**
+	 * Creates a graph from its definition.
+	 *
+	 * @param graphDef The serialized {@code GraphDef}.
+	 * @throws IllegalArgumentException if the definition is invalid.
+	 */
+	public CachedGraph(final byte[] graphDef) {
+		graph = new Graph();
+		try {
+			graph.importGraphDef(graphDef);
+		}
+		catch (final IllegalArgumentException exc) {
+			graph.close();
+			throw exc;
+		}
+		estimatedBytes = graphDef.length;
+	}
+
+	/**
+	 * Gets the graph without a lease. Unless the graph is pinned, it may be
+	 * released by another thread at any time; use {@link #acquire()} instead.
+	 */
+	public Graph graph() {
+		return graph;
+	}
+
+	/**
+	 * Acquires a lease, which keeps the graph and its sessions alive until it
+	 * is closed.
+	 *
+	 * @throws IllegalStateException if the graph is closed.
+	 */
+	public synchronized Lease acquire() {
+		final Lease lease = tryAcquire();
+		if (lease == null) throw new IllegalStateException("The graph is closed");
+		return lease;
+	}
+
+	/**
+	 * Closes the graph. New leases are refused, and the graph is released with
+	 * its sessions once all leases are closed, even if it is pinned.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (leases == 0) release();
+	}
+
+	/** Gets whether the graph is closed, although it may still be leased. */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/** Gets the number of open leases. */
+	public synchronized int getLeases() {
+		return leases;
+	}
+
+	/** Acquires a lease, or returns null if the graph is closed. */
+	synchronized Lease tryAcquire() {
+		if (closed) return null;
+		leases++;
+		return new Lease();
+	}
+
+	/**
+	 * Pins the graph, so that it is not evicted until it is closed.
+	 *
+	 * @return Whether the graph was pinned, i.e. it is not closed.
+	 */
+	synchronized boolean tryPin() {
+		if (closed) return false;
+		pinned = true;
+		return true;
+	}
+
+	/** Gets whether the graph is pinned. */
+	synchronized boolean isPinned() {
+		return pinned;
+	}
+
+	/**
+	 * Gets the {@link System#nanoTime()} since which the graph is idle, or
+	 * {@link Long#MAX_VALUE} while it is leased or pinned.
+	 */
+	synchronized long idleSinceNanos() {
+		return leases > 0 || pinned ? Long.MAX_VALUE : lastUseNanos;
+	}
+
+	/** Estimates the native memory of the graph by the size of its definition. */
+	long estimatedBytes() {
+		return estimatedBytes;
+	}
+
+	/**
+	 * Gets the shared session of the graph with a configuration, creating it
+	 * on first use.
+	 *
+	 * @param config The serialized {@code ConfigProto} of the session, or null
+	 *          for the default configuration.
+	 * @throws IllegalStateException if the graph is released.
+	 */
+	synchronized Session session(final byte[] config) {
+		if (released) throw new IllegalStateException("The graph is closed");
+		final String key = config == null ? "" : Base64.getEncoder()
+			.encodeToString(config);
+		return sessions.computeIfAbsent(key, k -> config == null ? new Session(
+			graph) : new Session(graph, config));
+	}
+
+	private synchronized void returnLease() {
+		leases--;
+		lastUseNanos = System.nanoTime();
+		if (closed && leases == 0) release();
+	}
+
+	private void release() {
+		if (released) return;
+		released = true;
+		// NB: Closing a graph blocks until its sessions are closed.
+		for (final Session session : sessions.values()) {
+			session.close();
+		}
+		sessions.clear();
+		graph.close();
+	}
+
+	/**
+	 * A lease of a {@link CachedGraph}, keeping the graph and its sessions
+	 * alive until the lease is closed.
+	 */
+	public final class Lease implements AutoCloseable {
+
+		private boolean open = true;
+
+		private Lease() {}
+
+		/** Gets the leased graph. */
+		public Graph graph() {
+			return graph;
+		}
+
+		/**
+		 * Gets the shared session of the leased graph. It can be used by several
+		 * threads at once, each with its own {@link Session#runner()}, and must
+		 * not be closed by the caller.
+		 */
+		public Session session() {
+			return session(null);
+		}
+
+		/**
+		 * Gets the shared session of the leased graph with a configuration. Each
+		 * distinct configuration has its own session.
+		 *
+		 * @param config The serialized {@code ConfigProto} of the session, or
+		 *          null for the default configuration.
+		 */
+		public Session session(final byte[] config) {
+			return CachedGraph.this.session(config);
+		}
+
+		/** Returns the lease. Closing a lease twice has no effect. */
+		@Override
+		public void close() {
+			synchronized (CachedGraph.this) {
+				if (!open) return;
+				open = false;
+				returnLease();
+			}
+		}
+	}
+}
@@ -30,31 +30,150 @@
 
 package net.imagej.tensorflow;
 
+import java.io.File;
+
 import org.tensorflow.SavedModelBundle;
 
 /**
  * A wrapper for {@link SavedModelBundle} remembering if it got closed.
+ * <p>
+ * Cached models can be closed by the cache at any time, e.g. when they are
+ * evicted. Callers therefore hold a {@link Lease} while they use the model:
+ * closing retires the model, and the native model is only released once the
+ * last lease is closed.
+ * </p>
+ * <pre>
+ * try (CachedModelBundle.Lease lease = model.acquire()) {
+ * 	lease.model().session().runner()...run();
+ * }
+ * </pre>
  * @author Deborah Schmidt
  */
 public class CachedModelBundle implements AutoCloseable {
 	private SavedModelBundle model;
 	private boolean closed = false;
+	private boolean released = false;
+	private int leases = 0;
+	private long lastUseNanos = System.nanoTime();
+	private final long estimatedBytes;
 
 	public CachedModelBundle(String path, String[] tags) {
 		this.model = SavedModelBundle.load(path, tags);
+		this.estimatedBytes = fileBytes(new File(path));
 	}
 
+	/**
+	 * Gets the model without a lease. It may be released by another thread
+	 * at any time; use {@link #acquire()} instead.
+	 */
 	public SavedModelBundle model() {
 		return model;
 	}
 
+	/**
+	 * Acquires a lease, which keeps the native model alive until it is closed.
+	 *
+	 * @throws IllegalStateException if the model is closed.
+	 */
+	public synchronized Lease acquire() {
+		final Lease lease = tryAcquire();
+		if (lease == null) throw new IllegalStateException("The model is closed");
+		return lease;
+	}
+
+	/** Acquires a lease, or returns null if the model is closed. */
+	synchronized Lease tryAcquire() {
+		if (closed) return null;
+		leases++;
+		return new Lease();
+	}
+
+	/**
+	 * Closes the model. New leases are refused, and the native model is
+	 * released once all leases are closed.
+	 */
 	@Override
-	public void close() {
+	public synchronized void close() {
 		closed = true;
-		model.close();
+		if (leases == 0) release();
 	}
 
-	public boolean isClosed() {
+	/** Gets whether the model is closed, although it may still be leased. */
+	public synchronized boolean isClosed() {
 		return closed;
 	}
+
+	/** Gets the number of open leases. */
+	public synchronized int getLeases() {
+		return leases;
+	}
+
+	/**
+	 * Gets the {@link System#nanoTime()} since which the model is idle, or
+	 * {@link Long#MAX_VALUE} while it is leased.
+	 */
+	synchronized long idleSinceNanos() {
+		return leases > 0 ? Long.MAX_VALUE : lastUseNanos;
+	}
+
+	/**
+	 * Estimates the native memory of the model by the size of its files: the
+	 * serialized graph and the variables, which are loaded into memory.
+	 */
+	long estimatedBytes() {
+		return estimatedBytes;
+	}
+
+	private synchronized void returnLease() {
+		leases--;
+		lastUseNanos = System.nanoTime();
+		if (closed && leases == 0) release();
+	}
+
+	private void release() {
+		if (released) return;
+		released = true;
+		model.close();
+	}
+
+	private static long fileBytes(final File file) {
+		final File[] children = file.listFiles();
+		if (children == null) return file.length();
+		long bytes = 0;
+		for (final File child : children) {
+			bytes += fileBytes(child);
+		}
+		return bytes;
+	}
+
+	/**
+	 * A lease of a {@link CachedModelBundle}, keeping its native model alive
+	 * until the lease is closed.
+	 */
+	public final class Lease implements AutoCloseable {
+
+		private boolean open = true;
+
+		private Lease() {}
+
+		/** Gets the leased model. */
+		public SavedModelBundle model() {
+			return model;
+		}
+
+		/** Gets the cached model which is leased. */
+		public CachedModelBundle bundle() {
+			return CachedModelBundle.this;
+		}
+
+		/** Returns the lease. Closing a lease twice has no effect. */
+		@Override
+		public void close() {
+			synchronized (CachedModelBundle.this) {
+				if (!open) return;
+				open = false;
+				returnLease();
+			}
+		}
+	}
 }
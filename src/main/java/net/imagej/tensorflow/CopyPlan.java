@@ -0,0 +1,699 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Precomputed strides for copying an image stored in a primitive array into a
+ * Tensor buffer with permuted dimensions, or back.
+ * <p>
+ * Dimensions which are laid out contiguously in both the image and the Tensor
+ * are merged. If the dimension which is contiguous in the image is also
+ * contiguous in the Tensor, the copy consists of bulk row copies. Otherwise the
+ * two innermost dimensions are transposed in small square blocks, so that both
+ * the reads and the writes of one block stay in cache.
+ * </p>
+ */
+final class CopyPlan {
+
+	/**
+	 * Copies one row of elements between an image and a Tensor buffer. Element
+	 * {@code a} of the row is at index {@code s + a} of the image array and at
+	 * index {@code d + a * da} of the Tensor buffer.
+	 */
+	interface Row {
+
+		void copy(int s, int d, int da, int n);
+	}
+
+	/** Edge length of the blocks in which two dimensions are transposed. */
+	private static final int BLOCK = 32;
+
+	/**
+	 * Maximum number of elements of one row. Longer contiguous runs are split,
+	 * so that they can be copied in parallel and converted in small chunks.
+	 */
+	static final int MAX_ROW = 1 << 14;
+
+	/** Minimum number of elements copied by one parallel task. */
+	private static final long MIN_PARALLEL_ELEMENTS = 1 << 16;
+
+	private static final int MAX_CACHED_PLANS = 256;
+
+	private static final Map<String, CopyPlan> plans = new ConcurrentHashMap<>();
+
+	/** Length of the innermost image dimension and its Tensor stride. */
+	private final int na, da;
+
+	/**
+	 * Length, image stride and Tensor stride of the dimension which is
+	 * contiguous in the Tensor. Only used if {@link #da} is not 1.
+	 */
+	private final int nb, sb, db;
+
+	/** Lengths and strides of all remaining dimensions. */
+	private final int[] outerDims, outerSrc, outerDst;
+
+	private final long outerSize;
+	private final long size;
+
+	/**
+	 * Creates a plan for copying an image into a Tensor.
+	 *
+	 * @param dims The dimensions of the image.
+	 * @param dstStrides For each image dimension, the Tensor buffer stride.
+	 */
+	CopyPlan(final long[] dims, final long[] dstStrides) {
+		// Collect the dimensions which matter, merging adjacent ones which are
+		// contiguous in both image and Tensor.
+		final List<long[]> merged = new ArrayList<>();
+		long srcStride = 1;
+		for (int d = 0; d < dims.length; d++) {
+			if (dims[d] != 1) {
+				final long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+				if (last != null && last[1] * last[0] == srcStride && //
+					last[2] * last[0] == dstStrides[d])
+				{
+					last[0] *= dims[d];
+				}
+				else merged.add(new long[] { dims[d], srcStride, dstStrides[d] });
+			}
+			srcStride *= dims[d];
+		}
+		size = srcStride;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Image is too large: " + size +
+				" elements");
+		}
+
+		if (merged.isEmpty()) merged.add(new long[] { 1, 1, 1 });
+		final long[] a = merged.remove(0);
+		na = (int) a[0];
+		da = (int) a[2];
+		long[] b = null;
+		if (da != 1) {
+			for (final long[] candidate : merged) {
+				if (candidate[2] == 1) b = candidate;
+			}
+			merged.remove(b);
+		}
+		nb = b == null ? 1 : (int) b[0];
+		sb = b == null ? 0 : (int) b[1];
+		db = b == null ? 0 : 1;
+
+		outerDims = new int[merged.size()];
+		outerSrc = new int[merged.size()];
+		outerDst = new int[merged.size()];
+		long outer = 1;
+		for (int i = 0; i < outerDims.length; i++) {
+			outerDims[i] = (int) merged.get(i)[0];
+			outerSrc[i] = (int) merged.get(i)[1];
+			outerDst[i] = (int) merged.get(i)[2];
+			outer *= outerDims[i];
+		}
+		outerSize = size == 0 ? 0 : outer;
+	}
+
+	/**
+	 * Gets the plan for copying an image of the given dimensions into a Tensor
+	 * whose dimensions are ordered according to {@code dimOrder}. Plans are
+	 * cached, so repeated conversions of equally shaped images reuse them.
+	 *
+	 * @param dims The dimensions of the image.
+	 * @param dimOrder The mapping of image dimensions to Tensor dimensions, as
+	 *          used by {@link Tensors#tensor(net.imglib2.RandomAccessibleInterval, int[])}.
+	 */
+	static CopyPlan get(final long[] dims, final int[] dimOrder) {
+		return get(dims, tensorStrides(dims, dimOrder));
+	}
+
+	/**
+	 * Gets the plan for copying an image, or a block of it, of the given
+	 * dimensions into a Tensor buffer with the given strides.
+	 *
+	 * @param dims The dimensions of the image or block.
+	 * @param dstStrides For each dimension, the Tensor buffer stride.
+	 */
+	static CopyPlan get(final long[] dims, final long[] dstStrides) {
+		final String key = Arrays.toString(dims) + Arrays.toString(dstStrides);
+		CopyPlan plan = plans.get(key);
+		if (plan == null) {
+			plan = new CopyPlan(dims, dstStrides);
+			if (plans.size() >= MAX_CACHED_PLANS) plans.clear();
+			plans.put(key, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Gets the shape of the Tensor an image is copied to.
+	 *
+	 * @param dims The dimensions of the image.
+	 * @param dimOrder The mapping of image dimensions to Tensor dimensions.
+	 */
+	static long[] tensorShape(final long[] dims, final int[] dimOrder) {
+		checkDimOrder(dims.length, dimOrder);
+		final long[] shape = new long[dims.length];
+		for (int d = 0; d < dims.length; d++) {
+			shape[dimOrder[d]] = dims[d];
+		}
+		return shape;
+	}
+
+	/**
+	 * Gets, for each image dimension, the stride of the corresponding
+	 * dimension in the Tensor buffer.
+	 *
+	 * @param dims The dimensions of the image.
+	 * @param dimOrder The mapping of image dimensions to Tensor dimensions.
+	 */
+	static long[] tensorStrides(final long[] dims, final int[] dimOrder) {
+		final long[] shape = tensorShape(dims, dimOrder);
+		final long[] shapeStrides = new long[shape.length];
+		long stride = 1;
+		for (int i = shape.length - 1; i >= 0; i--) {
+			shapeStrides[i] = stride;
+			stride *= shape[i];
+		}
+		final long[] strides = new long[dims.length];
+		for (int d = 0; d < dims.length; d++) {
+			strides[d] = shapeStrides[dimOrder[d]];
+		}
+		return strides;
+	}
+
+	/**
+	 * @return true if image and Tensor have the same memory layout, i.e. the
+	 *         image array can be used as Tensor buffer without any copy.
+	 */
+	boolean isIdentity() {
+		return da == 1 && outerDims.length == 0;
+	}
+
+	/** @return The number of elements copied by this plan. */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Copies all elements, splitting the work into blocks which are processed
+	 * in parallel.
+	 *
+	 * @param rows Creates the rows copying the elements. Each parallel task
+	 *          calls it once.
+	 * @param dstOffset Offset added to all Tensor buffer indices.
+	 */
+	void execute(final Supplier<Row> rows, final int dstOffset) {
+		final boolean blocked = da != 1;
+		final int aChunk = blocked ? BLOCK : MAX_ROW;
+		final int aBlocks = (na + aChunk - 1) / aChunk;
+		final int bBlocks = (nb + BLOCK - 1) / BLOCK;
+		final long tasks = outerSize * aBlocks * bBlocks;
+		final long minTasks = Math.max(1, MIN_PARALLEL_ELEMENTS * tasks / Math
+			.max(1, size));
+		ParallelChunks.forEach(tasks, minTasks, (from, to) -> {
+			final Row row = rows.get();
+			for (long t = from; t < to; t++) {
+				final int aBlock = (int) (t % aBlocks);
+				final int bBlock = (int) (t / aBlocks % bBlocks);
+				long outer = t / aBlocks / bBlocks;
+				int s = 0;
+				int d = dstOffset;
+				for (int i = 0; i < outerDims.length; i++) {
+					final int c = (int) (outer % outerDims[i]);
+					outer /= outerDims[i];
+					s += c * outerSrc[i];
+					d += c * outerDst[i];
+				}
+				final int a0 = aBlock * aChunk;
+				final int n = Math.min(aChunk, na - a0);
+				final int b0 = bBlock * BLOCK;
+				final int b1 = Math.min(b0 + BLOCK, nb);
+				for (int b = b0; b < b1; b++) {
+					row.copy(s + a0 + b * sb, d + a0 * da + b * db, da, n);
+				}
+			}
+		});
+	}
+
+	// -- Rows --
+
+	/**
+	 * Creates rows copying from a primitive image array into a Tensor buffer of
+	 * the same element type.
+	 */
+	static Supplier<Row> scatter(final Object src, final Buffer dst) {
+		if (src instanceof byte[]) {
+			final byte[] in = (byte[]) src;
+			return () -> {
+				final ByteBuffer out = ((ByteBuffer) dst).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						out.position(d);
+						out.put(in, s, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, in[s + a]);
+				};
+			};
+		}
+		if (src instanceof double[]) {
+			final double[] in = (double[]) src;
+			return () -> {
+				final DoubleBuffer out = ((DoubleBuffer) dst).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						out.position(d);
+						out.put(in, s, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, in[s + a]);
+				};
+			};
+		}
+		if (src instanceof float[]) {
+			final float[] in = (float[]) src;
+			return () -> {
+				final FloatBuffer out = ((FloatBuffer) dst).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						out.position(d);
+						out.put(in, s, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, in[s + a]);
+				};
+			};
+		}
+		if (src instanceof int[]) {
+			final int[] in = (int[]) src;
+			return () -> {
+				final IntBuffer out = ((IntBuffer) dst).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						out.position(d);
+						out.put(in, s, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, in[s + a]);
+				};
+			};
+		}
+		if (src instanceof long[]) {
+			final long[] in = (long[]) src;
+			return () -> {
+				final LongBuffer out = ((LongBuffer) dst).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						out.position(d);
+						out.put(in, s, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, in[s + a]);
+				};
+			};
+		}
+		throw new IllegalArgumentException("Unsupported array type: " + //
+			src.getClass().getName());
+	}
+
+	/**
+	 * Creates rows copying from a primitive image array into a Tensor buffer of
+	 * another element type, converting each element on the way. Supported are
+	 * conversions of all arrays into a {@link FloatBuffer}, and widening
+	 * conversions of integer arrays into an {@link IntBuffer} or
+	 * {@link LongBuffer}.
+	 *
+	 * @param unsigned Whether the elements of the image array are unsigned,
+	 *          e.g. for an {@code UnsignedShortType} image.
+	 */
+	static Supplier<Row> convert(final Object src, final boolean unsigned,
+		final Buffer dst)
+	{
+		return convert(src, unsigned, dst, null);
+	}
+
+	/**
+	 * Creates rows converting from a primitive image array into a Tensor buffer
+	 * like {@link #convert(Object, boolean, Buffer)}, transforming the elements
+	 * after their conversion to float.
+	 *
+	 * @param transform The transform applied to the converted rows, or null.
+	 *          Requires a {@link FloatBuffer} as destination.
+	 */
+	static Supplier<Row> convert(final Object src, final boolean unsigned,
+		final Buffer dst, final FloatTransform transform)
+	{
+		if (transform != null && !(dst instanceof FloatBuffer)) {
+			throw new IllegalArgumentException(
+				"Transformed rows must be converted to float");
+		}
+		if (dst instanceof FloatBuffer) {
+			return floatRows(floatReader(src, unsigned), (FloatBuffer) dst,
+				transform);
+		}
+		if (dst instanceof IntBuffer) {
+			final IntReader reader = intReader(src, unsigned);
+			return () -> {
+				final IntBuffer out = ((IntBuffer) dst).duplicate();
+				final int[] row = new int[MAX_ROW];
+				return (s, d, da, n) -> {
+					reader.read(s, row, n);
+					if (da == 1) {
+						out.position(d);
+						out.put(row, 0, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, row[a]);
+				};
+			};
+		}
+		if (dst instanceof LongBuffer) {
+			final LongReader reader = longReader(src, unsigned);
+			return () -> {
+				final LongBuffer out = ((LongBuffer) dst).duplicate();
+				final long[] row = new long[MAX_ROW];
+				return (s, d, da, n) -> {
+					reader.read(s, row, n);
+					if (da == 1) {
+						out.position(d);
+						out.put(row, 0, n);
+					}
+					else for (int a = 0; a < n; a++) out.put(d + a * da, row[a]);
+				};
+			};
+		}
+		throw new IllegalArgumentException("Unsupported buffer type: " + //
+			dst.getClass().getName());
+	}
+
+	/**
+	 * Creates rows decoding a {@code short[]} array of float16 values, as stored
+	 * by {@link HalfFloatType} images, into a float Tensor buffer.
+	 */
+	static Supplier<Row> decodeHalf(final Object src, final Buffer dst) {
+		final short[] in = (short[]) src;
+		return floatRows((s, row, n) -> HalfFloats.decodeHalf(in, s, row, 0, n),
+			(FloatBuffer) dst, null);
+	}
+
+	private static Supplier<Row> floatRows(final FloatReader reader,
+		final FloatBuffer dst, final FloatTransform transform)
+	{
+		return () -> {
+			final FloatBuffer out = dst.duplicate();
+			final float[] row = new float[MAX_ROW];
+			return (s, d, da, n) -> {
+				reader.read(s, row, n);
+				if (transform != null) transform.apply(s, row, n);
+				if (da == 1) {
+					out.position(d);
+					out.put(row, 0, n);
+				}
+				else for (int a = 0; a < n; a++) out.put(d + a * da, row[a]);
+			};
+		};
+	}
+
+	/**
+	 * Transforms a row of {@code n} converted elements in place. Element
+	 * {@code a} of the row is at index {@code s + a} of the image array.
+	 */
+	interface FloatTransform {
+
+		void apply(int s, float[] row, int n);
+	}
+
+	/** Reads {@code n} elements of an image array, starting at {@code s}. */
+	private interface FloatReader {
+
+		void read(int s, float[] row, int n);
+	}
+
+	/** Reads {@code n} elements of an image array, starting at {@code s}. */
+	private interface IntReader {
+
+		void read(int s, int[] row, int n);
+	}
+
+	/** Reads {@code n} elements of an image array, starting at {@code s}. */
+	private interface LongReader {
+
+		void read(int s, long[] row, int n);
+	}
+
+	private static FloatReader floatReader(final Object src,
+		final boolean unsigned)
+	{
+		if (src instanceof byte[]) {
+			final byte[] in = (byte[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof short[]) {
+			final short[] in = (short[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xffff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof int[]) {
+			final int[] in = (int[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xffffffffL;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof long[]) {
+			final long[] in = (long[]) src;
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof double[]) {
+			final double[] in = (double[]) src;
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = (float) in[s + a];
+			};
+		}
+		if (src instanceof float[]) {
+			final float[] in = (float[]) src;
+			return (s, row, n) -> System.arraycopy(in, s, row, 0, n);
+		}
+		throw new IllegalArgumentException("Unsupported array type: " + //
+			src.getClass().getName());
+	}
+
+	private static IntReader intReader(final Object src,
+		final boolean unsigned)
+	{
+		if (src instanceof byte[]) {
+			final byte[] in = (byte[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof short[]) {
+			final short[] in = (short[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xffff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof int[] && !unsigned) {
+			final int[] in = (int[]) src;
+			return (s, row, n) -> System.arraycopy(in, s, row, 0, n);
+		}
+		throw new IllegalArgumentException("Cannot widen " + (unsigned
+			? "unsigned " : "") + src.getClass().getSimpleName() + " to int");
+	}
+
+	private static LongReader longReader(final Object src,
+		final boolean unsigned)
+	{
+		if (src instanceof byte[]) {
+			final byte[] in = (byte[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof short[]) {
+			final short[] in = (short[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xffff;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof int[]) {
+			final int[] in = (int[]) src;
+			if (unsigned) return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a] & 0xffffffffL;
+			};
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = in[s + a];
+			};
+		}
+		if (src instanceof long[] && !unsigned) {
+			final long[] in = (long[]) src;
+			return (s, row, n) -> System.arraycopy(in, s, row, 0, n);
+		}
+		throw new IllegalArgumentException("Cannot widen " + (unsigned
+			? "unsigned " : "") + src.getClass().getSimpleName() + " to long");
+	}
+
+	/**
+	 * Creates rows copying from a Tensor buffer into a primitive image array of
+	 * the same element type.
+	 */
+	static Supplier<Row> gather(final Buffer src, final Object dst) {
+		if (dst instanceof byte[]) {
+			final byte[] out = (byte[]) dst;
+			return () -> {
+				final ByteBuffer in = ((ByteBuffer) src).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						in.position(d);
+						in.get(out, s, n);
+					}
+					else for (int a = 0; a < n; a++) out[s + a] = in.get(d + a * da);
+				};
+			};
+		}
+		if (dst instanceof double[]) {
+			final double[] out = (double[]) dst;
+			return () -> {
+				final DoubleBuffer in = ((DoubleBuffer) src).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						in.position(d);
+						in.get(out, s, n);
+					}
+					else for (int a = 0; a < n; a++) out[s + a] = in.get(d + a * da);
+				};
+			};
+		}
+		if (dst instanceof float[]) {
+			final float[] out = (float[]) dst;
+			return () -> {
+				final FloatBuffer in = ((FloatBuffer) src).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						in.position(d);
+						in.get(out, s, n);
+					}
+					else for (int a = 0; a < n; a++) out[s + a] = in.get(d + a * da);
+				};
+			};
+		}
+		if (dst instanceof int[]) {
+			final int[] out = (int[]) dst;
+			return () -> {
+				final IntBuffer in = ((IntBuffer) src).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						in.position(d);
+						in.get(out, s, n);
+					}
+					else for (int a = 0; a < n; a++) out[s + a] = in.get(d + a * da);
+				};
+			};
+		}
+		if (dst instanceof long[]) {
+			final long[] out = (long[]) dst;
+			return () -> {
+				final LongBuffer in = ((LongBuffer) src).duplicate();
+				return (s, d, da, n) -> {
+					if (da == 1) {
+						in.position(d);
+						in.get(out, s, n);
+					}
+					else for (int a = 0; a < n; a++) out[s + a] = in.get(d + a * da);
+				};
+			};
+		}
+		throw new IllegalArgumentException("Unsupported array type: " + //
+			dst.getClass().getName());
+	}
+
+	/** Wraps a primitive array into a buffer of the same element type. */
+	static Buffer wrap(final Object array) {
+		if (array instanceof byte[]) return ByteBuffer.wrap((byte[]) array);
+		if (array instanceof double[]) return DoubleBuffer.wrap((double[]) array);
+		if (array instanceof float[]) return FloatBuffer.wrap((float[]) array);
+		if (array instanceof int[]) return IntBuffer.wrap((int[]) array);
+		if (array instanceof long[]) return LongBuffer.wrap((long[]) array);
+		throw new IllegalArgumentException("Unsupported array type: " + //
+			array.getClass().getName());
+	}
+
+	/**
+	 * Checks that a dimension order is a permutation of the dimensions of an
+	 * image with {@code n} dimensions.
+	 *
+	 * @throws IllegalArgumentException if the dimension order is invalid.
+	 */
+	static void checkDimOrder(final int n, final int[] dimOrder) {
+		final boolean[] used = new boolean[n];
+		boolean valid = dimOrder.length == n;
+		for (int i = 0; valid && i < n; i++) {
+			valid = dimOrder[i] >= 0 && dimOrder[i] < n && !used[dimOrder[i]];
+			if (valid) used[dimOrder[i]] = true;
+		}
+		if (!valid) {
+			throw new IllegalArgumentException("Invalid dimension order " + Arrays
+				.toString(dimOrder) + " for an image with " + n + " dimensions");
+		}
+	}
+}
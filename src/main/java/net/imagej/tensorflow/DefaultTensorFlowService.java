@@ -34,16 +34,40 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
 import net.imagej.tensorflow.util.TensorFlowUtil;
 import net.imagej.tensorflow.util.UnpackUtil;
 import org.scijava.app.AppService;
@@ -53,6 +77,7 @@ import org.scijava.download.DownloadService;
 import org.scijava.event.EventHandler;
 import org.scijava.io.location.BytesLocation;
 import org.scijava.io.location.Location;
+import org.scijava.io.location.LocationService;
 import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
@@ -64,6 +89,7 @@ import org.scijava.util.ByteArray;
 import org.scijava.util.FileUtils;
 import org.tensorflow.Graph;
 import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
 import org.tensorflow.TensorFlow;
 
 /**
@@ -84,14 +110,94 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 	@Parameter
 	private LogService logService;
 
-	/** Models which are already cached in memory. */
-	private final Map<String, CachedModelBundle> models = new HashMap<>();
+	@Parameter
+	private LocationService locationService;
+
+	/**
+	 * Models which are already cached in memory, weighted by the size of their
+	 * files. Evicted models are closed in the background, with their batchers.
+	 */
+	private final ResourceCache<String, CachedModelBundle> models =
+		new ResourceCache<>(model -> !model.isClosed(),
+			CachedModelBundle::estimatedBytes, model -> release(() -> {
+				closeBatchers(model);
+				model.close();
+			}));
 
-	/** Graphs which are already cached in memory. */
-	private final Map<String, Graph> graphs = new HashMap<>();
+	/**
+	 * Graphs which are already cached in memory, weighted by the size of their
+	 * serialized definition. Graphs handed out without a lease are pinned, as
+	 * their callers may use them at any time.
+	 */
+	private final ResourceCache<String, CachedGraph> graphs =
+		new ResourceCache<>(graph -> !graph.isClosed(), CachedGraph::estimatedBytes,
+			CachedGraph::isPinned, graph -> release(graph::close));
 
 	/** Labels which are already cached in memory. */
-	private final Map<String, List<String>> labelses = new HashMap<>();
+	private final ResourceCache<String, List<String>> labelses =
+		new ResourceCache<>();
+
+	/**
+	 * Directories of the unpacked models, by model name. A directory which was
+	 * deleted is unpacked again.
+	 */
+	private final ResourceCache<String, File> modelDirs = new ResourceCache<>(
+		File::isDirectory, dir -> 0, dir -> {});
+
+	/** Batchers shared by the callers of a model. */
+	private final Map<List<Object>, InferenceBatcher> batchers =
+		new HashMap<>();
+
+	/**
+	 * Loads and warms up models in the background, one at a time so that
+	 * preloaded models do not compete for memory and bandwidth.
+	 */
+	private ExecutorService preloader;
+
+	/**
+	 * Releases evicted models and graphs, so that callers loading another
+	 * model do not wait for them.
+	 */
+	private ExecutorService releaser;
+
+	private boolean disposed;
+
+	/** Runs the expiry of idle models and the unloading on memory pressure. */
+	private ScheduledExecutorService unloader;
+
+	/** The periodic expiry of idle models and graphs, if enabled. */
+	private ScheduledFuture<?> expiry;
+
+	private long maxIdleNanos;
+
+	private boolean unloadOnMemoryPressure;
+
+	/** Heap pools whose collection usage threshold was set by this service. */
+	private final List<MemoryPoolMXBean> thresholdPools = new ArrayList<>();
+
+	/**
+	 * Unloads idle models and graphs when the heap is almost full after a
+	 * garbage collection.
+	 */
+	private final NotificationListener memoryListener = (notification,
+		handback) -> {
+		if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(
+			notification.getType()))
+		{
+			return;
+		}
+		synchronized (this) {
+			// NB: A notification may arrive while the service is disposed.
+			if (disposed) return;
+			unloader().execute(() -> {
+				final int unloaded = unloadIdle(0);
+				if (unloaded > 0) {
+					logService.info("Unloaded " + unloaded +
+						" idle TensorFlow models and graphs on memory pressure");
+				}
+			});
+		}
+	};
 
 	/** Disk cache defining where compressed models are stored locally. */
 	private DiskLocationCache modelCache;
@@ -103,6 +209,27 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 
 	private static String CACHE_DIR_PROPERTY_KEY = "imagej.tensorflow.models.dir";
 
+	private static String MAX_CACHED_BYTES_PROPERTY_KEY =
+		"imagej.tensorflow.models.maxBytes";
+
+	private static String MAX_IDLE_SECONDS_PROPERTY_KEY =
+		"imagej.tensorflow.models.maxIdleSeconds";
+
+	private static String UNLOAD_ON_MEMORY_PRESSURE_PROPERTY_KEY =
+		"imagej.tensorflow.models.unloadOnMemoryPressure";
+
+	private static String WARM_UP_FILE_PROPERTY_KEY =
+		"imagej.tensorflow.models.warmup";
+
+	/** Name of the warm-up file in the model cache directory. */
+	private static final String WARM_UP_FILE = "warmup.properties";
+
+	/**
+	 * Fraction of a heap pool whose use after a garbage collection counts as
+	 * memory pressure.
+	 */
+	private static final double MEMORY_PRESSURE_THRESHOLD = 0.85;
+
 	// -- TensorFlowService methods --
 
 	@Deprecated
@@ -121,48 +248,64 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 	{
 		final String key = modelName + "/" + Arrays.toString(tags);
 
-		// If the model is already cached in memory, return it.
-		if (models.containsKey(key)) {
-			CachedModelBundle model = models.get(key);
-			if(!model.isClosed()) return model;
-		}
+		// Return the model cached in memory, or load it exactly once.
+		return models.get(key, () -> {
+			// Get a local directory with unpacked model data.
+			final File modelDir = modelDir(source, modelName);
 
-		// Get a local directory with unpacked model data.
-		final File modelDir = modelDir(source, modelName);
+			// Load the saved model.
+			return new CachedModelBundle(modelDir.getAbsolutePath(), tags);
+		});
+	}
 
-		// Load the saved model.
-		final CachedModelBundle model = //
-			new CachedModelBundle(modelDir.getAbsolutePath(), tags);
+	@Override
+	public CachedModelBundle.Lease leaseModel(final Location source,
+		final String modelName, final String... tags) throws IOException
+	{
+		while (true) {
+			final CachedModelBundle.Lease lease = loadCachedModel(source, modelName,
+				tags).tryAcquire();
+			if (lease != null) return lease;
+			// NB: The model was evicted after it was loaded; load it again.
+		}
+	}
 
-		// Cache the result for performance next time.
-		models.put(key, model);
+	@Override
+	public Future<CachedModelBundle> preloadModel(final Location source,
+		final String modelName, final String... tags)
+	{
+		return preload(source, modelName, null, tags);
+	}
 
-		return model;
+	@Override
+	public Future<CachedModelBundle> preloadModel(final Location source,
+		final String modelName, final ModelWarmUp warmUp, final String... tags)
+	{
+		return preload(source, modelName, warmUp, tags);
 	}
 
 	@Override
 	public Graph loadGraph(final Location source, final String modelName,
 		final String graphPath) throws IOException
 	{
-		final String key = modelName + "/" + graphPath;
-
-		// If the graph is already cached in memory, return it.
-		if (graphs.containsKey(key)) return graphs.get(key);
-
-		// Get a local directory with unpacked model data.
-		final File modelDir = modelDir(source, modelName);
-
-		// Read the serialized graph.
-		final byte[] graphDef = FileUtils.readFile(new File(modelDir, graphPath));
-
-		// Convert to a TensorFlow Graph object.
-		final Graph graph = new Graph();
-		graph.importGraphDef(graphDef);
-
-		// Cache the result for performance next time.
-		graphs.put(key, graph);
+		while (true) {
+			final CachedGraph graph = cachedGraph(source, modelName, graphPath);
+			// NB: The graph is handed out without a lease, so it must not be
+			// evicted. If it was evicted before it was pinned, load it again.
+			if (graph.tryPin() && graphs.containsValue(graph)) return graph.graph();
+		}
+	}
 
-		return graph;
+	@Override
+	public CachedGraph.Lease leaseGraph(final Location source,
+		final String modelName, final String graphPath) throws IOException
+	{
+		while (true) {
+			final CachedGraph.Lease lease = cachedGraph(source, modelName,
+				graphPath).tryAcquire();
+			if (lease != null) return lease;
+			// NB: The graph was evicted after it was loaded; load it again.
+		}
 	}
 
 	@Override
@@ -171,26 +314,85 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 	{
 		final String key = modelName + "/" + labelsPath;
 
-		// If the labels are already cached in memory, return them.
-		if (labelses.containsKey(key)) return labelses.get(key);
+		// Return the labels cached in memory, or load them exactly once.
+		return labelses.get(key, () -> {
+			// Get a local directory with unpacked model data.
+			final File modelDir = modelDir(source, modelName);
+
+			// Read the labels.
+			final File labelsFile = new File(modelDir, labelsPath);
+			try (final BufferedReader labelsReader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(labelsFile),
+					StandardCharsets.UTF_8)))
+			{
+				return labelsReader.lines().collect(Collectors.toList());
+			}
+		});
+	}
 
-		// Get a local directory with unpacked model data.
-		final File modelDir = modelDir(source, modelName);
+	@Override
+	public Session session(final Graph graph) {
+		return session(graph, null);
+	}
 
-		// Read the labels.
-		final File labelsFile = new File(modelDir, labelsPath);
-		final List<String> labels;
-		try (final BufferedReader labelsReader = new BufferedReader(
-			new InputStreamReader(new FileInputStream(labelsFile),
-				StandardCharsets.UTF_8)))
-		{
-			labels = labelsReader.lines().collect(Collectors.toList());
+	@Override
+	public Session session(final Graph graph, final byte[] config) {
+		// NB: Closing a graph blocks until its sessions are closed, so sessions
+		// are only cached for graphs whose lifecycle the service controls.
+		final CachedGraph cached = graphs.find(g -> g.graph() == graph);
+		if (cached == null) {
+			throw new IllegalArgumentException(
+				"Sessions are only cached for graphs loaded by the service");
 		}
+		return cached.session(config);
+	}
 
-		// Cache the result for performance next time.
-		labelses.put(key, labels);
+	@Override
+	public InferenceBatcher batcher(final CachedModelBundle model,
+		final String input, final String output, final int[] dimOrder)
+	{
+		// NB: Models are compared by identity.
+		final List<Object> key = Arrays.asList(model, input, output, Arrays
+			.toString(dimOrder));
+		final InferenceBatcher stale;
+		synchronized (this) {
+			final InferenceBatcher batcher = batchers.get(key);
+			if (batcher != null && !batcher.isClosed() && !model.isClosed()) {
+				return batcher;
+			}
+			// NB: The batcher of a model closed by its caller is not evicted.
+			stale = batchers.remove(key);
+			if (!model.isClosed()) {
+				final InferenceBatcher created = new InferenceBatcher(model, input,
+					output, dimOrder);
+				batchers.put(key, created);
+				return created;
+			}
+		}
+		// NB: Closing a batcher waits for its queued requests.
+		if (stale != null) stale.close();
+		throw new IllegalStateException("The model is closed");
+	}
 
-		return labels;
+	@Override
+	public void setMaxCachedBytes(final long bytes) {
+		models.setMaxWeight(bytes);
+		graphs.setMaxWeight(bytes);
+	}
+
+	@Override
+	public long getMaxCachedBytes() {
+		return models.getMaxWeight();
+	}
+
+	@Override
+	public long getCachedBytes() {
+		return models.getWeight() + graphs.getWeight();
+	}
+
+	@Override
+	public long getEvictions() {
+		return models.getEvictions() + graphs.getEvictions();
 	}
 
 	/**
@@ -327,21 +529,98 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 		return new File(modelDir, filePath);
 	}
 
+	@Override
+	public synchronized void setMaxIdleTime(final long time,
+		final TimeUnit unit)
+	{
+		if (time < 0) {
+			throw new IllegalArgumentException("Invalid idle time: " + time);
+		}
+		maxIdleNanos = unit.toNanos(time);
+		if (expiry != null) expiry.cancel(false);
+		expiry = null;
+		if (maxIdleNanos == 0) return;
+		// NB: Checks often enough to unload models at most a quarter late.
+		final long period = Math.max(TimeUnit.SECONDS.toNanos(1), maxIdleNanos /
+			4);
+		final long idleNanos = maxIdleNanos;
+		expiry = unloader().scheduleAtFixedRate(() -> unloadIdle(idleNanos),
+			period, period, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public synchronized long getMaxIdleTime(final TimeUnit unit) {
+		return unit.convert(maxIdleNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public synchronized void setUnloadOnMemoryPressure(final boolean unload) {
+		if (unload == unloadOnMemoryPressure) return;
+		unloadOnMemoryPressure = unload;
+		if (unload) listenToMemoryPressure();
+		else stopListeningToMemoryPressure();
+	}
+
+	@Override
+	public synchronized boolean isUnloadOnMemoryPressure() {
+		return unloadOnMemoryPressure;
+	}
+
+	// -- Service methods --
+
+	@Override
+	public void initialize() {
+		final Long maxCachedBytes = Long.getLong(MAX_CACHED_BYTES_PROPERTY_KEY);
+		if (maxCachedBytes != null) setMaxCachedBytes(maxCachedBytes);
+		final Long maxIdleSeconds = Long.getLong(MAX_IDLE_SECONDS_PROPERTY_KEY);
+		if (maxIdleSeconds != null) setMaxIdleTime(maxIdleSeconds,
+			TimeUnit.SECONDS);
+		if (Boolean.getBoolean(UNLOAD_ON_MEMORY_PRESSURE_PROPERTY_KEY)) {
+			setUnloadOnMemoryPressure(true);
+		}
+		preloadWarmUpFile();
+	}
+
 	// -- Disposable methods --
 
 	@Override
 	public void dispose() {
-		// Dispose models.
-		for (final CachedModelBundle model : models.values()) {
+		// Stop loading and unloading models in the background.
+		synchronized (this) {
+			setUnloadOnMemoryPressure(false);
+			disposed = true;
+			if (preloader != null) preloader.shutdownNow();
+			preloader = null;
+			if (unloader != null) unloader.shutdownNow();
+			unloader = null;
+			expiry = null;
+			// NB: Evicted models and graphs which are still being released are
+			// released in the background.
+			if (releaser != null) releaser.shutdown();
+			releaser = null;
+		}
+
+		// Dispose batchers, which run their queued requests first.
+		final List<InferenceBatcher> closing;
+		synchronized (this) {
+			closing = new ArrayList<>(batchers.values());
+			batchers.clear();
+		}
+		// NB: The callbacks of the requests run on the dispatcher threads and may
+		// call the service, so the batchers are closed without its lock.
+		for (final InferenceBatcher batcher : closing) {
+			batcher.close();
+		}
+
+		// Dispose models, which are released once they are no longer leased.
+		for (final CachedModelBundle model : models.clear()) {
 			model.close();
 		}
-		models.clear();
 
-		// Dispose graphs.
-		for (final Graph graph : graphs.values()) {
+		// Dispose graphs, with their sessions, once they are no longer leased.
+		for (final CachedGraph graph : graphs.clear()) {
 			graph.close();
 		}
-		graphs.clear();
 
 		// Dispose labels.
 		labelses.clear();
@@ -349,7 +628,221 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 
 	// -- Helper methods --
 
-	private DiskLocationCache modelCache() {
+	private CompletableFuture<CachedModelBundle> preload(final Location source,
+		final String modelName, final ModelWarmUp warmUp, final String... tags)
+	{
+		return CompletableFuture.supplyAsync(() -> {
+			try (CachedModelBundle.Lease lease = leaseModel(source, modelName,
+				tags))
+			{
+				if (warmUp != null) warmUp.run(lease);
+				return lease.bundle();
+			}
+			catch (final IOException exc) {
+				throw new CompletionException(exc);
+			}
+		}, preloader());
+	}
+
+	private synchronized ExecutorService preloader() {
+		checkNotDisposed();
+		if (preloader == null) {
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+					final Thread thread = new Thread(task,
+						"TensorFlowService-preloader");
+					thread.setDaemon(true);
+					return thread;
+				});
+			executor.allowCoreThreadTimeOut(true);
+			preloader = executor;
+		}
+		return preloader;
+	}
+
+	/**
+	 * Preloads and warms up the models listed in the warm-up file, in the
+	 * background. Each model {@code <name>} is listed by the properties
+	 * {@code <name>.source}, the URL of its ZIP archive, and optionally
+	 * {@code <name>.tags}, comma-separated, and the warm-up properties read by
+	 * {@link ModelWarmUp#fromProperties(Properties, String)}.
+	 */
+	private void preloadWarmUpFile() {
+		final String path = System.getProperty(WARM_UP_FILE_PROPERTY_KEY);
+		final File file = path != null ? new File(path) : new File(
+			cacheBaseDirectory(), WARM_UP_FILE);
+		if (!file.isFile()) return;
+		final Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+		}
+		catch (final IOException exc) {
+			logService.warn("Could not read " + file, exc);
+			return;
+		}
+		preloader().execute(() -> {
+			// NB: Models can only be loaded with the library.
+			loadLibrary();
+			if (!getStatus().isLoaded()) return;
+			for (final String key : properties.stringPropertyNames()) {
+				if (!key.endsWith(".source")) continue;
+				final String modelName = key.substring(0, key.length() - 7);
+				final String prefix = modelName + ".";
+				final String tags = properties.getProperty(prefix + "tags", "");
+				try {
+					final Location source = locationService.resolve(properties
+						.getProperty(key).trim());
+					final ModelWarmUp warmUp = ModelWarmUp.fromProperties(properties,
+						prefix);
+					preload(source, modelName, warmUp, Arrays.stream(tags.split(","))
+						.map(String::trim).filter(tag -> !tag.isEmpty()).toArray(
+							String[]::new)).whenComplete((model, exc) -> {
+								if (exc != null) {
+									logService.warn("Could not preload model " + modelName,
+										exc);
+								}
+								else logService.info("Preloaded model " + modelName);
+							});
+				}
+				catch (final URISyntaxException | IllegalArgumentException exc) {
+					logService.warn("Invalid warm-up of model " + modelName, exc);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Unloads the models and graphs which were idle for a while. Models and
+	 * graphs are idle while they are not leased and not requested from the
+	 * service; graphs handed out by {@link #loadGraph} are never idle.
+	 *
+	 * @return The number of unloaded models and graphs.
+	 */
+	int unloadIdle(final long idleNanos) {
+		final long now = System.nanoTime();
+		return models.evictIdle(idleNanos, now,
+			CachedModelBundle::idleSinceNanos) + graphs.evictIdle(idleNanos, now,
+				CachedGraph::idleSinceNanos);
+	}
+
+	/**
+	 * Releases an evicted model or graph in the background, or right away once
+	 * the service is disposed.
+	 */
+	private void release(final Runnable release) {
+		synchronized (this) {
+			if (!disposed) {
+				if (releaser == null) {
+					releaser = Executors.newCachedThreadPool(task -> {
+						final Thread thread = new Thread(task,
+							"TensorFlowService-releaser");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+				releaser.execute(release);
+				return;
+			}
+		}
+		release.run();
+	}
+
+	/** Closes and removes the batchers of a model. */
+	private void closeBatchers(final CachedModelBundle model) {
+		final List<InferenceBatcher> closing = new ArrayList<>();
+		synchronized (this) {
+			final Iterator<Map.Entry<List<Object>, InferenceBatcher>> it = batchers
+				.entrySet().iterator();
+			while (it.hasNext()) {
+				final Map.Entry<List<Object>, InferenceBatcher> entry = it.next();
+				if (entry.getKey().get(0) != model) continue;
+				closing.add(entry.getValue());
+				it.remove();
+			}
+		}
+		// NB: Closing a batcher waits for its queued requests.
+		for (final InferenceBatcher batcher : closing) {
+			batcher.close();
+		}
+	}
+
+	private synchronized ScheduledExecutorService unloader() {
+		checkNotDisposed();
+		if (unloader == null) {
+			unloader = Executors.newSingleThreadScheduledExecutor(task -> {
+				final Thread thread = new Thread(task, "TensorFlowService-unloader");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return unloader;
+	}
+
+	private synchronized void checkNotDisposed() {
+		if (disposed) throw new IllegalStateException("The service is disposed");
+	}
+
+	/**
+	 * Sets collection usage thresholds on the heap pools which support them
+	 * and have none yet, and unloads idle models when one is exceeded. Unlike
+	 * the usage, the usage after a garbage collection only exceeds the
+	 * threshold when the heap is really almost full.
+	 */
+	private synchronized void listenToMemoryPressure() {
+		for (final MemoryPoolMXBean pool : ManagementFactory
+			.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() != MemoryType.HEAP || !pool
+				.isCollectionUsageThresholdSupported() || pool
+					.getCollectionUsageThreshold() > 0)
+			{
+				continue;
+			}
+			final long max = pool.getUsage().getMax();
+			if (max <= 0) continue;
+			pool.setCollectionUsageThreshold((long) (max *
+				MEMORY_PRESSURE_THRESHOLD));
+			thresholdPools.add(pool);
+		}
+		if (thresholdPools.isEmpty()) return;
+		((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+			.addNotificationListener(memoryListener, null, null);
+	}
+
+	private synchronized void stopListeningToMemoryPressure() {
+		if (thresholdPools.isEmpty()) return;
+		try {
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+				.removeNotificationListener(memoryListener);
+		}
+		catch (final ListenerNotFoundException exc) {
+			// NB: Nothing to remove.
+		}
+		for (final MemoryPoolMXBean pool : thresholdPools) {
+			pool.setCollectionUsageThreshold(0);
+		}
+		thresholdPools.clear();
+	}
+
+	/** Gets the graph cached in memory, or loads it exactly once. */
+	private CachedGraph cachedGraph(final Location source,
+		final String modelName, final String graphPath) throws IOException
+	{
+		final String key = modelName + "/" + graphPath;
+		return graphs.get(key, () -> {
+			// Get a local directory with unpacked model data.
+			final File modelDir = modelDir(source, modelName);
+
+			// Read the serialized graph.
+			final byte[] graphDef = FileUtils.readFile(new File(modelDir,
+				graphPath));
+
+			// Convert to a TensorFlow Graph object.
+			return new CachedGraph(graphDef);
+		});
+	}
+
+	private synchronized DiskLocationCache modelCache() {
 		if (modelCache == null) initModelCache();
 		return modelCache;
 	}
@@ -358,15 +851,7 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 		final DiskLocationCache cache = new DiskLocationCache();
 
 		// Cache the models into $IMAGEJ_DIR/models.
-		final File cacheBase;
-
-		String modelCacheDir = System.getProperty(CACHE_DIR_PROPERTY_KEY);
-		if (modelCacheDir != null) {
-			cacheBase = new File(modelCacheDir);
-		} else {
-			final File baseDir = appService.getApp().getBaseDirectory();
-			cacheBase = new File(baseDir, "models");
-		}
+		final File cacheBase = cacheBaseDirectory();
 		logService.info("Caching TensorFlow models to " + cacheBase.getAbsolutePath());
 
 		if (!cacheBase.exists())
@@ -377,20 +862,34 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
 		modelCache = cache;
 	}
 
+	private File cacheBaseDirectory() {
+		String modelCacheDir = System.getProperty(CACHE_DIR_PROPERTY_KEY);
+		if (modelCacheDir != null) {
+			return new File(modelCacheDir);
+		}
+		final File baseDir = appService.getApp().getBaseDirectory();
+		return new File(baseDir, "models");
+	}
+
 	// TODO - Migrate unpacking logic into the DownloadService proper.
 	// And consider whether/how to avoid using so much temporary space.
 
 	private File modelDir(final Location source, final String modelName)
 		throws IOException
 	{
-		final File modelDir = new File(modelCache().getBaseDirectory(), modelName);
-		if (!modelDir.exists()) try {
-			downloadAndUnpackResource(source, modelDir);
-		}
-		catch (final InterruptedException | ExecutionException exc) {
-			throw new IOException(exc);
-		}
-		return modelDir;
+		// NB: Unpacks each model once, even if its model, graph and labels are
+		// requested concurrently.
+		return modelDirs.get(modelName, () -> {
+			final File modelDir = new File(modelCache().getBaseDirectory(),
+				modelName);
+			if (!modelDir.exists()) try {
+				downloadAndUnpackResource(source, modelDir);
+			}
+			catch (final InterruptedException | ExecutionException exc) {
+				throw new IOException(exc);
+			}
+			return modelDir;
+		});
 	}
 
 	/** Downloads and unpacks a zipped resource. */
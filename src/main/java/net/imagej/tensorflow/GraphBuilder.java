@@ -32,8 +32,10 @@ package net.imagej.tensorflow;
 
 import java.nio.FloatBuffer;
 
+import org.tensorflow.DataType;
 import org.tensorflow.Graph;
 import org.tensorflow.Output;
+import org.tensorflow.Shape;
 import org.tensorflow.Tensor;
 
 // In the fullness of time, equivalents of the methods of this class should be
@@ -88,6 +90,32 @@ public class GraphBuilder {
 		return binaryOp3("ExpandDims", input, dim, name);
 	}
 
+	public <T> Output<T> placeholder(final String name, final DataType dtype) {
+		return g.opBuilder("Placeholder", name).setAttr("dtype", dtype).build()
+			.output(0);
+	}
+
+	public <T> Output<T> placeholder(final String name, final DataType dtype,
+		final Shape shape)
+	{
+		return g.opBuilder("Placeholder", name).setAttr("dtype", dtype).setAttr(
+			"shape", shape).build().output(0);
+	}
+
+	public <T> Output<T> conv2D(final Output<T> input, final Output<T> filter,
+		final long[] strides, final String padding)
+	{
+		return conv2D(input, filter, strides, padding, "Conv2D");
+	}
+
+	public <T> Output<T> conv2D(final Output<T> input, final Output<T> filter,
+		final long[] strides, final String padding, final String name)
+	{
+		return g.opBuilder("Conv2D", name).addInput(input).addInput(filter)
+			.setAttr("strides", strides).setAttr("padding", padding).build().output(
+				0);
+	}
+
 	public Output<?> constant(final String name, final Object value) {
 		try (Tensor<?> t = Tensor.create(value)) {
 			return constant(name, t);
@@ -0,0 +1,208 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.ShortAccess;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.Index;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.numeric.real.AbstractRealType;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link net.imglib2.type.numeric.RealType} storing float16 (IEEE 754 half
+ * precision) values in 16 bits, e.g. to keep large model outputs at half the
+ * memory of {@code FloatType}. Values are converted with {@link HalfFloats}
+ * when they are read or written, so computations happen in float precision.
+ *
+ * @see Tensors#imgHalfFloat(org.tensorflow.Tensor)
+ */
+public class HalfFloatType extends AbstractRealType<HalfFloatType> implements
+	NativeType<HalfFloatType>
+{
+
+	private static final NativeTypeFactory<HalfFloatType, ShortAccess> typeFactory =
+		NativeTypeFactory.SHORT(HalfFloatType::new);
+
+	private final Index i;
+
+	protected final NativeImg<?, ? extends ShortAccess> img;
+
+	protected ShortAccess dataAccess;
+
+	/** Creates a type linked to the storage of an image. */
+	public HalfFloatType(final NativeImg<?, ? extends ShortAccess> img) {
+		i = new Index();
+		this.img = img;
+	}
+
+	/** Creates a variable holding the given value. */
+	public HalfFloatType(final float value) {
+		this(new ShortArray(1));
+		set(value);
+	}
+
+	/** Creates a type using the given access for its storage. */
+	public HalfFloatType(final ShortAccess access) {
+		i = new Index();
+		img = null;
+		dataAccess = access;
+	}
+
+	/** Creates a variable holding zero. */
+	public HalfFloatType() {
+		this(0);
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		dataAccess = img.update(c);
+	}
+
+	@Override
+	public Index index() {
+		return i;
+	}
+
+	@Override
+	public HalfFloatType duplicateTypeOnSameNativeImg() {
+		return new HalfFloatType(img);
+	}
+
+	@Override
+	public NativeTypeFactory<HalfFloatType, ShortAccess> getNativeTypeFactory() {
+		return typeFactory;
+	}
+
+	/** Gets the value, converted to float. */
+	public float get() {
+		return HalfFloats.fromHalf(getBits());
+	}
+
+	/** Sets the value, rounded to the nearest float16 value. */
+	public void set(final float value) {
+		setBits(HalfFloats.toHalf(value));
+	}
+
+	/** Gets the float16 bits of the value. */
+	public short getBits() {
+		return dataAccess.getValue(i.get());
+	}
+
+	/** Sets the float16 bits of the value. */
+	public void setBits(final short bits) {
+		dataAccess.setValue(i.get(), bits);
+	}
+
+	@Override
+	public float getRealFloat() {
+		return get();
+	}
+
+	@Override
+	public double getRealDouble() {
+		return get();
+	}
+
+	@Override
+	public void setReal(final float real) {
+		set(real);
+	}
+
+	@Override
+	public void setReal(final double real) {
+		set((float) real);
+	}
+
+	@Override
+	public double getMaxValue() {
+		return HalfFloats.MAX_HALF;
+	}
+
+	@Override
+	public double getMinValue() {
+		return -HalfFloats.MAX_HALF;
+	}
+
+	@Override
+	public double getMinIncrement() {
+		return HalfFloats.MIN_HALF;
+	}
+
+	@Override
+	public void set(final HalfFloatType c) {
+		setBits(c.getBits());
+	}
+
+	@Override
+	public HalfFloatType createVariable() {
+		return new HalfFloatType();
+	}
+
+	@Override
+	public HalfFloatType copy() {
+		final HalfFloatType copy = new HalfFloatType();
+		copy.setBits(getBits());
+		return copy;
+	}
+
+	@Override
+	public Fraction getEntitiesPerPixel() {
+		return new Fraction();
+	}
+
+	@Override
+	public int getBitsPerPixel() {
+		return 16;
+	}
+
+	@Override
+	public int compareTo(final HalfFloatType c) {
+		return Float.compare(get(), c.get());
+	}
+
+	@Override
+	public boolean valueEquals(final HalfFloatType t) {
+		return getBits() == t.getBits();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof HalfFloatType && valueEquals((HalfFloatType) obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return Short.hashCode(getBits());
+	}
+}
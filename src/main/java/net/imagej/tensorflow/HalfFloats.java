@@ -0,0 +1,181 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+/**
+ * Conversions between float and the 16-bit floating point formats float16
+ * (IEEE 754 half precision) and bfloat16, which store values like model
+ * outputs at half the memory of float.
+ * <p>
+ * Encoding rounds to the nearest representable value, ties to even. float16
+ * has a precision of 11 bits and a range of &plusmn;65504; larger values
+ * become infinite. bfloat16 keeps the range of float with a precision of 8
+ * bits. NaN and infinite values are preserved by both formats.
+ * </p>
+ *
+ * @see HalfFloatType
+ */
+public final class HalfFloats {
+
+	/** Largest finite float16 value. */
+	public static final float MAX_HALF = 65504;
+
+	/** Smallest positive float16 value, which is subnormal. */
+	public static final float MIN_HALF = 0x1p-24f;
+
+	/** The float value of each float16 bit pattern. */
+	private static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+	static {
+		for (int bits = 0; bits < HALF_TO_FLOAT.length; bits++) {
+			HALF_TO_FLOAT[bits] = decode(bits);
+		}
+	}
+
+	private HalfFloats() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/** Converts a float to the bits of the nearest float16 value. */
+	public static short toHalf(final float value) {
+		final int bits = Float.floatToRawIntBits(value);
+		final int sign = bits >>> 16 & 0x8000;
+		final int abs = bits & 0x7fffffff;
+		if (abs >= 0x7f800000) {
+			// NB: Infinity stays infinite, NaN stays NaN with its top payload bits.
+			return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 | abs >>> 13 &
+				0x3ff : 0));
+		}
+		// NB: Values from 65520 on round to infinity.
+		if (abs >= 0x477ff000) return (short) (sign | 0x7c00);
+		if (abs < 0x38800000) {
+			// NB: Below 2^-14, values become subnormal, and zero below 2^-25.
+			if (abs <= 0x33000000) return (short) sign;
+			final int exponent = abs >>> 23;
+			final int mantissa = abs & 0x7fffff | 0x800000;
+			return (short) (sign | round(mantissa, 126 - exponent));
+		}
+		// NB: Rebiases the exponent from 127 to 15. A carry of the rounding
+		// correctly moves into the exponent.
+		return (short) (sign | round(abs - 0x38000000, 13));
+	}
+
+	/** Converts the bits of a float16 value to float. */
+	public static float fromHalf(final short half) {
+		return HALF_TO_FLOAT[half & 0xffff];
+	}
+
+	/** Converts a float to the bits of the nearest bfloat16 value. */
+	public static short toBFloat16(final float value) {
+		final int bits = Float.floatToRawIntBits(value);
+		if ((bits & 0x7fffffff) > 0x7f800000) {
+			// NB: Keeps NaN quiet, which truncation could turn into infinity.
+			return (short) (bits >>> 16 | 0x40);
+		}
+		return (short) (bits + 0x7fff + (bits >>> 16 & 1) >>> 16);
+	}
+
+	/** Converts the bits of a bfloat16 value to float. */
+	public static float fromBFloat16(final short bfloat16) {
+		return Float.intBitsToFloat(bfloat16 << 16);
+	}
+
+	/**
+	 * Converts {@code length} floats to float16. The arguments are like
+	 * those of {@link System#arraycopy}.
+	 */
+	public static void encodeHalf(final float[] src, final int srcPos,
+		final short[] dst, final int dstPos, final int length)
+	{
+		for (int i = 0; i < length; i++) {
+			dst[dstPos + i] = toHalf(src[srcPos + i]);
+		}
+	}
+
+	/**
+	 * Converts {@code length} float16 values to float. The arguments are like
+	 * those of {@link System#arraycopy}.
+	 */
+	public static void decodeHalf(final short[] src, final int srcPos,
+		final float[] dst, final int dstPos, final int length)
+	{
+		for (int i = 0; i < length; i++) {
+			dst[dstPos + i] = HALF_TO_FLOAT[src[srcPos + i] & 0xffff];
+		}
+	}
+
+	/**
+	 * Converts {@code length} floats to bfloat16. The arguments are like
+	 * those of {@link System#arraycopy}.
+	 */
+	public static void encodeBFloat16(final float[] src, final int srcPos,
+		final short[] dst, final int dstPos, final int length)
+	{
+		for (int i = 0; i < length; i++) {
+			dst[dstPos + i] = toBFloat16(src[srcPos + i]);
+		}
+	}
+
+	/**
+	 * Converts {@code length} bfloat16 values to float. The arguments are like
+	 * those of {@link System#arraycopy}.
+	 */
+	public static void decodeBFloat16(final short[] src, final int srcPos,
+		final float[] dst, final int dstPos, final int length)
+	{
+		for (int i = 0; i < length; i++) {
+			dst[dstPos + i] = Float.intBitsToFloat(src[srcPos + i] << 16);
+		}
+	}
+
+	/** Shifts a value right, rounding to nearest, ties to even. */
+	private static int round(final int value, final int shift) {
+		final int result = value >>> shift;
+		final int remainder = value & (1 << shift) - 1;
+		final int half = 1 << shift - 1;
+		return remainder > half || remainder == half && (result & 1) != 0
+			? result + 1 : result;
+	}
+
+	private static float decode(final int bits) {
+		final int sign = (bits & 0x8000) << 16;
+		final int exponent = bits >>> 10 & 0x1f;
+		final int mantissa = bits & 0x3ff;
+		if (exponent == 0x1f) {
+			return Float.intBitsToFloat(sign | 0x7f800000 | mantissa << 13);
+		}
+		if (exponent == 0) {
+			final float subnormal = mantissa * MIN_HALF;
+			return sign == 0 ? subnormal : -subnormal;
+		}
+		return Float.intBitsToFloat(sign | exponent + 112 << 23 | mantissa << 13);
+	}
+}
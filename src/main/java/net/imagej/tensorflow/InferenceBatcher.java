@@ -0,0 +1,415 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+/**
+ * Coalesces concurrent predictions of single images into batches, so that
+ * callers which predict one image each share the overhead of running the
+ * model.
+ * <p>
+ * Requests are queued and run by a dispatcher thread. The oldest waiting
+ * request starts a batch, which collects the later requests of the same
+ * type and size until it holds {@link #setMaxBatchSize(int) the maximum
+ * number of images} or the oldest request waited for
+ * {@link #setMaxWait(long, TimeUnit) the maximum time}. The images are
+ * stacked into one Tensor with {@link Tensors#stack(List, int[])}, the model
+ * runs once, and the output is split with
+ * {@link Tensors#unstack(Tensor, int[])} to complete the future of each
+ * request. Requests of other types or sizes wait for a later batch.
+ * </p>
+ * <p>
+ * The model must take a batch dimension first in its input and output, and
+ * treat the images of a batch independently.
+ * </p>
+ *
+ * @see TensorFlowService#batcher(CachedModelBundle, String, String, int[])
+ */
+public class InferenceBatcher implements AutoCloseable {
+
+	private final Session session;
+
+	/** The cached model, leased while a batch runs. */
+	private final CachedModelBundle model;
+	private final String input;
+	private final String output;
+	private final int[] dimOrder;
+	private int[] outputDimOrder;
+	private volatile int maxBatchSize = 8;
+	private volatile long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(5);
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final Deque<Request> queue = new ArrayDeque<>();
+	private boolean closed;
+	private Thread dispatcher;
+
+	private long[] batchSizeCounts = new long[0];
+	private long requests;
+	private long queueNanos;
+	private long maxQueueNanos;
+	private long runNanos;
+
+	/**
+	 * Creates a batcher feeding one operation of a session and fetching the
+	 * output of another.
+	 *
+	 * @param session The session running the graph.
+	 * @param input The name of the input operation.
+	 * @param output The name of the output operation.
+	 * @param dimOrder The mapping of the dimensions of each image to the
+	 *          dimensions of its slice of the batch, see
+	 *          {@link Tensors#stack(List, int[])}.
+	 */
+	public InferenceBatcher(final Session session, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this(session, null, input, output, dimOrder);
+	}
+
+	/**
+	 * Creates a batcher for a saved model. The batcher leases the model while
+	 * a batch runs, so the cache cannot release the model during a batch, but
+	 * can unload it while the batcher is idle. Batches fail once the model is
+	 * closed.
+	 *
+	 * @throws IllegalStateException if the model is closed.
+	 * @see #InferenceBatcher(Session, String, String, int[])
+	 */
+	public InferenceBatcher(final CachedModelBundle model, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this(null, model, input, output, dimOrder);
+		if (model.isClosed()) throw new IllegalStateException(
+			"The model is closed");
+	}
+
+	private InferenceBatcher(final Session session,
+		final CachedModelBundle model, final String input, final String output,
+		final int[] dimOrder)
+	{
+		this.session = session;
+		this.model = model;
+		this.input = input;
+		this.output = output;
+		this.dimOrder = dimOrder.clone();
+		outputDimOrder = this.dimOrder;
+	}
+
+	/**
+	 * Sets the mapping of the dimensions of each output image to its slice of
+	 * the output batch. Defaults to the mapping of the input.
+	 */
+	public void setOutputDimOrder(final int... outputDimOrder) {
+		this.outputDimOrder = outputDimOrder.clone();
+	}
+
+	/** Sets the maximum number of images in a batch. Defaults to 8. */
+	public void setMaxBatchSize(final int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Invalid batch size: " +
+				maxBatchSize);
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Sets how long a batch waits for more requests after its oldest request
+	 * was submitted. Defaults to 5 ms.
+	 */
+	public void setMaxWait(final long time, final TimeUnit unit) {
+		if (time < 0) {
+			throw new IllegalArgumentException("Invalid wait time: " + time);
+		}
+		maxWaitNanos = unit.toNanos(time);
+	}
+
+	/**
+	 * Queues the prediction of an image.
+	 *
+	 * @return The future of the output image, completed when its batch ran.
+	 *         It completes exceptionally if running the batch failed.
+	 * @throws IllegalStateException if the batcher is closed.
+	 */
+	public <T extends RealType<T>> CompletableFuture<Img<?>> submit(
+		final RandomAccessibleInterval<T> image)
+	{
+		final Request request = new Request(image);
+		lock.lock();
+		try {
+			if (closed) throw new IllegalStateException("The batcher is closed");
+			queue.add(request);
+			if (dispatcher == null) {
+				dispatcher = new Thread(this::dispatch, "InferenceBatcher");
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+			}
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		return request.future;
+	}
+
+	/** Gets the metrics of all batches run so far. */
+	public BatchStatistics getStatistics() {
+		lock.lock();
+		try {
+			return new BatchStatistics(batchSizeCounts.clone(), requests,
+				queueNanos, maxQueueNanos, runNanos);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the batcher, waiting until the requests which are already queued
+	 * ran. No new requests are accepted. Does not close the session or the
+	 * model.
+	 */
+	@Override
+	public void close() {
+		final Thread thread;
+		lock.lock();
+		try {
+			closed = true;
+			changed.signalAll();
+			thread = dispatcher;
+		}
+		finally {
+			lock.unlock();
+		}
+		if (thread == null || thread == Thread.currentThread()) return;
+		try {
+			thread.join();
+		}
+		catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Gets whether the batcher was closed. */
+	public boolean isClosed() {
+		lock.lock();
+		try {
+			return closed;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	// -- Helper methods --
+
+	private void dispatch() {
+		try {
+			while (true) {
+				final List<Request> batch;
+				try {
+					batch = nextBatch();
+				}
+				catch (final InterruptedException exc) {
+					fail(exc);
+					return;
+				}
+				if (batch == null) return;
+				run(batch);
+			}
+		}
+		finally {
+			// NB: Rejects further requests if the dispatcher died unexpectedly.
+			fail(new IllegalStateException("The batcher stopped"));
+		}
+	}
+
+	/**
+	 * Waits for the next batch, or returns null once the batcher is closed and
+	 * all requests ran.
+	 */
+	private List<Request> nextBatch() throws InterruptedException {
+		lock.lock();
+		try {
+			while (queue.isEmpty()) {
+				if (closed) return null;
+				changed.await();
+			}
+			final Request first = queue.peek();
+			final int size = maxBatchSize;
+			while (!closed && compatible(first) < size) {
+				final long remaining = first.submitted + maxWaitNanos - System
+					.nanoTime();
+				if (remaining <= 0) break;
+				changed.awaitNanos(remaining);
+			}
+			final List<Request> batch = new ArrayList<>();
+			for (final Iterator<Request> it = queue.iterator(); it.hasNext() &&
+				batch.size() < size;)
+			{
+				final Request request = it.next();
+				if (request.compatible(first)) {
+					batch.add(request);
+					it.remove();
+				}
+			}
+			return batch;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private int compatible(final Request first) {
+		int count = 0;
+		for (final Request request : queue) {
+			if (request.compatible(first)) count++;
+		}
+		return count;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void run(final List<Request> batch) {
+		final long start = System.nanoTime();
+		final List<Img<?>> outputs;
+		try {
+			final List images = new ArrayList<>();
+			for (final Request request : batch) {
+				images.add(request.image);
+			}
+			try (CachedModelBundle.Lease lease = model == null ? null : model
+				.acquire();
+					Tensor<?> in = Tensors.stack(images, dimOrder);
+					Tensor<?> out = (lease == null ? session : lease.model().session())
+						.runner().feed(input, in).fetch(output).run().get(0))
+			{
+				if (out.numDimensions() == 0 || out.shape()[0] != batch.size()) {
+					throw new IllegalArgumentException("Output of shape " + Arrays
+						.toString(out.shape()) + " does not match the batch of " + batch
+							.size() + " images");
+				}
+				outputs = Tensors.unstack(out, outputDimOrder);
+			}
+		}
+		catch (final Throwable exc) {
+			// NB: Also completes the futures on errors, e.g. when stacking a large
+			// batch runs out of memory, so that no caller waits forever.
+			record(batch, start);
+			for (final Request request : batch) {
+				request.future.completeExceptionally(exc);
+			}
+			return;
+		}
+		record(batch, start);
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).future.complete(outputs.get(i));
+		}
+	}
+
+	private void record(final List<Request> batch, final long start) {
+		final long end = System.nanoTime();
+		lock.lock();
+		try {
+			if (batchSizeCounts.length <= batch.size()) {
+				batchSizeCounts = Arrays.copyOf(batchSizeCounts, batch.size() + 1);
+			}
+			batchSizeCounts[batch.size()]++;
+			requests += batch.size();
+			for (final Request request : batch) {
+				final long waited = start - request.submitted;
+				queueNanos += waited;
+				maxQueueNanos = Math.max(maxQueueNanos, waited);
+			}
+			runNanos += end - start;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/** Closes the batcher and fails all queued requests. */
+	private void fail(final Throwable exc) {
+		lock.lock();
+		try {
+			closed = true;
+			for (final Request request : queue) {
+				request.future.completeExceptionally(exc);
+			}
+			queue.clear();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	// -- Helper classes --
+
+	private static class Request {
+
+		private final RandomAccessibleInterval<?> image;
+		private final Class<?> type;
+		private final long[] dims;
+		private final long submitted = System.nanoTime();
+		private final CompletableFuture<Img<?>> future = new CompletableFuture<>();
+
+		private <T extends RealType<T>> Request(
+			final RandomAccessibleInterval<T> image)
+		{
+			this.image = image;
+			type = Util.getTypeFromInterval(image).getClass();
+			dims = Intervals.dimensionsAsLongArray(image);
+		}
+
+		private boolean compatible(final Request other) {
+			return type == other.type && Arrays.equals(dims, other.dims);
+		}
+	}
+}
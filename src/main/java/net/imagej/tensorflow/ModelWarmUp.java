@@ -0,0 +1,209 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+
+import net.imagej.tensorflow.util.GraphUtil;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Operation;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Shape;
+import org.tensorflow.Tensor;
+import org.tensorflow.types.UInt8;
+
+/**
+ * Runs one inference with an input of zeros, so that TensorFlow allocates
+ * its memory and initializes its kernels before the first real prediction.
+ * <p>
+ * The input has the shape declared by the model. Dimensions of unknown size
+ * are 1, unless the shape is {@link #setShape(long...) set}, e.g. for models
+ * which need a minimum size or to allocate the memory of a typical input.
+ * </p>
+ *
+ * @see TensorFlowService#preloadModel(org.scijava.io.location.Location,
+ *      String, ModelWarmUp, String...)
+ */
+public class ModelWarmUp {
+
+	private final String input;
+	private final String output;
+	private long[] shape;
+
+	/**
+	 * Creates a warm-up feeding one operation and fetching the output of
+	 * another.
+	 *
+	 * @param input The name of the input operation.
+	 * @param output The name of the output operation.
+	 */
+	public ModelWarmUp(final String input, final String output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Creates a warm-up from properties, e.g. of a model listed in the warm-up
+	 * file of the {@link TensorFlowService}.
+	 *
+	 * @param properties The properties {@code <prefix>input},
+	 *          {@code <prefix>output} and optionally {@code <prefix>shape},
+	 *          with comma-separated sizes.
+	 * @return The warm-up, or null if no input and output are given.
+	 * @throws IllegalArgumentException if the shape is invalid.
+	 */
+	public static ModelWarmUp fromProperties(final Properties properties,
+		final String prefix)
+	{
+		final String input = properties.getProperty(prefix + "input");
+		final String output = properties.getProperty(prefix + "output");
+		if (input == null || output == null) return null;
+		final ModelWarmUp warmUp = new ModelWarmUp(input.trim(), output.trim());
+		final String shape = properties.getProperty(prefix + "shape");
+		if (shape != null) {
+			try {
+				warmUp.setShape(Arrays.stream(shape.split(",")).map(String::trim)
+					.mapToLong(Long::parseLong).toArray());
+			}
+			catch (final NumberFormatException exc) {
+				throw new IllegalArgumentException("Invalid shape: " + shape, exc);
+			}
+		}
+		return warmUp;
+	}
+
+	/** Sets the shape of the input, overriding the shape of the model. */
+	public void setShape(final long... shape) {
+		for (final long size : shape) {
+			if (size <= 0) {
+				throw new IllegalArgumentException("Invalid shape: " + Arrays
+					.toString(shape));
+			}
+		}
+		this.shape = shape.clone();
+	}
+
+	/**
+	 * Runs the warm-up, holding a lease of the model.
+	 *
+	 * @throws IllegalArgumentException if the input operation does not exist
+	 *           or its data type is not supported.
+	 * @throws IllegalStateException if the model is closed.
+	 */
+	public void run(final CachedModelBundle model) {
+		try (CachedModelBundle.Lease lease = model.acquire()) {
+			run(lease);
+		}
+	}
+
+	/**
+	 * Runs the warm-up with a lease of a model.
+	 *
+	 * @throws IllegalArgumentException if the input operation does not exist
+	 *           or its data type is not supported.
+	 */
+	public void run(final CachedModelBundle.Lease lease) {
+		run(lease.model());
+	}
+
+	// -- Helper methods --
+
+	private void run(final SavedModelBundle model) {
+		final Operation op = GraphUtil.operation(model.graph(), input);
+		final DataType dataType = op.output(0).dataType();
+		final long[] inputShape = shape != null ? shape : declaredShape(op
+			.output(0).shape());
+		final ByteBuffer zeros = ByteBuffer.allocate(bytes(inputShape,
+			GraphUtil.bytesPerElement(dataType)));
+		try (Tensor<?> tensor = Tensor.create(type(dataType), inputShape,
+			zeros))
+		{
+			// NB: Only the run matters.
+			model.session().runner().feed(input, tensor).fetch(output).run().get(0)
+				.close();
+		}
+	}
+
+	/**
+	 * Gets the bytes of an input.
+	 *
+	 * @throws IllegalArgumentException if the input does not fit into a
+	 *           buffer.
+	 */
+	private static int bytes(final long[] shape, final int bytesPerElement) {
+		try {
+			long bytes = bytesPerElement;
+			for (final long size : shape) {
+				bytes = Math.multiplyExact(bytes, size);
+			}
+			return Math.toIntExact(bytes);
+		}
+		catch (final ArithmeticException exc) {
+			throw new IllegalArgumentException("Input too large: " + Arrays
+				.toString(shape), exc);
+		}
+	}
+
+	private static long[] declaredShape(final Shape shape) {
+		if (shape.numDimensions() < 0) {
+			throw new IllegalArgumentException(
+				"The input has no declared shape; set one");
+		}
+		final long[] result = new long[shape.numDimensions()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = shape.size(i) < 0 ? 1 : shape.size(i);
+		}
+		return result;
+	}
+
+	private static Class<?> type(final DataType dataType) {
+		switch (dataType) {
+			case FLOAT:
+				return Float.class;
+			case DOUBLE:
+				return Double.class;
+			case INT32:
+				return Integer.class;
+			case INT64:
+				return Long.class;
+			case UINT8:
+				return UInt8.class;
+			case BOOL:
+				return Boolean.class;
+			default:
+				throw new IllegalArgumentException("Unsupported input type: " +
+					dataType);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import net.imglib2.Dimensions;
+import net.imglib2.util.Intervals;
+
+/**
+ * An affine normalization {@code y = x * factor + offset} applied to the pixels
+ * of an image while they are copied into a Tensor, either with the same
+ * factor and offset for all pixels or with one pair per channel.
+ *
+ * @see Tensors#tensorAsFloat(net.imglib2.RandomAccessibleInterval, int[],
+ *      Normalization)
+ */
+public final class Normalization {
+
+	/** The image dimension holding the channels, or -1 for all pixels. */
+	private final int channelDim;
+
+	private final float[] factors;
+	private final float[] offsets;
+
+	private Normalization(final int channelDim, final float[] factors,
+		final float[] offsets)
+	{
+		this.channelDim = channelDim;
+		this.factors = factors;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Creates the normalization {@code y = x * factor + offset} for all pixels.
+	 */
+	public static Normalization affine(final double factor,
+		final double offset)
+	{
+		return create(-1, new double[] { factor }, new double[] { offset });
+	}
+
+	/**
+	 * Creates the normalization {@code y = x * factor[c] + offset[c]} where
+	 * {@code c} is the position of the pixel in the channel dimension.
+	 *
+	 * @param channelDim The dimension of the image holding the channels.
+	 */
+	public static Normalization affine(final int channelDim,
+		final double[] factors, final double[] offsets)
+	{
+		checkChannelDim(channelDim);
+		return create(channelDim, factors, offsets);
+	}
+
+	/**
+	 * Creates the normalization {@code y = (x - mean) / scale} for all pixels,
+	 * e.g. to standardize with mean and standard deviation.
+	 */
+	public static Normalization meanScale(final double mean,
+		final double scale)
+	{
+		return create(-1, new double[] { mean }, new double[] { scale },
+			"means and scales");
+	}
+
+	/**
+	 * Creates the normalization {@code y = (x - mean[c]) / scale[c]} where
+	 * {@code c} is the position of the pixel in the channel dimension.
+	 *
+	 * @param channelDim The dimension of the image holding the channels.
+	 */
+	public static Normalization meanScale(final int channelDim,
+		final double[] means, final double[] scales)
+	{
+		checkChannelDim(channelDim);
+		return create(channelDim, means, scales, "means and scales");
+	}
+
+	/**
+	 * Creates the normalization {@code y = (x - min) / (max - min)} for all
+	 * pixels, which maps the range {@code [min, max]} to {@code [0, 1]}.
+	 */
+	public static Normalization minMax(final double min, final double max) {
+		return create(-1, new double[] { min }, new double[] { max - min },
+			"minima and maxima");
+	}
+
+	/**
+	 * Creates the normalization {@code y = (x - min[c]) / (max[c] - min[c])}
+	 * where {@code c} is the position of the pixel in the channel dimension.
+	 *
+	 * @param channelDim The dimension of the image holding the channels.
+	 */
+	public static Normalization minMax(final int channelDim, final double[] mins,
+		final double[] maxs)
+	{
+		checkChannelDim(channelDim);
+		final double[] scales = new double[maxs.length];
+		for (int c = 0; c < Math.min(mins.length, maxs.length); c++) {
+			scales[c] = maxs[c] - mins[c];
+		}
+		return create(channelDim, mins, scales, "minima and maxima");
+	}
+
+	/**
+	 * @return The image dimension holding the channels, or -1 if all pixels are
+	 *         normalized the same way.
+	 */
+	public int getChannelDimension() {
+		return channelDim;
+	}
+
+	/** @return The number of channels with their own factor and offset. */
+	public int numChannels() {
+		return factors.length;
+	}
+
+	/** @return The factor applied to the pixels of the given channel. */
+	public float factor(final int channel) {
+		return factors[channel];
+	}
+
+	/** @return The offset added to the pixels of the given channel. */
+	public float offset(final int channel) {
+		return offsets[channel];
+	}
+
+	@Override
+	public String toString() {
+		return "Normalization[channelDim=" + channelDim + ", factors=" + Arrays
+			.toString(factors) + ", offsets=" + Arrays.toString(offsets) + "]";
+	}
+
+	/**
+	 * Checks that this normalization can be applied to an image.
+	 *
+	 * @throws IllegalArgumentException if the image has no channel dimension
+	 *           with one entry per channel of the normalization.
+	 */
+	void check(final Dimensions image) {
+		if (channelDim < 0) return;
+		if (channelDim >= image.numDimensions() || image.dimension(
+			channelDim) != factors.length)
+		{
+			throw new IllegalArgumentException("Normalization with " +
+				factors.length + " channels in dimension " + channelDim +
+				" does not fit an image with dimensions " + Arrays.toString(Intervals
+					.dimensionsAsLongArray(image)));
+		}
+	}
+
+	/**
+	 * Creates the transform normalizing the converted rows of a block of an
+	 * image, which is stored in a primitive array.
+	 *
+	 * @param min The position of the block in the image.
+	 * @param dims The dimensions of the block.
+	 */
+	CopyPlan.FloatTransform transform(final long[] min, final long[] dims) {
+		if (channelDim < 0) {
+			final float factor = factors[0];
+			final float offset = offsets[0];
+			return (s, row, n) -> {
+				for (int a = 0; a < n; a++) row[a] = row[a] * factor + offset;
+			};
+		}
+		// NB: The channel of array index i is c0 + (i / stride) % count.
+		long stride = 1;
+		for (int d = 0; d < channelDim; d++) {
+			stride *= dims[d];
+		}
+		final int channelStride = (int) stride;
+		final int count = (int) dims[channelDim];
+		final int c0 = (int) min[channelDim];
+		return (s, row, n) -> {
+			int c = s / channelStride % count;
+			int k = s % channelStride;
+			if (k + n <= channelStride) {
+				// The whole row is in one channel.
+				final float factor = factors[c0 + c];
+				final float offset = offsets[c0 + c];
+				for (int a = 0; a < n; a++) row[a] = row[a] * factor + offset;
+				return;
+			}
+			for (int a = 0; a < n; a++) {
+				row[a] = row[a] * factors[c0 + c] + offsets[c0 + c];
+				if (++k == channelStride) {
+					k = 0;
+					if (++c == count) c = 0;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Normalizes the data of a float Tensor in place.
+	 *
+	 * @param buffer The data of the Tensor.
+	 * @param shape The shape of the Tensor.
+	 * @param tensorChannelDim The Tensor dimension holding the channels.
+	 */
+	void apply(final FloatBuffer buffer, final long[] shape,
+		final int tensorChannelDim)
+	{
+		// NB: The Tensor buffer is laid out like an image with reversed shape.
+		final long[] dims = new long[shape.length];
+		for (int d = 0; d < dims.length; d++) {
+			dims[d] = shape[shape.length - 1 - d];
+		}
+		final int dim = channelDim < 0 ? -1 : shape.length - 1 - tensorChannelDim;
+		final CopyPlan.FloatTransform transform = new Normalization(dim, factors,
+			offsets).transform(new long[dims.length], dims);
+		ParallelChunks.forEach(buffer.limit(), CopyPlan.MAX_ROW, (from, to) -> {
+			final FloatBuffer chunk = buffer.duplicate();
+			final float[] row = new float[CopyPlan.MAX_ROW];
+			for (long s = from; s < to; s += row.length) {
+				final int n = (int) Math.min(row.length, to - s);
+				chunk.position((int) s);
+				chunk.get(row, 0, n);
+				transform.apply((int) s, row, n);
+				chunk.position((int) s);
+				chunk.put(row, 0, n);
+			}
+		});
+	}
+
+	private static Normalization create(final int channelDim,
+		final double[] factors, final double[] offsets)
+	{
+		if (factors.length == 0 || factors.length != offsets.length) {
+			throw new IllegalArgumentException(
+				"Expected the same positive number of factors and offsets, got " +
+					factors.length + " and " + offsets.length);
+		}
+		final float[] f = new float[factors.length];
+		final float[] o = new float[offsets.length];
+		for (int c = 0; c < f.length; c++) {
+			f[c] = (float) factors[c];
+			o[c] = (float) offsets[c];
+		}
+		return new Normalization(channelDim, f, o);
+	}
+
+	private static Normalization create(final int channelDim,
+		final double[] means, final double[] scales, final String what)
+	{
+		if (means.length != scales.length) {
+			throw new IllegalArgumentException("Expected the same number of " +
+				what + ", got " + means.length + " and " + scales.length);
+		}
+		final double[] factors = new double[scales.length];
+		final double[] offsets = new double[means.length];
+		for (int c = 0; c < factors.length; c++) {
+			if (scales[c] == 0) {
+				throw new IllegalArgumentException("Scale of channel " + c +
+					" must not be zero");
+			}
+			factors[c] = 1 / scales[c];
+			offsets[c] = -means[c] / scales[c];
+		}
+		return create(channelDim, factors, offsets);
+	}
+
+	private static void checkChannelDim(final int channelDim) {
+		if (channelDim < 0) {
+			throw new IllegalArgumentException("Invalid channel dimension: " +
+				channelDim);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Splits a range of work items into chunks and processes them on a shared
+ * {@link ForkJoinPool}. Used by {@link Tensors} to parallelize copying image
+ * data into Tensor buffers.
+ */
+final class ParallelChunks {
+
+	/** Processes a half-open range {@code [from, to)} of work items. */
+	interface Chunk {
+
+		void run(long from, long to);
+	}
+
+	/** Number of chunks created per worker, to balance uneven chunks. */
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	private static volatile int parallelism = //
+		Runtime.getRuntime().availableProcessors();
+
+	private static ForkJoinPool pool;
+
+	private ParallelChunks() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	static int getParallelism() {
+		return parallelism;
+	}
+
+	static synchronized void setParallelism(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " +
+				parallelism);
+		}
+		if (parallelism == ParallelChunks.parallelism) return;
+		ParallelChunks.parallelism = parallelism;
+		// NB: Chunks still running finish on the old pool, which terminates
+		// once they are done.
+		if (pool != null) pool.shutdown();
+		pool = null;
+	}
+
+	/**
+	 * Processes the work items {@code [0, count)} in chunks of at least
+	 * {@code minChunk} items. Runs on the calling thread if the work is too
+	 * small to be worth splitting or if parallelism is disabled.
+	 */
+	static void forEach(final long count, final long minChunk,
+		final Chunk chunk)
+	{
+		final int workers = parallelism;
+		if (workers <= 1 || count < 2 * minChunk) {
+			if (count > 0) chunk.run(0, count);
+			return;
+		}
+		final long chunkSize = Math.max(minChunk, //
+			(count + workers * CHUNKS_PER_WORKER - 1) / (workers * CHUNKS_PER_WORKER));
+		final Split task = new Split(chunk, 0, count, chunkSize);
+		// NB: Nested calls (e.g. one chunk per image, each copied in parallel)
+		// join the pool they are already running in.
+		if (ForkJoinTask.inForkJoinPool()) task.invoke();
+		else invoke(task);
+	}
+
+	private static void invoke(final Split task) {
+		while (true) {
+			final ForkJoinPool current = pool();
+			try {
+				current.invoke(task);
+				return;
+			}
+			catch (final RejectedExecutionException exc) {
+				// NB: The parallelism changed after the pool was taken; retry on the
+				// new pool.
+				if (!current.isShutdown()) throw exc;
+			}
+		}
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+
+	private static class Split extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Chunk chunk;
+		private final long from;
+		private final long to;
+		private final long chunkSize;
+
+		private Split(final Chunk chunk, final long from, final long to,
+			final long chunkSize)
+		{
+			this.chunk = chunk;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				chunk.run(from, to);
+				return;
+			}
+			final long mid = from + (to - from) / 2;
+			invokeAll(new Split(chunk, from, mid, chunkSize), //
+				new Split(chunk, mid, to, chunkSize));
+		}
+	}
+}
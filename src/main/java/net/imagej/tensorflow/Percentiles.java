@@ -0,0 +1,570 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Computes percentiles of images, e.g. to normalize the input of a model to
+ * the range between the 1st and the 99.8th percentile:
+ *
+ * <pre>
+ * Normalization n = Percentiles.normalization(image, channelDim, 1, 99.8);
+ * Tensor&lt;Float&gt; tensor = Tensors.tensorAsFloat(image, dimOrder, n);
+ * </pre>
+ * <p>
+ * Instead of sorting a copy of the pixels, the percentiles are selected from
+ * histograms which are counted in parallel while streaming over the image.
+ * The first pass counts the pixels by the 16 most significant bits of their
+ * value, which already gives the exact percentiles of 8- and 16-bit images.
+ * For wider types, a second pass counts the pixels by their next 16 bits, but
+ * only within the bins holding the percentiles. This makes the percentiles of
+ * 32-bit integer and float images exact too, while those of 64-bit images are
+ * accurate to 32 bits. NaN pixels are ignored.
+ * </p>
+ * <p>
+ * Percentiles between two pixel values are interpolated linearly, like
+ * {@code numpy.percentile} does by default.
+ * </p>
+ */
+public final class Percentiles {
+
+	/** Number of bits of a value which are counted in one pass. */
+	private static final int BITS_PER_PASS = 16;
+
+	/** Minimum number of pixels counted in one parallel chunk. */
+	private static final long MIN_CHUNK = 1 << 16;
+
+	/**
+	 * Key of NaN pixels, which are not counted. Only used by floating point
+	 * kinds; it is a valid key of 64-bit integers.
+	 */
+	private static final long NO_KEY = -1;
+
+	private Percentiles() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Computes percentiles of all pixels of an image.
+	 *
+	 * @param image The image.
+	 * @param percentiles The percentiles to compute, between 0 and 100.
+	 * @return The value of each percentile, or NaN if the image has no pixels
+	 *         other than NaN.
+	 * @throws IllegalArgumentException if a percentile is out of range.
+	 */
+	public static <T extends RealType<T>> double[] percentiles(
+		final RandomAccessibleInterval<T> image, final double... percentiles)
+	{
+		return compute(image, -1, percentiles)[0];
+	}
+
+	/**
+	 * Computes percentiles of each channel of an image.
+	 *
+	 * @param image The image.
+	 * @param channelDim The dimension of the image holding the channels.
+	 * @param percentiles The percentiles to compute, between 0 and 100.
+	 * @return The value of each percentile, indexed by channel and percentile.
+	 *         NaN for channels without pixels other than NaN.
+	 * @throws IllegalArgumentException if the channel dimension or a percentile
+	 *           is out of range.
+	 */
+	public static <T extends RealType<T>> double[][] channelPercentiles(
+		final RandomAccessibleInterval<T> image, final int channelDim,
+		final double... percentiles)
+	{
+		if (channelDim < 0 || channelDim >= image.numDimensions()) {
+			throw new IllegalArgumentException("Invalid channel dimension " +
+				channelDim + " for an image with " + image.numDimensions() +
+				" dimensions");
+		}
+		return compute(image, channelDim, percentiles);
+	}
+
+	/**
+	 * Creates the normalization mapping the low percentile of an image to 0 and
+	 * the high percentile to 1. The normalization does not clip values outside
+	 * of this range. If both percentiles are the same, pixels are only shifted.
+	 *
+	 * @param image The image.
+	 * @param low The percentile mapped to 0, e.g. 1.
+	 * @param high The percentile mapped to 1, e.g. 99.8.
+	 * @throws IllegalArgumentException if a percentile is out of range.
+	 */
+	public static <T extends RealType<T>> Normalization normalization(
+		final RandomAccessibleInterval<T> image, final double low,
+		final double high)
+	{
+		final double[] range = percentiles(image, low, high);
+		return Normalization.minMax(range[0], max(range));
+	}
+
+	/**
+	 * Creates the normalization mapping the low percentile of each channel of
+	 * an image to 0 and its high percentile to 1. The normalization does not
+	 * clip values outside of this range. If both percentiles of a channel are
+	 * the same, its pixels are only shifted.
+	 *
+	 * @param image The image.
+	 * @param channelDim The dimension of the image holding the channels.
+	 * @param low The percentile mapped to 0, e.g. 1.
+	 * @param high The percentile mapped to 1, e.g. 99.8.
+	 * @throws IllegalArgumentException if the channel dimension or a percentile
+	 *           is out of range.
+	 */
+	public static <T extends RealType<T>> Normalization normalization(
+		final RandomAccessibleInterval<T> image, final int channelDim,
+		final double low, final double high)
+	{
+		final double[][] ranges = channelPercentiles(image, channelDim, low,
+			high);
+		final double[] mins = new double[ranges.length];
+		final double[] maxs = new double[ranges.length];
+		for (int c = 0; c < ranges.length; c++) {
+			mins[c] = ranges[c][0];
+			maxs[c] = max(ranges[c]);
+		}
+		return Normalization.minMax(channelDim, mins, maxs);
+	}
+
+	// -- Helper methods --
+
+	/** Gets the upper bound of a range, avoiding an empty range. */
+	private static double max(final double[] range) {
+		return range[1] == range[0] ? range[0] + 1 : range[1];
+	}
+
+	private static <T extends RealType<T>> double[][] compute(
+		final RandomAccessibleInterval<T> image, final int channelDim,
+		final double[] percentiles)
+	{
+		for (final double p : percentiles) {
+			if (!(p >= 0 && p <= 100)) {
+				throw new IllegalArgumentException("Invalid percentile: " + p);
+			}
+		}
+		final T type = Util.getTypeFromInterval(image);
+		final Kind kind = Kind.of(Tensors.arrayType(type), Tensors.isUnsigned(
+			type));
+		final int channels = channelDim < 0 ? 1 : (int) image.dimension(
+			channelDim);
+		final int bins1 = Math.min(BITS_PER_PASS, kind.bits);
+		final int shift1 = kind.bits - bins1;
+		final long[][] histograms = count(image, channelDim, channels, kind,
+			new Pass(shift1, bins1, null));
+
+		// NB: The values of each percentile are interpolated between two ranks.
+		final double[][] result = new double[channels][percentiles.length];
+		final long[][][] ranks = new long[channels][][];
+		for (int c = 0; c < channels; c++) {
+			final long n = sum(histograms[c]);
+			if (n == 0) {
+				Arrays.fill(result[c], Double.NaN);
+				continue;
+			}
+			ranks[c] = new long[2 * percentiles.length][];
+			for (int p = 0; p < percentiles.length; p++) {
+				final double rank = percentiles[p] / 100 * (n - 1);
+				final long lower = (long) Math.floor(rank);
+				ranks[c][2 * p] = find(histograms[c], lower);
+				ranks[c][2 * p + 1] = find(histograms[c], Math.min(lower + 1, n - 1));
+			}
+		}
+		if (shift1 > 0) refine(image, channelDim, kind, shift1, ranks);
+
+		for (int c = 0; c < channels; c++) {
+			if (ranks[c] == null) continue;
+			final long n = sum(histograms[c]);
+			for (int p = 0; p < percentiles.length; p++) {
+				final double rank = percentiles[p] / 100 * (n - 1);
+				final double fraction = rank - Math.floor(rank);
+				final double lower = kind.value(ranks[c][2 * p][0]);
+				final double upper = kind.value(ranks[c][2 * p + 1][0]);
+				result[c][p] = fraction == 0 ? lower : lower + fraction * (upper -
+					lower);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Refines the ranks found in the first pass by counting the pixels in their
+	 * bins by the next bits of their keys.
+	 *
+	 * @param ranks The bin and the remaining rank in that bin for each rank.
+	 *          Updated to the refined key and the remaining rank.
+	 */
+	private static <T extends RealType<T>> void refine(
+		final RandomAccessibleInterval<T> image, final int channelDim,
+		final Kind kind, final int shift1, final long[][][] ranks)
+	{
+		final int bins2 = Math.min(BITS_PER_PASS, shift1);
+		final int shift2 = shift1 - bins2;
+		final int channels = ranks.length;
+		// NB: Only the bins holding one of the ranks are refined.
+		final int[][] slots = new int[channels][];
+		int maxSlots = 0;
+		for (int c = 0; c < channels; c++) {
+			if (ranks[c] == null) continue;
+			slots[c] = new int[1 << (kind.bits - shift1)];
+			Arrays.fill(slots[c], -1);
+			int count = 0;
+			for (final long[] rank : ranks[c]) {
+				if (slots[c][(int) rank[0]] < 0) slots[c][(int) rank[0]] = count++;
+			}
+			maxSlots = Math.max(maxSlots, count);
+		}
+		final long[][] histograms = count(image, channelDim, channels, kind,
+			new Pass(shift1, bins2, slots));
+		final int size = 1 << bins2;
+		for (int c = 0; c < channels; c++) {
+			if (ranks[c] == null) continue;
+			for (final long[] rank : ranks[c]) {
+				final int offset = slots[c][(int) rank[0]] * size;
+				final long[] sub = find(Arrays.copyOfRange(histograms[c], offset,
+					offset + size), rank[1]);
+				rank[0] = rank[0] << shift1 | sub[0] << shift2;
+				rank[1] = sub[1];
+			}
+		}
+	}
+
+	/**
+	 * Finds the bin holding a rank.
+	 *
+	 * @return The bin and the rank within that bin.
+	 */
+	private static long[] find(final long[] histogram, final long rank) {
+		long remaining = rank;
+		for (int bin = 0; bin < histogram.length; bin++) {
+			if (remaining < histogram[bin]) return new long[] { bin, remaining };
+			remaining -= histogram[bin];
+		}
+		throw new IllegalStateException("Rank " + rank + " is out of range");
+	}
+
+	private static long sum(final long[] histogram) {
+		long sum = 0;
+		for (final long count : histogram) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	/** Counts the keys of all pixels of an image in parallel. */
+	private static <T extends RealType<T>> long[][] count(
+		final RandomAccessibleInterval<T> image, final int channelDim,
+		final int channels, final Kind kind, final Pass pass)
+	{
+		// NB: Each worker counts into its own histograms, which are summed up at
+		// the end.
+		final Queue<long[][]> histograms = new ConcurrentLinkedQueue<>();
+		final List<PrimitiveBlocks.Block> blocks = kind.arrayType == null ? null
+			: PrimitiveBlocks.of(image, kind.arrayType);
+		if (blocks != null) {
+			ParallelChunks.forEach(blocks.size(), 1, (from, to) -> {
+				for (int i = (int) from; i < to; i++) {
+					count(blocks.get(i), channelDim, channels, kind, pass, histograms);
+				}
+			});
+		}
+		else {
+			for (int c = 0; c < channels; c++) {
+				final RandomAccessibleInterval<T> channel = channelDim < 0 ? image
+					: Views.hyperSlice(image, channelDim, image.min(channelDim) + c);
+				final int ch = c;
+				ParallelChunks.forEach(Intervals.numElements(channel), MIN_CHUNK, (
+					from, to) -> {
+					final long[][] counts = take(histograms, channels, pass);
+					final long[] histogram = counts[ch];
+					final Cursor<T> cursor = Views.flatIterable(channel).cursor();
+					cursor.jumpFwd(from);
+					for (long i = from; i < to; i++) {
+						final long key = kind.key(cursor.next().getRealDouble());
+						if (kind.counts(key)) pass.add(histogram, ch, key);
+					}
+					histograms.add(counts);
+				});
+			}
+		}
+		final long[][] total = take(new ConcurrentLinkedQueue<>(), channels, pass);
+		for (final long[][] counts : histograms) {
+			for (int c = 0; c < channels; c++) {
+				for (int bin = 0; bin < total[c].length; bin++) {
+					total[c][bin] += counts[c][bin];
+				}
+			}
+		}
+		return total;
+	}
+
+	/** Counts the keys of the pixels stored in one block of an image. */
+	private static void count(final PrimitiveBlocks.Block block,
+		final int channelDim, final int channels, final Kind kind,
+		final Pass pass, final Queue<long[][]> histograms)
+	{
+		// NB: The channel of array index i is c0 + (i / stride) % count.
+		long stride = 1;
+		for (int d = 0; d < channelDim; d++) {
+			stride *= block.dims[d];
+		}
+		final long channelStride = channelDim < 0 ? Long.MAX_VALUE : stride;
+		final long count = channelDim < 0 ? 1 : block.dims[channelDim];
+		final int c0 = channelDim < 0 ? 0 : (int) block.min[channelDim];
+		final KeyReader reader = kind.reader(block.array);
+		ParallelChunks.forEach(Intervals.numElements(block.dims), MIN_CHUNK, (from,
+			to) -> {
+			final long[][] counts = take(histograms, channels, pass);
+			int c = (int) (from / channelStride % count);
+			long k = from % channelStride;
+			for (long i = from; i < to; i++) {
+				final long key = reader.key((int) i);
+				if (kind.counts(key)) pass.add(counts[c0 + c], c0 + c, key);
+				if (++k == channelStride) {
+					k = 0;
+					if (++c == count) c = 0;
+				}
+			}
+			histograms.add(counts);
+		});
+	}
+
+	/** Takes histograms from the queue, or creates new ones if it is empty. */
+	private static long[][] take(final Queue<long[][]> histograms,
+		final int channels, final Pass pass)
+	{
+		final long[][] counts = histograms.poll();
+		if (counts != null) return counts;
+		final long[][] created = new long[channels][];
+		for (int c = 0; c < channels; c++) {
+			created[c] = new long[pass.size(c)];
+		}
+		return created;
+	}
+
+	/** Maps the keys of the pixels to the bins of a histogram. */
+	private static final class Pass {
+
+		private final int shift;
+		private final int bits;
+
+		/**
+		 * The slot of each bin of the previous pass which is refined, or -1, per
+		 * channel. Null in the first pass.
+		 */
+		private final int[][] slots;
+
+		private Pass(final int shift, final int bits, final int[][] slots) {
+			this.shift = shift;
+			this.bits = bits;
+			this.slots = slots;
+		}
+
+		private int size(final int channel) {
+			if (slots == null) return 1 << bits;
+			if (slots[channel] == null) return 0;
+			int count = 0;
+			for (final int slot : slots[channel]) {
+				if (slot >= 0) count++;
+			}
+			return count << bits;
+		}
+
+		private void add(final long[] histogram, final int channel,
+			final long key)
+		{
+			if (slots == null) {
+				histogram[(int) (key >>> shift)]++;
+				return;
+			}
+			final int slot = slots[channel][(int) (key >>> shift)];
+			if (slot < 0) return;
+			final long mask = (1L << bits) - 1;
+			histogram[slot << bits | (int) (key >>> (shift - bits) & mask)]++;
+		}
+	}
+
+	/** Reads the key of the pixel at an index of a primitive array. */
+	private interface KeyReader {
+
+		long key(int index);
+	}
+
+	/**
+	 * The kinds of pixel values, mapped to unsigned integer keys of the given
+	 * number of bits which sort like the values.
+	 */
+	private enum Kind {
+			INT8(8, byte[].class, false), UINT8(8, byte[].class, false), //
+			INT16(16, short[].class, false), UINT16(16, short[].class, false), //
+			INT32(32, int[].class, false), UINT32(32, int[].class, false), //
+			INT64(64, long[].class, false), //
+			FLOAT32(32, float[].class, true), //
+			FLOAT64(64, double[].class, true), //
+			/** Other types, read as double. */
+			REAL(64, null, true);
+
+		private final int bits;
+		private final Class<?> arrayType;
+		private final boolean floating;
+
+		Kind(final int bits, final Class<?> arrayType, final boolean floating) {
+			this.bits = bits;
+			this.arrayType = arrayType;
+			this.floating = floating;
+		}
+
+		private static Kind of(final Class<?> arrayType, final boolean unsigned) {
+			if (arrayType == byte[].class) return unsigned ? UINT8 : INT8;
+			if (arrayType == short[].class) return unsigned ? UINT16 : INT16;
+			if (arrayType == int[].class) return unsigned ? UINT32 : INT32;
+			if (arrayType == long[].class) return INT64;
+			if (arrayType == float[].class) return FLOAT32;
+			if (arrayType == double[].class) return FLOAT64;
+			return REAL;
+		}
+
+		/** Checks whether a key is counted, i.e. not the key of NaN. */
+		private boolean counts(final long key) {
+			return key != NO_KEY || !floating;
+		}
+
+		/** Gets the key of a pixel value. */
+		private long key(final double value) {
+			switch (this) {
+				case INT8:
+				case INT16:
+				case INT32:
+				case INT64:
+					// NB: Shifts the values by half of their range, wrapping for 64 bits.
+					return (long) value - (Long.MIN_VALUE >> 64 - bits);
+				case UINT8:
+				case UINT16:
+				case UINT32:
+					return (long) value;
+				case FLOAT32:
+					return floatKey((float) value);
+				default:
+					return doubleKey(value);
+			}
+		}
+
+		/** Gets the pixel value of a key. */
+		private double value(final long key) {
+			switch (this) {
+				case INT8:
+				case INT16:
+				case INT32:
+				case INT64:
+					return key + (Long.MIN_VALUE >> 64 - bits);
+				case UINT8:
+				case UINT16:
+				case UINT32:
+					return key;
+				case FLOAT32: {
+					final int raw = (int) key;
+					return Float.intBitsToFloat(raw < 0 ? raw ^ Integer.MIN_VALUE
+						: ~raw);
+				}
+				default:
+					return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE
+						: ~key);
+			}
+		}
+
+		private KeyReader reader(final Object array) {
+			switch (this) {
+				case INT8: {
+					final byte[] a = (byte[]) array;
+					return i -> a[i] + 128;
+				}
+				case UINT8: {
+					final byte[] a = (byte[]) array;
+					return i -> a[i] & 0xff;
+				}
+				case INT16: {
+					final short[] a = (short[]) array;
+					return i -> a[i] + 32768;
+				}
+				case UINT16: {
+					final short[] a = (short[]) array;
+					return i -> a[i] & 0xffff;
+				}
+				case INT32: {
+					final int[] a = (int[]) array;
+					return i -> a[i] - (long) Integer.MIN_VALUE;
+				}
+				case UINT32: {
+					final int[] a = (int[]) array;
+					return i -> a[i] & 0xffffffffL;
+				}
+				case INT64: {
+					final long[] a = (long[]) array;
+					return i -> a[i] ^ Long.MIN_VALUE;
+				}
+				case FLOAT32: {
+					final float[] a = (float[]) array;
+					return i -> floatKey(a[i]);
+				}
+				case FLOAT64: {
+					final double[] a = (double[]) array;
+					return i -> doubleKey(a[i]);
+				}
+				default:
+					throw new IllegalStateException("No arrays of kind " + this);
+			}
+		}
+
+		private static long floatKey(final float value) {
+			if (value != value) return NO_KEY;
+			final int bits = Float.floatToRawIntBits(value);
+			return (bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xffffffffL;
+		}
+
+		private static long doubleKey(final double value) {
+			if (value != value) return NO_KEY;
+			final long bits = Double.doubleToRawLongBits(value);
+			return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.WrappedImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.util.Intervals;
+
+/**
+ * Decomposes images into the primitive arrays which store their pixels, so
+ * that they can be copied into Tensors in bulk. Supported are
+ * {@link ArrayImg}s (one block), {@link PlanarImg}s (one block per plane) and
+ * cell images like {@code CellImg} (one block per cell).
+ */
+final class PrimitiveBlocks {
+
+	/** A primitive array holding the pixels of a box in the image. */
+	static final class Block {
+
+		final Object array;
+		final long[] min;
+		final long[] dims;
+
+		private Block(final Object array, final long[] min, final long[] dims) {
+			this.array = array;
+			this.min = min;
+			this.dims = dims;
+		}
+	}
+
+	private PrimitiveBlocks() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/** Unwraps images like an {@code ImgPlus} to get at their storage. */
+	static <T> RandomAccessibleInterval<T> unwrap(
+		final RandomAccessibleInterval<T> image)
+	{
+		RandomAccessibleInterval<T> img = image;
+		while (img instanceof WrappedImg) {
+			@SuppressWarnings("unchecked")
+			final WrappedImg<T> wrapped = (WrappedImg<T>) img;
+			img = wrapped.getImg();
+		}
+		return img;
+	}
+
+	/**
+	 * Gets the primitive arrays storing the pixels of an image.
+	 *
+	 * @param image The image.
+	 * @param arrayType The expected type of the arrays, e.g. {@code float[].class}.
+	 * @return The blocks, or null if the image is not stored in primitive
+	 *         arrays of the given type with one element per pixel.
+	 */
+	static List<Block> of(final RandomAccessibleInterval<?> image,
+		final Class<?> arrayType)
+	{
+		final RandomAccessibleInterval<?> img = unwrap(image);
+		final int n = img.numDimensions();
+		if (img instanceof ArrayImg) {
+			final Object array = array(((ArrayImg<?, ?>) img).update(null), arrayType,
+				Intervals.numElements(img));
+			if (array == null) return null;
+			return Collections.singletonList(new Block(array, new long[n], Intervals
+				.dimensionsAsLongArray(img)));
+		}
+		if (img instanceof PlanarImg && n > 0) {
+			final PlanarImg<?, ?> planarImg = (PlanarImg<?, ?>) img;
+			final long[] planeDims = new long[n];
+			for (int d = 0; d < n; d++) {
+				planeDims[d] = d < 2 ? img.dimension(d) : 1;
+			}
+			final long planeSize = Intervals.numElements(planeDims);
+			final List<Block> blocks = new ArrayList<>(planarImg.numSlices());
+			for (int i = 0; i < planarImg.numSlices(); i++) {
+				final Object array = array(planarImg.getPlane(i), arrayType, planeSize);
+				if (array == null) return null;
+				// NB: Planes are ordered by their position, d2 varying fastest.
+				final long[] min = new long[n];
+				for (int d = 2, index = i; d < n; d++) {
+					min[d] = index % img.dimension(d);
+					index /= img.dimension(d);
+				}
+				blocks.add(new Block(array, min, planeDims));
+			}
+			return blocks;
+		}
+		if (img instanceof AbstractCellImg) {
+			final List<Block> blocks = new ArrayList<>();
+			for (final Cell<?> cell : ((AbstractCellImg<?, ?, ?, ?>) img).getCells()) {
+				final Object array = array(cell.getData(), arrayType, cell.size());
+				if (array == null) return null;
+				blocks.add(new Block(array, Intervals.minAsLongArray(cell), Intervals
+					.dimensionsAsLongArray(cell)));
+			}
+			return blocks;
+		}
+		return null;
+	}
+
+	private static Object array(final Object access, final Class<?> arrayType,
+		final long size)
+	{
+		if (!(access instanceof ArrayDataAccess)) return null;
+		final Object array = ((ArrayDataAccess<?>) access).getCurrentStorageArray();
+		return arrayType.isInstance(array) && Array.getLength(array) >= size
+			? array : null;
+	}
+}
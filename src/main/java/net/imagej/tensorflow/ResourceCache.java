@@ -0,0 +1,392 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread-safe cache which loads each key at most once.
+ * <p>
+ * The first caller asking for a missing key loads it; concurrent callers
+ * asking for the same key wait for that load instead of loading the key
+ * again, while different keys load in parallel. A failed load is reported
+ * to all of its waiters and is not cached, so a later call tries again.
+ * </p>
+ * <p>
+ * Each value has a weight, e.g. its estimated native memory. When the total
+ * weight exceeds the maximum, the least recently used values are evicted and
+ * passed to the eviction callback, which releases them. The value which was
+ * just loaded and pinned values are never evicted, so a single value heavier
+ * than the maximum is still cached. Values can also be evicted once they were
+ * idle for a
+ * while, see {@link #evictIdle(long, long, ToLongFunction)}.
+ * </p>
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the cached values.
+ */
+final class ResourceCache<K, V> {
+
+	/** Loads the value of a missing key. */
+	@FunctionalInterface
+	interface Loader<V> {
+
+		V load() throws IOException;
+	}
+
+	private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	private final Predicate<V> valid;
+	private final ToLongFunction<V> weigher;
+	private final Predicate<V> pinned;
+	private final Consumer<V> evicted;
+
+	/** Counts the accesses, to order the entries by their last use. */
+	private final AtomicLong clock = new AtomicLong();
+
+	private long weight;
+	private long maxWeight = Long.MAX_VALUE;
+	private long evictions;
+
+	/** Creates an unbounded cache whose values stay valid until removed. */
+	ResourceCache() {
+		this(value -> true, value -> 0, value -> {});
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param valid Tests whether a cached value is still valid, e.g. not closed
+	 *          by its user. Invalid values are loaded again.
+	 * @param weigher Estimates the weight of a value.
+	 * @param evicted Releases an evicted value.
+	 */
+	ResourceCache(final Predicate<V> valid, final ToLongFunction<V> weigher,
+		final Consumer<V> evicted)
+	{
+		this(valid, weigher, value -> false, evicted);
+	}
+
+	/**
+	 * Creates a cache with values which are not evicted to stay below the
+	 * maximum weight.
+	 *
+	 * @param pinned Tests whether a value must not be evicted, e.g. because it
+	 *          is used by callers who cannot be told.
+	 * @see #ResourceCache(Predicate, ToLongFunction, Consumer)
+	 */
+	ResourceCache(final Predicate<V> valid, final ToLongFunction<V> weigher,
+		final Predicate<V> pinned, final Consumer<V> evicted)
+	{
+		this.valid = valid;
+		this.weigher = weigher;
+		this.pinned = pinned;
+		this.evicted = evicted;
+	}
+
+	/**
+	 * Gets the value of a key, loading it if it is missing.
+	 *
+	 * @throws IOException if the load failed, or if the calling thread was
+	 *           interrupted while waiting for the load of another thread.
+	 */
+	V get(final K key, final Loader<V> loader) throws IOException {
+		while (true) {
+			final Entry<V> loading = new Entry<>(clock.incrementAndGet());
+			final Entry<V> existing = entries.putIfAbsent(key, loading);
+			if (existing == null) return load(key, loading, loader);
+			final V value = await(existing.future);
+			if (valid.test(value)) {
+				existing.touch(clock.incrementAndGet());
+				return value;
+			}
+			remove(key, existing);
+		}
+	}
+
+	/** Gets whether a key is cached or loading. */
+	boolean contains(final K key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Marks a cached value as used, e.g. when it is used without
+	 * {@link #get(Object, Loader)}.
+	 *
+	 * @return Whether the value is cached.
+	 */
+	boolean touch(final V value) {
+		return find(v -> v == value) != null;
+	}
+
+	/**
+	 * Gets a cached value matching a predicate, e.g. the wrapper of an object,
+	 * and marks it as used.
+	 *
+	 * @return The value, or null if no cached value matches.
+	 */
+	V find(final Predicate<V> matches) {
+		for (final Entry<V> entry : entries.values()) {
+			final V value = entry.value();
+			if (value != null && matches.test(value)) {
+				entry.touch(clock.incrementAndGet());
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets whether a value is cached. Synchronized with eviction, so a value
+	 * which is pinned before this call returns true is not evicted afterwards.
+	 */
+	synchronized boolean containsValue(final V value) {
+		for (final Entry<V> entry : entries.values()) {
+			if (entry.value() == value) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the maximum total weight of the cached values, evicting the least
+	 * recently used values if it is exceeded.
+	 */
+	void setMaxWeight(final long maxWeight) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("Invalid maximum weight: " +
+				maxWeight);
+		}
+		synchronized (this) {
+			this.maxWeight = maxWeight;
+		}
+		evict(null);
+	}
+
+	/** Gets the maximum total weight of the cached values. */
+	synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/** Gets the total weight of the cached values. */
+	synchronized long getWeight() {
+		return weight;
+	}
+
+	/** Gets the number of values evicted to stay below the maximum weight. */
+	synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Evicts the values which were not used for a while.
+	 *
+	 * @param idleNanos The time a value must be idle to be evicted, in
+	 *          nanoseconds.
+	 * @param now The current {@link System#nanoTime()}.
+	 * @param idleSince Gets the time since which a value is idle apart from its
+	 *          accesses through the cache, e.g. the end of its last use,
+	 *          {@link Long#MAX_VALUE} while it is in use, or
+	 *          {@link Long#MIN_VALUE} if it is only used through the cache.
+	 * @return The number of evicted values.
+	 */
+	int evictIdle(final long idleNanos, final long now,
+		final ToLongFunction<V> idleSince)
+	{
+		final List<V> victims = new ArrayList<>();
+		synchronized (this) {
+			for (final Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+				final V value = e.getValue().value();
+				if (value == null) continue;
+				final long since = idleSince.applyAsLong(value);
+				if (since == Long.MAX_VALUE) continue;
+				// NB: Compares differences, as nanoTime may overflow.
+				final long accessed = e.getValue().lastAccessNanos;
+				final long idle = since == Long.MIN_VALUE ? now - accessed : Math.min(
+					now - accessed, now - since);
+				if (idle >= idleNanos && remove(e.getKey(), e.getValue())) {
+					evictions++;
+					victims.add(value);
+				}
+			}
+		}
+		for (final V victim : victims) {
+			evicted.accept(victim);
+		}
+		return victims.size();
+	}
+
+	/**
+	 * Removes all entries, waiting for loads in progress.
+	 *
+	 * @return The removed values.
+	 */
+	List<V> clear() {
+		final List<V> values = new ArrayList<>();
+		for (final K key : new ArrayList<>(entries.keySet())) {
+			final Entry<V> entry = entries.get(key);
+			if (entry == null) continue;
+			try {
+				final V value = entry.future.get();
+				if (remove(key, entry)) values.add(value);
+			}
+			catch (final ExecutionException exc) {
+				// NB: Failed loads have nothing to release.
+			}
+			catch (final InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return values;
+	}
+
+	// -- Helper methods --
+
+	private V load(final K key, final Entry<V> loading, final Loader<V> loader)
+		throws IOException
+	{
+		final V value;
+		try {
+			value = loader.load();
+			final long w = weigher.applyAsLong(value);
+			synchronized (this) {
+				loading.weight = w;
+				weight += w;
+			}
+		}
+		catch (final IOException | RuntimeException | Error exc) {
+			entries.remove(key, loading);
+			loading.future.completeExceptionally(exc);
+			throw exc;
+		}
+		loading.future.complete(value);
+		evict(loading);
+		return value;
+	}
+
+	/** Removes an entry, if it is still cached. */
+	private boolean remove(final K key, final Entry<V> entry) {
+		synchronized (this) {
+			if (!entries.remove(key, entry)) return false;
+			weight -= entry.weight;
+			return true;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used values until the total weight fits.
+	 *
+	 * @param keep The entry which must not be evicted, or null.
+	 */
+	private void evict(final Entry<V> keep) {
+		final List<V> victims = new ArrayList<>();
+		synchronized (this) {
+			while (weight > maxWeight) {
+				Map.Entry<K, Entry<V>> oldest = null;
+				for (final Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+					final Entry<V> entry = e.getValue();
+					final V value = entry.value();
+					if (entry == keep || value == null || pinned.test(value)) continue;
+					if (oldest == null || entry.lastUse < oldest.getValue().lastUse) {
+						oldest = e;
+					}
+				}
+				if (oldest == null) break;
+				if (remove(oldest.getKey(), oldest.getValue())) {
+					evictions++;
+					victims.add(oldest.getValue().value());
+				}
+			}
+		}
+		// NB: Releases the values without blocking other callers.
+		for (final V victim : victims) {
+			evicted.accept(victim);
+		}
+	}
+
+	private static <V> V await(final CompletableFuture<V> future)
+		throws IOException
+	{
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a load");
+		}
+		catch (final ExecutionException exc) {
+			final Throwable cause = exc.getCause();
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	// -- Helper classes --
+
+	private static final class Entry<V> {
+
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private volatile long lastUse;
+		private volatile long lastAccessNanos = System.nanoTime();
+		private long weight;
+
+		private Entry(final long lastUse) {
+			this.lastUse = lastUse;
+		}
+
+		private void touch(final long use) {
+			lastUse = use;
+			lastAccessNanos = System.nanoTime();
+		}
+
+		/** Gets the loaded value, or null while loading or after a failure. */
+		private V value() {
+			return future.isDone() && !future.isCompletedExceptionally() ? future
+				.join() : null;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.tensorflow.Tensor;
+
+/**
+ * A pool of direct, native-order {@link ByteBuffer}s used to stage data
+ * between images and TensorFlow {@link Tensor}s without allocating new memory
+ * for every conversion.
+ * <p>
+ * Buffers are grouped into buckets by their capacity, which is the requested
+ * size rounded up to the next power of two. A buffer is borrowed with
+ * {@link #lease(long)} and returned to the pool by closing the {@link Lease}.
+ * Returned buffers are retained for later leases as long as the total
+ * capacity of all retained buffers stays below {@link #getMaxRetainedBytes()};
+ * otherwise they are left to the garbage collector.
+ * </p>
+ *
+ * @see Tensors#tensor(net.imglib2.RandomAccessibleInterval, int[],
+ *      TensorBufferPool)
+ * @see Tensors#imgFloat(Tensor, Lease)
+ */
+public final class TensorBufferPool {
+
+	/** Default upper bound of the bytes retained by a pool. */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 256L << 20;
+
+	/** Smallest capacity of a pooled buffer. */
+	private static final int MIN_CAPACITY = 1 << 12;
+
+	/** Largest capacity which is still rounded up to a power of two. */
+	private static final int MAX_ROUNDED_CAPACITY = 1 << 30;
+
+	private final long maxRetainedBytes;
+
+	private final Map<Integer, Deque<ByteBuffer>> buckets =
+		new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong bytesRetained = new AtomicLong();
+
+	/**
+	 * Creates a pool retaining up to {@link #DEFAULT_MAX_RETAINED_BYTES}.
+	 */
+	public TensorBufferPool() {
+		this(DEFAULT_MAX_RETAINED_BYTES);
+	}
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param maxRetainedBytes The maximum total capacity of the buffers kept in
+	 *          the pool while they are not leased. Use 0 to disable pooling.
+	 * @throws IllegalArgumentException if maxRetainedBytes is negative.
+	 */
+	public TensorBufferPool(final long maxRetainedBytes) {
+		if (maxRetainedBytes < 0) {
+			throw new IllegalArgumentException(
+				"Maximum retained bytes must not be negative: " + maxRetainedBytes);
+		}
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	/**
+	 * Borrows a buffer from the pool, allocating a new one if no retained
+	 * buffer of the right size is available.
+	 *
+	 * @param numBytes The number of bytes needed.
+	 * @return The lease of a buffer with position 0 and a limit of
+	 *         {@code numBytes}. It must be closed to give the buffer back.
+	 * @throws IllegalArgumentException if numBytes is negative or larger than
+	 *           {@link Integer#MAX_VALUE}.
+	 */
+	public Lease lease(final long numBytes) {
+		if (numBytes < 0 || numBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid buffer size: " + numBytes);
+		}
+		final int capacity = capacity((int) numBytes);
+		ByteBuffer buffer = bucket(capacity).pollFirst();
+		if (buffer == null) {
+			misses.incrementAndGet();
+			buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder
+				.nativeOrder());
+		}
+		else {
+			hits.incrementAndGet();
+			bytesRetained.addAndGet(-capacity);
+			buffer.clear();
+		}
+		buffer.limit((int) numBytes);
+		return new Lease(buffer);
+	}
+
+	/** Gets the number of leases served by a retained buffer. */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** Gets the number of leases which needed a newly allocated buffer. */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/** Gets the total capacity of the buffers currently kept in the pool. */
+	public long getBytesRetained() {
+		return bytesRetained.get();
+	}
+
+	/** Gets the maximum total capacity of the buffers kept in the pool. */
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	/** Drops all retained buffers. Leased buffers are not affected. */
+	public void clear() {
+		for (final Deque<ByteBuffer> bucket : buckets.values()) {
+			ByteBuffer buffer;
+			while ((buffer = bucket.pollFirst()) != null) {
+				bytesRetained.addAndGet(-buffer.capacity());
+			}
+		}
+	}
+
+	private void release(final ByteBuffer buffer) {
+		final int capacity = buffer.capacity();
+		long retained;
+		do {
+			retained = bytesRetained.get();
+			// NB: Buffers which do not fit are left to the garbage collector.
+			if (retained + capacity > maxRetainedBytes) return;
+		}
+		while (!bytesRetained.compareAndSet(retained, retained + capacity));
+		bucket(capacity).offerFirst(buffer);
+	}
+
+	private Deque<ByteBuffer> bucket(final int capacity) {
+		return buckets.computeIfAbsent(capacity,
+			c -> new ConcurrentLinkedDeque<>());
+	}
+
+	private static int capacity(final int numBytes) {
+		if (numBytes <= MIN_CAPACITY) return MIN_CAPACITY;
+		if (numBytes > MAX_ROUNDED_CAPACITY) return numBytes;
+		return Integer.highestOneBit(numBytes - 1) << 1;
+	}
+
+	/**
+	 * A buffer borrowed from a {@link TensorBufferPool}. Closing the lease
+	 * returns the buffer to the pool; it must not be used afterwards, neither
+	 * directly nor through images created from it.
+	 */
+	public final class Lease implements AutoCloseable {
+
+		private final ByteBuffer buffer;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Lease(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Gets the leased buffer. It is direct, in native byte order and its
+		 * limit is the number of bytes requested.
+		 *
+		 * @throws IllegalStateException if the lease was already closed.
+		 */
+		public ByteBuffer buffer() {
+			if (released.get()) {
+				throw new IllegalStateException("Buffer was already released");
+			}
+			return buffer;
+		}
+
+		/** Gets the pool this lease was taken from. */
+		public TensorBufferPool pool() {
+			return TensorBufferPool.this;
+		}
+
+		/** Returns the buffer to the pool. Closing twice has no effect. */
+		@Override
+		public void close() {
+			if (released.compareAndSet(false, true)) release(buffer);
+		}
+	}
+}
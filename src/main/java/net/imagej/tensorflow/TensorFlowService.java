@@ -34,10 +34,13 @@ import net.imagej.ImageJService;
 import org.scijava.io.location.Location;
 import org.tensorflow.Graph;
 import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for working with TensorFlow.
@@ -75,13 +78,151 @@ public interface TensorFlowService extends ImageJService {
 	 * @param tags Optional list of tags passed to
 	 *          {@link SavedModelBundle#load(String, String...)}.
 	 * @return The extracted TensorFlow {@link SavedModelBundle} object
-	 *           wrapped by a {@link CachedModelBundle}.
+	 *           wrapped by a {@link CachedModelBundle}. Hold a
+	 *           {@link CachedModelBundle.Lease} while using it, as the service
+	 *           may close it at any time, e.g. to free memory.
 	 * @throws IOException If something goes wrong reading or unpacking the
 	 *           archive.
+	 * @see #leaseModel(Location, String, String...)
 	 */
 	CachedModelBundle loadCachedModel(Location source, String modelName, String... tags)
 			throws IOException;
 
+	/**
+	 * Leases a model like {@link #loadCachedModel(Location, String, String...)}
+	 * does, in one step, so that the model cannot be closed by the service
+	 * between loading and leasing it. A model which was closed meanwhile is
+	 * loaded again.
+	 *
+	 * @return A lease of the cached model, which the caller closes once it no
+	 *         longer uses the model.
+	 * @throws IOException If something goes wrong reading or unpacking the
+	 *           archive.
+	 */
+	CachedModelBundle.Lease leaseModel(Location source, String modelName,
+		String... tags) throws IOException;
+
+	/**
+	 * Limits the native memory of the models and graphs cached by
+	 * {@link #loadCachedModel(Location, String, String...)} and
+	 * {@link #leaseGraph(Location, String, String)}. The models and the graphs
+	 * are each kept below this estimate, by closing the least recently used
+	 * ones in the background, models together with their
+	 * {@link #batcher batchers}. Closed models and graphs are released once
+	 * their last lease is closed. Models are estimated by the size of their
+	 * files, graphs by the size of their definition. Graphs handed out by
+	 * {@link #loadGraph(Location, String, String)} are never closed to stay in
+	 * the limit. Unlimited by default, or set by the system property
+	 * {@code imagej.tensorflow.models.maxBytes}.
+	 *
+	 * @param bytes The maximum estimated native memory.
+	 */
+	void setMaxCachedBytes(long bytes);
+
+	/** @return The maximum estimated native memory of the cached models. */
+	long getMaxCachedBytes();
+
+	/** @return The estimated native memory of the cached models and graphs. */
+	long getCachedBytes();
+
+	/** @return The number of models and graphs closed to stay in the limit. */
+	long getEvictions();
+
+	/**
+	 * Unloads cached models and graphs which were not used for a while. They
+	 * are loaded again by {@link #loadCachedModel(Location, String, String...)}
+	 * and {@link #loadGraph(Location, String, String)} when they are used
+	 * next. A model or graph is in use while it is leased or requested from
+	 * the service; graphs handed out by
+	 * {@link #loadGraph(Location, String, String)} are never unloaded.
+	 * Disabled by default, or set in seconds by the system property
+	 * {@code imagej.tensorflow.models.maxIdleSeconds}.
+	 *
+	 * @param time The time after which idle models are unloaded, or 0 to keep
+	 *          them.
+	 * @param unit The unit of the time.
+	 * @throws IllegalStateException if a time is set after the service is
+	 *           disposed.
+	 */
+	void setMaxIdleTime(long time, TimeUnit unit);
+
+	/**
+	 * @return The time after which idle models are unloaded, or 0 if they are
+	 *         kept.
+	 */
+	long getMaxIdleTime(TimeUnit unit);
+
+	/**
+	 * Unloads the cached models and graphs which are not in use, as defined by
+	 * {@link #setMaxIdleTime(long, TimeUnit)}, whenever the heap is almost
+	 * full after a garbage collection. Disabled by default, or enabled by the
+	 * system property {@code imagej.tensorflow.models.unloadOnMemoryPressure}.
+	 *
+	 * @param unload Whether to unload idle models on memory pressure.
+	 */
+	void setUnloadOnMemoryPressure(boolean unload);
+
+	/** @return Whether idle models are unloaded on memory pressure. */
+	boolean isUnloadOnMemoryPressure();
+
+	/**
+	 * Gets a batcher coalescing concurrent predictions with one input and
+	 * output of a model into batches. Callers asking for the same model,
+	 * operations and dimension order share one batcher, which is closed when
+	 * the model is evicted or the service is disposed.
+	 *
+	 * @param model The model, which takes a batch dimension first.
+	 * @param input The name of the input operation.
+	 * @param output The name of the output operation.
+	 * @param dimOrder The mapping of the dimensions of each image to the
+	 *          dimensions of its slice of the batch.
+	 * @return The shared {@link InferenceBatcher}, which leases the model
+	 *         while a batch runs, so that idle models can be unloaded.
+	 * @throws IllegalStateException if the model is closed.
+	 */
+	InferenceBatcher batcher(CachedModelBundle model, String input,
+		String output, int[] dimOrder);
+
+	/**
+	 * Loads a model like {@link #loadCachedModel(Location, String, String...)}
+	 * in the background, e.g. to hide the download and load time of a model
+	 * which is used later. Preloaded models are loaded one at a time.
+	 *
+	 * @return The future of the model, which completes exceptionally if the
+	 *         model cannot be loaded.
+	 * @throws IllegalStateException if the service is disposed.
+	 */
+	Future<CachedModelBundle> preloadModel(Location source, String modelName,
+		String... tags);
+
+	/**
+	 * Loads a model like {@link #loadCachedModel(Location, String, String...)}
+	 * in the background, and warms it up with one inference, so that the first
+	 * real prediction does not wait for TensorFlow to allocate its memory.
+	 * <p>
+	 * Models can also be preloaded when the service starts, by listing them in
+	 * the file {@code warmup.properties} of the model cache directory, or in
+	 * the file set by the system property
+	 * {@code imagej.tensorflow.models.warmup}:
+	 * </p>
+	 *
+	 * <pre>
+	 * unet.source = https://example.org/unet.zip
+	 * unet.tags = serve
+	 * unet.input = input
+	 * unet.output = output
+	 * unet.shape = 1,256,256,1
+	 * </pre>
+	 *
+	 * @param warmUp The warm-up of the loaded model.
+	 * @return The future of the warmed-up model, which completes exceptionally
+	 *         if the model cannot be loaded or warmed up.
+	 * @throws IllegalStateException if the service is disposed.
+	 * @see ModelWarmUp#fromProperties(java.util.Properties, String)
+	 */
+	Future<CachedModelBundle> preloadModel(Location source, String modelName,
+		ModelWarmUp warmUp, String... tags);
+
 	/**
 	 * Extracts a graph from the given location.
 	 * 
@@ -91,13 +232,71 @@ public interface TensorFlowService extends ImageJService {
 	 *          unpacked and cached as needed.
 	 * @param graphPath The name of the .pb file inside the ZIP archive containing
 	 *          the graph.
-	 * @return The extracted TensorFlow {@link Graph} object.
+	 * @return The extracted TensorFlow {@link Graph} object. It is kept until
+	 *         the service is disposed, as the service cannot know when the
+	 *         caller no longer uses it.
 	 * @throws IOException If something goes wrong reading or unpacking the
 	 *           archive.
+	 * @see #leaseGraph(Location, String, String)
 	 */
 	Graph loadGraph(Location source, String modelName, String graphPath)
 		throws IOException;
 
+	/**
+	 * Leases a graph from the given location. Unlike the graphs handed out by
+	 * {@link #loadGraph(Location, String, String)}, a leased graph can be
+	 * closed by the service to free memory once its leases are closed, and is
+	 * loaded again when it is leased next.
+	 *
+	 * @param source The location of the graph, which must be structured as a
+	 *          ZIP archive.
+	 * @param modelName The name of the model by which the source should be
+	 *          unpacked and cached as needed.
+	 * @param graphPath The name of the .pb file inside the ZIP archive
+	 *          containing the graph.
+	 * @return A lease of the cached graph, which the caller closes once it no
+	 *         longer uses the graph or its sessions.
+	 * @throws IOException If something goes wrong reading or unpacking the
+	 *           archive.
+	 */
+	CachedGraph.Lease leaseGraph(Location source, String modelName,
+		String graphPath) throws IOException;
+
+	/**
+	 * Gets the shared session of a graph loaded by
+	 * {@link #loadGraph(Location, String, String)} or
+	 * {@link #leaseGraph(Location, String, String)}. The session is created on
+	 * first use and closed with its graph, so callers must not close it. It
+	 * can be used by several threads at once, each with its own
+	 * {@link Session#runner()}.
+	 * <p>
+	 * The session can be closed under the caller when its graph is evicted to
+	 * stay below {@link #setMaxCachedBytes(long)} or expires after
+	 * {@link #setMaxIdleTime(long, TimeUnit)}: a leased graph is closed once
+	 * its last lease is closed, so callers keep a lease while they run the
+	 * session. Graphs loaded by {@link #loadGraph(Location, String, String)}
+	 * and their sessions are only closed when the service is disposed.
+	 * </p>
+	 *
+	 * @param graph The graph, which must have been loaded by this service.
+	 * @return The session running the graph.
+	 * @throws IllegalArgumentException if the graph was not loaded by this
+	 *           service, or was evicted.
+	 */
+	Session session(Graph graph);
+
+	/**
+	 * Gets the shared session of a graph loaded by
+	 * {@link #loadGraph(Location, String, String)}, with a configuration.
+	 * Each distinct configuration has its own session.
+	 *
+	 * @param graph The graph, which must have been loaded by this service.
+	 * @param config The serialized {@code ConfigProto} of the session, or null
+	 *          for the default configuration.
+	 * @see #session(Graph)
+	 */
+	Session session(Graph graph, byte[] config);
+
 	/**
 	 * Extracts labels from the given location.
 	 * 
@@ -30,12 +30,27 @@
 
 package net.imagej.tensorflow;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import org.tensorflow.DataType;
@@ -45,24 +60,42 @@ import org.tensorflow.types.UInt8;
 import net.imglib2.Cursor;
 import net.imglib2.Dimensions;
 import net.imglib2.FinalDimensions;
-import net.imglib2.IterableInterval;
-import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgView;
 import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.DataAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.img.basictypeaccess.array.ByteArray;
 import net.imglib2.img.basictypeaccess.array.DoubleArray;
 import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.ByteType;
 import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
 import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 import net.imglib2.view.Views;
@@ -78,37 +111,162 @@ import net.imglib2.view.Views;
  */
 public final class Tensors {
 
+	/**
+	 * Minimum number of pixels copied by one parallel task. Smaller images are
+	 * copied on the calling thread.
+	 */
+	private static final long MIN_PARALLEL_COPY = 1 << 16;
+
+	/**
+	 * Maximum size of one memory-mapped region of a raw Tensor file. Mappings
+	 * are limited to 2 GB.
+	 */
+	private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+	/**
+	 * Pool of the buffers used to stage batches and Tensor data which is written
+	 * into existing images.
+	 */
+	private static volatile TensorBufferPool stagingPool =
+		new TensorBufferPool();
+
 	private Tensors() {
 		// NB: Prevent instantiation of utility class.
 	}
 
+	// --------- PARALLELISM ---------
+
+	/**
+	 * Gets the number of threads used to copy image data which is not backed by
+	 * a single primitive array.
+	 *
+	 * @return The parallelism level. A value of 1 means that all copies run on
+	 *         the calling thread.
+	 * @see #setParallelism(int)
+	 */
+	public static int getParallelism() {
+		return ParallelChunks.getParallelism();
+	}
+
+	/**
+	 * Sets the number of threads used to copy image data which is not backed by
+	 * a single primitive array (e.g. views, or images with another storage).
+	 * Such images are split into contiguous slabs along their slowest
+	 * dimensions, which are filled concurrently on a fork-join pool. The default
+	 * is the number of available processors.
+	 *
+	 * @param parallelism The parallelism level. Use 1 to copy on the calling
+	 *          thread only.
+	 * @throws IllegalArgumentException if parallelism is smaller than 1.
+	 */
+	public static void setParallelism(final int parallelism) {
+		ParallelChunks.setParallelism(parallelism);
+	}
+
+	// --------- STAGING ---------
+
+	/**
+	 * Gets the pool of the buffers used to stage batches, and Tensor data which
+	 * is written into existing images, by the methods which take no
+	 * {@link TensorBufferPool}. Its statistics tell how often buffers are
+	 * reused, and {@link TensorBufferPool#clear()} frees the retained buffers.
+	 *
+	 * @return The staging pool. By default, it retains up to
+	 *         {@link TensorBufferPool#DEFAULT_MAX_RETAINED_BYTES} of direct
+	 *         memory.
+	 * @see #setStagingPool(TensorBufferPool)
+	 */
+	public static TensorBufferPool getStagingPool() {
+		return stagingPool;
+	}
+
+	/**
+	 * Replaces the pool of the staging buffers, e.g. by a
+	 * {@code new TensorBufferPool(0)} to free staging buffers after each use.
+	 * The buffers retained by the previous pool are dropped.
+	 *
+	 * @param pool The new staging pool.
+	 * @throws NullPointerException if the pool is null.
+	 */
+	public static void setStagingPool(final TensorBufferPool pool) {
+		if (pool == null) throw new NullPointerException("No staging pool");
+		final TensorBufferPool previous;
+		synchronized (Tensors.class) {
+			previous = stagingPool;
+			stagingPool = pool;
+		}
+		if (previous != pool) previous.clear();
+	}
+
 	// --------- TENSOR to RAI ---------
 
-	// NB: The following "agnostic" API is somehow bad due to recursive generics.
-	// The Img<?> sucks because we don't know it's RealType.
-	// But "? extends RealType<?>" is also a problem because ?s don't match.
-	// And putting a T param here breaks things downstream: calling code
-	// has not T context and so you can assign things to improper types.
-//	public static Img<?> img(final Tensor image) {
-//		switch (image.dataType()) {
-//			case BOOL:
-//				return imgBool(image);
-//			case DOUBLE:
-//				return imgDouble(image);
-//			case FLOAT:
-//				return imgFloat(image);
-//			case INT32:
-//				return imgInt(image);
-//			case INT64:
-//				return imgLong(image);
-//			case STRING:
-//				return imgString(image);
-//			case UINT8:
-//				return imgByte(image);
-//			default:
-//				throw new UnsupportedOperationException();
-//		}
-//	}
+	// NB: The following "agnostic" API returns Img<?> because of recursive
+	// generics: "? extends RealType<?>" does not help since the ?s don't match,
+	// and a T param would let calling code without T context assign the result
+	// to improper types.
+
+	/**
+	 * Creates an image containing the data of a TensorFlow Tensor, with the
+	 * type matching its data type: {@link ByteType} for {@link DataType#UINT8},
+	 * {@link DoubleType}, {@link FloatType}, {@link IntType} or
+	 * {@link LongType}.
+	 * <p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting image will have dimensions corresponding to the reversed
+	 * shape of the Tensor. See {@link #img(Tensor, int[])} for details.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if the data type of the Tensor is not
+	 *           supported.
+	 */
+	public static Img<?> img(final Tensor<?> image) {
+		return img(image, reversedOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates an image containing the data of a TensorFlow Tensor, with the
+	 * type matching its data type: {@link ByteType} for {@link DataType#UINT8},
+	 * {@link DoubleType}, {@link FloatType}, {@link IntType} or
+	 * {@link LongType}.
+	 * <p>
+	 * Unlike {@link #imgFloat(Tensor, int[])} and its siblings, the result is
+	 * not a view: The Tensor data is copied into an {@link ArrayImg} whose
+	 * dimensions are ordered as requested, transposing them in bulk where
+	 * needed. The conversion plan, i.e. the strides and the copy kernel, is
+	 * cached by data type, shape and dimension order, so converting a stream
+	 * of equally shaped Tensors only plans once.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if the data type of the Tensor is not
+	 *           supported.
+	 */
+	public static Img<?> img(final Tensor<?> image, final int[] dimOrder) {
+		return ImgPlan.get(image.dataType(), image.shape(), dimOrder).convert(
+			image);
+	}
+
+	/**
+	 * Creates an image containing the data of a TensorFlow Tensor, with the
+	 * type matching its data type.
+	 * <p>
+	 * Note that this _does_ adjust the dimensions. This means that
+	 * the resulting image will have dimensions directly corresponding to the
+	 * shape of the Tensor. See {@link #img(Tensor, int[])} for details.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if the data type of the Tensor is not
+	 *           supported.
+	 */
+	public static Img<?> imgDirect(final Tensor<?> image) {
+		return img(image, identityOrder(image.numDimensions()));
+	}
 
 	/**
 	 * Creates an image of type {@link ByteType} containing the data of a
@@ -172,6 +330,46 @@ public final class Tensors {
 		return ArrayImgs.floats(out, shape(image));
 	}
 
+	/**
+	 * Creates an image of type {@link HalfFloatType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#FLOAT}, rounded to
+	 * float16. The image needs half the memory of {@link #imgFloat(Tensor)}.
+	 * <p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting image will have dimensions corresponding to the reversed
+	 * shape of the Tensor. See {@link #imgHalfFloatDirect(Tensor)} and
+	 * {@link #imgHalfFloat(Tensor, int[])} if you want to handle dimensions
+	 * differently.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not float.
+	 */
+	public static Img<HalfFloatType> imgHalfFloat(final Tensor<Float> image) {
+		final ArrayImg<HalfFloatType, ?> img = new ArrayImgFactory<>(
+			new HalfFloatType()).create(shape(image));
+		final short[] out = ((ShortArray) img.update(null))
+			.getCurrentStorageArray();
+		try (final TensorBufferPool.Lease lease = stagingPool.lease(image
+			.numBytes()))
+		{
+			final FloatBuffer buffer = readTo(image, DataType.FLOAT, lease)
+				.asFloatBuffer();
+			// NB: The Tensor data is encoded in parallel chunks of whole rows.
+			ParallelChunks.forEach(out.length, CopyPlan.MAX_ROW, (from, to) -> {
+				final FloatBuffer in = buffer.duplicate();
+				final float[] row = new float[CopyPlan.MAX_ROW];
+				for (long s = from; s < to; s += row.length) {
+					final int n = (int) Math.min(row.length, to - s);
+					in.position((int) s);
+					in.get(row, 0, n);
+					HalfFloats.encodeHalf(row, 0, out, (int) s, n);
+				}
+			});
+		}
+		return img;
+	}
+
 	/**
 	 * Creates an image of type {@link IntType} containing the data of a
 	 * TensorFlow Tensor with the data type {@link DataType#INT32}.
@@ -262,6 +460,25 @@ public final class Tensors {
 		return reverseReorder(reverse(imgFloat(image)), dimOrder);
 	}
 
+	/**
+	 * Creates an image of type {@link HalfFloatType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#FLOAT}, rounded to
+	 * float16.
+	 * 
+	 * @param image The TensorFlow Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not float.
+	 */
+	public static Img<HalfFloatType> imgHalfFloat(final Tensor<Float> image,
+		final int[] dimOrder)
+	{
+		return reverseReorder(reverse(imgHalfFloat(image)), dimOrder);
+	}
+
 	/**
 	 * Creates an image of type {@link IntType} containing the data of a
 	 * TensorFlow Tensor with the data type {@link DataType#INT32}.
@@ -350,6 +567,27 @@ public final class Tensors {
 		return reverse(imgFloat(image));
 	}
 
+	/**
+	 * Creates an image of type {@link HalfFloatType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#FLOAT}, rounded to
+	 * float16.
+	 * <p>
+	 * Note that this _does_ adjust the dimensions. This means that
+	 * the resulting image will have dimensions directly corresponding to the
+	 * shape of the Tensor. See {@link #imgHalfFloat(Tensor)} and
+	 * {@link #imgHalfFloat(Tensor, int[])} if you want to handle dimensions
+	 * differently.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not float.
+	 */
+	public static Img<HalfFloatType> imgHalfFloatDirect(
+		final Tensor<Float> image)
+	{
+		return reverse(imgHalfFloat(image));
+	}
+
 	/**
 	 * Creates an image of type {@link IntType} containing the data of a
 	 * TensorFlow Tensor with the data type {@link DataType#INT32}.
@@ -386,6 +624,351 @@ public final class Tensors {
 		return reverse(imgLong(image));
 	}
 
+	/**
+	 * Creates an image of type {@link ByteType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#UINT8}, stored in a
+	 * buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #imgByte(Tensor)}, the image has the reversed shape of the
+	 * Tensor. No memory is allocated for the pixels, but the image is only valid
+	 * until the lease is closed.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param lease The lease of a buffer with at least
+	 *          {@link Tensor#numBytes()} bytes.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not uint8 or the
+	 *           buffer is too small.
+	 */
+	public static Img<ByteType> imgByte(final Tensor<UInt8> image,
+		final TensorBufferPool.Lease lease)
+	{
+		final ByteBuffer buffer = readTo(image, DataType.UINT8, lease);
+		return ArrayImgs.bytes(new ByteBufferAccess(buffer, true), shape(image));
+	}
+
+	/**
+	 * Creates an image of type {@link DoubleType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#DOUBLE}, stored in a
+	 * buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #imgDouble(Tensor)}, the image has the reversed shape of the
+	 * Tensor. No memory is allocated for the pixels, but the image is only valid
+	 * until the lease is closed.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param lease The lease of a buffer with at least
+	 *          {@link Tensor#numBytes()} bytes.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not double or the
+	 *           buffer is too small.
+	 */
+	public static Img<DoubleType> imgDouble(final Tensor<Double> image,
+		final TensorBufferPool.Lease lease)
+	{
+		final ByteBuffer buffer = readTo(image, DataType.DOUBLE, lease);
+		return ArrayImgs.doubles(new DoubleBufferAccess(buffer, true), shape(image));
+	}
+
+	/**
+	 * Creates an image of type {@link FloatType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#FLOAT}, stored in a
+	 * buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #imgFloat(Tensor)}, the image has the reversed shape of the
+	 * Tensor. No memory is allocated for the pixels, but the image is only valid
+	 * until the lease is closed.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param lease The lease of a buffer with at least
+	 *          {@link Tensor#numBytes()} bytes.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not float or the
+	 *           buffer is too small.
+	 */
+	public static Img<FloatType> imgFloat(final Tensor<Float> image,
+		final TensorBufferPool.Lease lease)
+	{
+		final ByteBuffer buffer = readTo(image, DataType.FLOAT, lease);
+		return ArrayImgs.floats(new FloatBufferAccess(buffer, true), shape(image));
+	}
+
+	/**
+	 * Creates an image of type {@link IntType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#INT32}, stored in a
+	 * buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #imgInt(Tensor)}, the image has the reversed shape of the
+	 * Tensor. No memory is allocated for the pixels, but the image is only valid
+	 * until the lease is closed.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param lease The lease of a buffer with at least
+	 *          {@link Tensor#numBytes()} bytes.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not int or the
+	 *           buffer is too small.
+	 */
+	public static Img<IntType> imgInt(final Tensor<Integer> image,
+		final TensorBufferPool.Lease lease)
+	{
+		final ByteBuffer buffer = readTo(image, DataType.INT32, lease);
+		return ArrayImgs.ints(new IntBufferAccess(buffer, true), shape(image));
+	}
+
+	/**
+	 * Creates an image of type {@link LongType} containing the data of a
+	 * TensorFlow Tensor with the data type {@link DataType#INT64}, stored in a
+	 * buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #imgLong(Tensor)}, the image has the reversed shape of the
+	 * Tensor. No memory is allocated for the pixels, but the image is only valid
+	 * until the lease is closed.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param lease The lease of a buffer with at least
+	 *          {@link Tensor#numBytes()} bytes.
+	 * @return An image containing the data of the Tensor.
+	 * @throws IllegalArgumentException if Tensor data type is not long or the
+	 *           buffer is too small.
+	 */
+	public static Img<LongType> imgLong(final Tensor<Long> image,
+		final TensorBufferPool.Lease lease)
+	{
+		final ByteBuffer buffer = readTo(image, DataType.INT64, lease);
+		return ArrayImgs.longs(new LongBufferAccess(buffer, true), shape(image));
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#UINT8} into an existing image of type {@link ByteType}.
+	 * <p>
+	 * Like for {@link #imgByte(Tensor)}, the image must have the reversed shape
+	 * of the Tensor. Reusing one output image avoids allocating a new image for
+	 * every Tensor, e.g. when processing an image tile by tile.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not uint8 or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<ByteType>> I imgByte(
+		final Tensor<UInt8> image, final I out)
+	{
+		write(image, DataType.UINT8, out, reversedOrder(out.numDimensions()));
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#UINT8} into an existing image of type {@link ByteType}.
+	 * <p>
+	 * If the image is an {@code ArrayImg} laid out like the Tensor, the data is
+	 * written into its array in one bulk copy. Otherwise it is gathered into the
+	 * primitive arrays of the image, or copied pixel by pixel for other images.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not uint8 or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<ByteType>> I imgByte(
+		final Tensor<UInt8> image, final I out, final int[] dimOrder)
+	{
+		write(image, DataType.UINT8, out, dimOrder);
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#DOUBLE} into an existing image of type {@link DoubleType}.
+	 * <p>
+	 * Like for {@link #imgDouble(Tensor)}, the image must have the reversed shape
+	 * of the Tensor. Reusing one output image avoids allocating a new image for
+	 * every Tensor, e.g. when processing an image tile by tile.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not double or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<DoubleType>> I imgDouble(
+		final Tensor<Double> image, final I out)
+	{
+		write(image, DataType.DOUBLE, out, reversedOrder(out.numDimensions()));
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#DOUBLE} into an existing image of type {@link DoubleType}.
+	 * <p>
+	 * If the image is an {@code ArrayImg} laid out like the Tensor, the data is
+	 * written into its array in one bulk copy. Otherwise it is gathered into the
+	 * primitive arrays of the image, or copied pixel by pixel for other images.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not double or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<DoubleType>> I imgDouble(
+		final Tensor<Double> image, final I out, final int[] dimOrder)
+	{
+		write(image, DataType.DOUBLE, out, dimOrder);
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#FLOAT} into an existing image of type {@link FloatType}.
+	 * <p>
+	 * Like for {@link #imgFloat(Tensor)}, the image must have the reversed shape
+	 * of the Tensor. Reusing one output image avoids allocating a new image for
+	 * every Tensor, e.g. when processing an image tile by tile.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not float or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<FloatType>> I imgFloat(
+		final Tensor<Float> image, final I out)
+	{
+		write(image, DataType.FLOAT, out, reversedOrder(out.numDimensions()));
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#FLOAT} into an existing image of type {@link FloatType}.
+	 * <p>
+	 * If the image is an {@code ArrayImg} laid out like the Tensor, the data is
+	 * written into its array in one bulk copy. Otherwise it is gathered into the
+	 * primitive arrays of the image, or copied pixel by pixel for other images.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not float or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<FloatType>> I imgFloat(
+		final Tensor<Float> image, final I out, final int[] dimOrder)
+	{
+		write(image, DataType.FLOAT, out, dimOrder);
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#INT32} into an existing image of type {@link IntType}.
+	 * <p>
+	 * Like for {@link #imgInt(Tensor)}, the image must have the reversed shape
+	 * of the Tensor. Reusing one output image avoids allocating a new image for
+	 * every Tensor, e.g. when processing an image tile by tile.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not int or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<IntType>> I imgInt(
+		final Tensor<Integer> image, final I out)
+	{
+		write(image, DataType.INT32, out, reversedOrder(out.numDimensions()));
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#INT32} into an existing image of type {@link IntType}.
+	 * <p>
+	 * If the image is an {@code ArrayImg} laid out like the Tensor, the data is
+	 * written into its array in one bulk copy. Otherwise it is gathered into the
+	 * primitive arrays of the image, or copied pixel by pixel for other images.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not int or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<IntType>> I imgInt(
+		final Tensor<Integer> image, final I out, final int[] dimOrder)
+	{
+		write(image, DataType.INT32, out, dimOrder);
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#INT64} into an existing image of type {@link LongType}.
+	 * <p>
+	 * Like for {@link #imgLong(Tensor)}, the image must have the reversed shape
+	 * of the Tensor. Reusing one output image avoids allocating a new image for
+	 * every Tensor, e.g. when processing an image tile by tile.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not long or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<LongType>> I imgLong(
+		final Tensor<Long> image, final I out)
+	{
+		write(image, DataType.INT64, out, reversedOrder(out.numDimensions()));
+		return out;
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor with the data type
+	 * {@link DataType#INT64} into an existing image of type {@link LongType}.
+	 * <p>
+	 * If the image is an {@code ArrayImg} laid out like the Tensor, the data is
+	 * written into its array in one bulk copy. Otherwise it is gathered into the
+	 * primitive arrays of the image, or copied pixel by pixel for other images.
+	 * </p>
+	 * @param image The TensorFlow Tensor.
+	 * @param out The image to write the data of the Tensor into.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return The given image.
+	 * @throws IllegalArgumentException if Tensor data type is not long or the
+	 *           size of the image does not match the Tensor.
+	 */
+	public static <I extends RandomAccessibleInterval<LongType>> I imgLong(
+		final Tensor<Long> image, final I out, final int[] dimOrder)
+	{
+		write(image, DataType.INT64, out, dimOrder);
+		return out;
+	}
+
 	// --------- RAI to TENSOR ---------
 
 	/**
@@ -406,7 +989,10 @@ public final class Tensors {
 	 * @return A Tensor containing the data of the image.
 	 * @throws IllegalArgumentException if the type of the image is not supported.
 	 *          Supported types are {@link ByteType}, {@link DoubleType},
-	 *          {@link FloatType}, {@link IntType} and {@link LongType}.
+	 *          {@link FloatType}, {@link IntType}, {@link LongType},
+	 *          {@link UnsignedByteType}, {@link ShortType},
+	 *          {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *          {@link HalfFloatType}.
 	 */
 	public static <T extends RealType<T>> Tensor<?> tensor(
 		final RandomAccessibleInterval<T> image)
@@ -449,17 +1035,46 @@ public final class Tensors {
 				(RandomAccessibleInterval<LongType>) image;
 			return tensorLong(typedImage);
 		}
-		throw new IllegalArgumentException("Unsupported image type: " + //
-			type.getClass().getName());
-	}
-
-	// "higher level" routines that give ways of adjusting dimension order
-
-	/**
+		if (type instanceof UnsignedByteType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedByteType> typedImage =
+				(RandomAccessibleInterval<UnsignedByteType>) image;
+			return tensorUnsignedByte(typedImage);
+		}
+		if (type instanceof ShortType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<ShortType> typedImage =
+				(RandomAccessibleInterval<ShortType>) image;
+			return tensorShort(typedImage);
+		}
+		if (type instanceof UnsignedShortType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedShortType> typedImage =
+				(RandomAccessibleInterval<UnsignedShortType>) image;
+			return tensorUnsignedShort(typedImage);
+		}
+		if (type instanceof UnsignedIntType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedIntType> typedImage =
+				(RandomAccessibleInterval<UnsignedIntType>) image;
+			return tensorUnsignedInt(typedImage);
+		}
+		if (type instanceof HalfFloatType) {
+			return tensorAsFloat(image);
+		}
+		throw new IllegalArgumentException("Unsupported image type: " + //
+			type.getClass().getName());
+	}
+
+	// "higher level" routines that give ways of adjusting dimension order
+
+	/**
 	 * Creates a TensorFlow Tensor containing data from the given image.
 	 * <p>
 	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
 	 * @param dimOrder Defines the mapping of the dimensions between the image
@@ -469,14 +1084,74 @@ public final class Tensors {
 	 * @return A Tensor containing the data of the image.
 	 * @throws IllegalArgumentException if the type of the image is not supported.
 	 *          Supported types are {@link ByteType}, {@link DoubleType},
-	 *          {@link FloatType}, {@link IntType} and {@link LongType}.
+	 *          {@link FloatType}, {@link IntType}, {@link LongType},
+	 *          {@link UnsignedByteType}, {@link ShortType},
+	 *          {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *          {@link HalfFloatType}.
 	 */
 	public static <T extends RealType<T>> Tensor<?> tensor(
 		final RandomAccessibleInterval<T> image, int[] dimOrder)
 	{
-		// TODO Are 2 calls bad? More views are created but they should be smart
-		// about this
-		return tensor(reverse(reorder(image, dimOrder)));
+		final T type = Util.getTypeFromInterval(image);
+		if (type instanceof ByteType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<ByteType> typedImage =
+				(RandomAccessibleInterval<ByteType>) image;
+			return tensorByte(typedImage, dimOrder);
+		}
+		if (type instanceof DoubleType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<DoubleType> typedImage =
+				(RandomAccessibleInterval<DoubleType>) image;
+			return tensorDouble(typedImage, dimOrder);
+		}
+		if (type instanceof FloatType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<FloatType> typedImage =
+				(RandomAccessibleInterval<FloatType>) image;
+			return tensorFloat(typedImage, dimOrder);
+		}
+		if (type instanceof IntType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<IntType> typedImage =
+				(RandomAccessibleInterval<IntType>) image;
+			return tensorInt(typedImage, dimOrder);
+		}
+		if (type instanceof LongType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<LongType> typedImage =
+				(RandomAccessibleInterval<LongType>) image;
+			return tensorLong(typedImage, dimOrder);
+		}
+		if (type instanceof UnsignedByteType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedByteType> typedImage =
+				(RandomAccessibleInterval<UnsignedByteType>) image;
+			return tensorUnsignedByte(typedImage, dimOrder);
+		}
+		if (type instanceof ShortType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<ShortType> typedImage =
+				(RandomAccessibleInterval<ShortType>) image;
+			return tensorShort(typedImage, dimOrder);
+		}
+		if (type instanceof UnsignedShortType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedShortType> typedImage =
+				(RandomAccessibleInterval<UnsignedShortType>) image;
+			return tensorUnsignedShort(typedImage, dimOrder);
+		}
+		if (type instanceof UnsignedIntType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<UnsignedIntType> typedImage =
+				(RandomAccessibleInterval<UnsignedIntType>) image;
+			return tensorUnsignedInt(typedImage, dimOrder);
+		}
+		if (type instanceof HalfFloatType) {
+			return tensorAsFloat(image, dimOrder);
+		}
+		throw new IllegalArgumentException("Unsupported image type: " + //
+			type.getClass().getName());
 	}
 
 	/**
@@ -496,12 +1171,211 @@ public final class Tensors {
 	 * @return A Tensor containing the data of the image.
 	 * @throws IllegalArgumentException if the type of the image is not supported.
 	 *          Supported types are {@link ByteType}, {@link DoubleType},
-	 *          {@link FloatType}, {@link IntType} and {@link LongType}.
+	 *          {@link FloatType}, {@link IntType}, {@link LongType},
+	 *          {@link UnsignedByteType}, {@link ShortType},
+	 *          {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *          {@link HalfFloatType}.
 	 */
 	public static <T extends RealType<T>> Tensor<?> tensorDirect(
 		final RandomAccessibleInterval<T> image)
 	{
-		return tensor(reverse(image));
+		return tensor(image, identityOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given image, staging
+	 * the data in a buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Like {@link #tensor(RandomAccessibleInterval)}, the Tensor has the reversed
+	 * shape of the image. See {@link #tensor(RandomAccessibleInterval, int[],
+	 * TensorBufferPool)} for details.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param pool The pool to lease the staging buffer from.
+	 * @return A Tensor containing the data of the image.
+	 * @throws IllegalArgumentException if the type of the image is not supported.
+	 *          Supported types are {@link ByteType}, {@link DoubleType},
+	 *          {@link FloatType}, {@link IntType}, {@link LongType},
+	 *          {@link UnsignedByteType}, {@link ShortType},
+	 *          {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *          {@link HalfFloatType}.
+	 */
+	public static <T extends RealType<T>> Tensor<?> tensor(
+		final RandomAccessibleInterval<T> image, final TensorBufferPool pool)
+	{
+		return tensor(image, reversedOrder(image.numDimensions()), pool);
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given image, staging
+	 * the data in a buffer leased from a {@link TensorBufferPool}.
+	 * <p>
+	 * Images which have to be copied or transposed to match the layout of the
+	 * Tensor are written into a pooled direct buffer instead of a newly
+	 * allocated array. The buffer is returned to the pool once the Tensor was
+	 * created. Images whose backing primitive array can be used as is do not
+	 * need a staging buffer.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @param pool The pool to lease the staging buffer from.
+	 * @return A Tensor containing the data of the image.
+	 * @throws IllegalArgumentException if the type of the image is not supported.
+	 *          Supported types are {@link ByteType}, {@link DoubleType},
+	 *          {@link FloatType}, {@link IntType}, {@link LongType},
+	 *          {@link UnsignedByteType}, {@link ShortType},
+	 *          {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *          {@link HalfFloatType}.
+	 */
+	public static <T extends RealType<T>> Tensor<?> tensor(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final TensorBufferPool pool)
+	{
+		final T type = Util.getTypeFromInterval(image);
+		final Class<?> tensorArrayType = tensorArrayType(type);
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		final Class<?> arrayType = arrayType(type);
+		final List<PrimitiveBlocks.Block> blocks = arrayType == null ? null
+			: PrimitiveBlocks.of(image, arrayType);
+		if (blocks != null && blocks.size() == 1 && CopyPlan.get(dims, dimOrder)
+			.isIdentity() && arrayType == tensorArrayType)
+		{
+			// NB: The backing array is passed to TensorFlow without staging.
+			return tensor(image, dimOrder);
+		}
+		return stagedTensor(image, dimOrder, tensorArrayType, pool);
+	}
+
+	// --------- BATCHES ---------
+
+	/**
+	 * Creates a TensorFlow Tensor containing a batch of images.
+	 * <p>
+	 * The Tensor has the shape {@code [N, ...]}, where {@code N} is the number
+	 * of images and the remaining dimensions are the shape of the Tensor
+	 * {@link #tensor(RandomAccessibleInterval, int[])} would create for each
+	 * image. Each image is written directly into its slice of the batch, and
+	 * the slices are filled in parallel.
+	 * </p>
+	 * @param images The images, which must all have the same type and size.
+	 * @param dimOrder Defines the mapping of the dimensions between each image
+	 *          and its slice of the Tensor where the index corresponds to the
+	 *          dimension in the image and the value corresponds to the
+	 *          dimension in the slice.
+	 * @return A Tensor containing the data of all images.
+	 * @throws IllegalArgumentException if there are no images, the images
+	 *           differ in type or size or their type is not supported.
+	 *           Supported types are {@link ByteType}, {@link DoubleType},
+	 *           {@link FloatType}, {@link IntType}, {@link LongType},
+	 *           {@link UnsignedByteType}, {@link ShortType},
+	 *           {@link UnsignedShortType}, {@link UnsignedIntType} and
+	 *           {@link HalfFloatType}.
+	 */
+	public static <T extends RealType<T>> Tensor<?> stack(
+		final List<? extends RandomAccessibleInterval<T>> images,
+		final int[] dimOrder)
+	{
+		if (images.isEmpty()) {
+			throw new IllegalArgumentException("Cannot stack an empty list of images");
+		}
+		final RandomAccessibleInterval<T> first = images.get(0);
+		final T type = Util.getTypeFromInterval(first);
+		final long[] dims = Intervals.dimensionsAsLongArray(first);
+		for (final RandomAccessibleInterval<T> image : images) {
+			if (!Arrays.equals(dims, Intervals.dimensionsAsLongArray(image))) {
+				throw new IllegalArgumentException("Image of size " + Arrays.toString(
+					Intervals.dimensionsAsLongArray(image)) +
+					" does not match the size of the first image " + Arrays.toString(
+						dims));
+			}
+			if (Util.getTypeFromInterval(image).getClass() != type.getClass()) {
+				throw new IllegalArgumentException("Image of type " + Util
+					.getTypeFromInterval(image).getClass().getName() +
+					" does not match the type of the first image " + type.getClass()
+						.getName());
+			}
+		}
+		final long[] sliceShape = CopyPlan.tensorShape(dims, dimOrder);
+		final long[] shape = new long[sliceShape.length + 1];
+		shape[0] = images.size();
+		System.arraycopy(sliceShape, 0, shape, 1, sliceShape.length);
+		final Class<?> tensorArrayType = tensorArrayType(type);
+		final long sliceBytes = Intervals.numElements(dims) * bytesPerElement(
+			tensorArrayType);
+		try (final TensorBufferPool.Lease lease = stagingPool.lease(sliceBytes *
+			images.size()))
+		{
+			final ByteBuffer bytes = lease.buffer();
+			ParallelChunks.forEach(images.size(), 1, (from, to) -> {
+				for (int i = (int) from; i < to; i++) {
+					stage(images.get(i), dimOrder, slice(bytes, i * sliceBytes,
+						sliceBytes), tensorArrayType);
+				}
+			});
+			return Tensor.create(tensorType(tensorArrayType), shape, bytes);
+		}
+	}
+
+	/**
+	 * Splits a TensorFlow Tensor containing a batch into one image per batch
+	 * entry.
+	 * <p>
+	 * This is the inverse of {@link #stack(List, int[])}: The first dimension of
+	 * the Tensor is the batch dimension, and each slice is converted like
+	 * {@link #imgFloat(Tensor, int[])} and its siblings would convert a Tensor
+	 * of the slice's shape. The slices are copied in parallel.
+	 * </p>
+	 * @param batch The TensorFlow Tensor with the shape {@code [N, ...]}.
+	 * @param dimOrder Defines the mapping of the dimensions between each image
+	 *          and its slice of the Tensor where the index corresponds to the
+	 *          dimension in the image and the value corresponds to the
+	 *          dimension in the slice.
+	 * @return One image per batch entry. The images are of type
+	 *         {@link ByteType}, {@link DoubleType}, {@link FloatType},
+	 *         {@link IntType} or {@link LongType}, depending on the data type of
+	 *         the Tensor.
+	 * @throws IllegalArgumentException if the Tensor is a scalar or its data
+	 *           type is not supported.
+	 */
+	public static List<Img<?>> unstack(final Tensor<?> batch,
+		final int[] dimOrder)
+	{
+		final long[] shape = batch.shape();
+		if (shape.length == 0) {
+			throw new IllegalArgumentException("Tensor has no batch dimension");
+		}
+		final long[] sliceShape = Arrays.copyOfRange(shape, 1, shape.length);
+		CopyPlan.checkDimOrder(sliceShape.length, dimOrder);
+		final long[] dims = new long[sliceShape.length];
+		for (int d = 0; d < dims.length; d++) {
+			dims[d] = sliceShape[dimOrder[d]];
+		}
+		final int count = (int) shape[0];
+		final List<Img<?>> images = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			images.add(arrayImg(batch.dataType(), dims));
+		}
+		if (count == 0) return images;
+		final CopyPlan plan = CopyPlan.get(dims, dimOrder);
+		final long sliceBytes = batch.numBytes() / count;
+		try (final TensorBufferPool.Lease lease = stagingPool.lease(batch
+			.numBytes()))
+		{
+			final ByteBuffer bytes = readTo(batch, batch.dataType(), lease);
+			ParallelChunks.forEach(count, 1, (from, to) -> {
+				for (int i = (int) from; i < to; i++) {
+					final Object array = ((ArrayDataAccess<?>) ((ArrayImg<?, ?>) images
+						.get(i)).update(null)).getCurrentStorageArray();
+					final Buffer slice = typedBuffer(slice(bytes, i * sliceBytes,
+						sliceBytes), array.getClass());
+					plan.execute(CopyPlan.gather(slice, array), 0);
+				}
+			});
+		}
+		return images;
 	}
 
 	// "low level" methods that do NOT adjust dimensions
@@ -603,107 +1477,436 @@ public final class Tensors {
 	 * @param image The image which should be put into the Tensor.
 	 * @return A Tensor containing the data of the image.
 	 */
-	public static Tensor<Long> tensorLong(
-		final RandomAccessibleInterval<LongType> image)
+	public static Tensor<Long> tensorLong(
+		final RandomAccessibleInterval<LongType> image)
+	{
+		final long[] value = longArray(image);
+		LongBuffer buffer = LongBuffer.wrap(value);
+		return Tensor.create(shape(image), buffer);
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given unsigned byte image.
+	 * <p>
+	 * The pixels are stored unchanged as {@link DataType#UINT8}.
+	 * </p><p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<UInt8> tensorUnsignedByte(
+		final RandomAccessibleInterval<UnsignedByteType> image)
+	{
+		return tensorUnsignedByte(image, reversedOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given short image.
+	 * <p>
+	 * TensorFlow has no 16-bit integer data type, so the pixels are widened to
+	 * {@link DataType#INT32}.
+	 * </p><p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Integer> tensorShort(
+		final RandomAccessibleInterval<ShortType> image)
+	{
+		return tensorShort(image, reversedOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given unsigned short image.
+	 * <p>
+	 * TensorFlow has no 16-bit integer data type, so the pixels are widened to
+	 * {@link DataType#INT32}.
+	 * </p><p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Integer> tensorUnsignedShort(
+		final RandomAccessibleInterval<UnsignedShortType> image)
+	{
+		return tensorUnsignedShort(image, reversedOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given unsigned int image.
+	 * <p>
+	 * TensorFlow has no unsigned 32-bit data type, so the pixels are widened
+	 * to {@link DataType#INT64}.
+	 * </p><p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Long> tensorUnsignedInt(
+		final RandomAccessibleInterval<UnsignedIntType> image)
+	{
+		return tensorUnsignedInt(image, reversedOrder(image.numDimensions()));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given byte image.
+	 * <p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor. TODO Example?
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<UInt8> tensorByte(
+		final RandomAccessibleInterval<ByteType> image, final int[] dimOrder)
+	{
+		final byte[] value = (byte[]) tensorArray(image, byte[].class, dimOrder);
+		if (value == null) return tensorByte(reverse(reorder(image, dimOrder)));
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(UInt8.class, CopyPlan.tensorShape(dims, dimOrder), ByteBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given double image.
+	 * <p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor. TODO Example?
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Double> tensorDouble(
+		final RandomAccessibleInterval<DoubleType> image, final int[] dimOrder)
+	{
+		final double[] value = (double[]) tensorArray(image, double[].class, dimOrder);
+		if (value == null) return tensorDouble(reverse(reorder(image, dimOrder)));
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(CopyPlan.tensorShape(dims, dimOrder), DoubleBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given float image.
+	 * <p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor. TODO Example?
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Float> tensorFloat(
+		final RandomAccessibleInterval<FloatType> image, final int[] dimOrder)
+	{
+		final float[] value = (float[]) tensorArray(image, float[].class, dimOrder);
+		if (value == null) return tensorFloat(reverse(reorder(image, dimOrder)));
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(CopyPlan.tensorShape(dims, dimOrder), FloatBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given int image.
+	 * <p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor. TODO Example?
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Integer> tensorInt(
+		final RandomAccessibleInterval<IntType> image, final int[] dimOrder)
+	{
+		final int[] value = (int[]) tensorArray(image, int[].class, dimOrder);
+		if (value == null) return tensorInt(reverse(reorder(image, dimOrder)));
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(CopyPlan.tensorShape(dims, dimOrder), IntBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given long image.
+	 * <p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. If dimensions were swapped, the
+	 * primitive array is transposed directly into the Tensor buffer. Otherwise a
+	 * copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor. TODO Example?
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Long> tensorLong(
+		final RandomAccessibleInterval<LongType> image, final int[] dimOrder)
+	{
+		final long[] value = (long[]) tensorArray(image, long[].class, dimOrder);
+		if (value == null) return tensorLong(reverse(reorder(image, dimOrder)));
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(CopyPlan.tensorShape(dims, dimOrder), LongBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given unsigned byte image.
+	 * <p>
+	 * The pixels are stored unchanged as {@link DataType#UINT8}.
+	 * </p><p>
+	 * Note that this will use the backing RAI's primitive array when one is
+	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<UInt8> tensorUnsignedByte(
+		final RandomAccessibleInterval<UnsignedByteType> image, final int[] dimOrder)
+	{
+		final byte[] value = (byte[]) tensorArray(image, byte[].class, dimOrder);
+		if (value == null) {
+			@SuppressWarnings("unchecked")
+			final Tensor<UInt8> tensor = (Tensor<UInt8>) stagedTensor(image,
+				dimOrder, byte[].class, stagingPool);
+			return tensor;
+		}
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		return Tensor.create(UInt8.class, CopyPlan.tensorShape(dims, dimOrder), ByteBuffer.wrap(value));
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor containing data from the given short image.
+	 * <p>
+	 * TensorFlow has no 16-bit integer data type, so the pixels are widened to
+	 * {@link DataType#INT32}.
+	 * </p><p>
+	 * The pixels are widened directly from the primitive arrays backing the
+	 * image when possible.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param dimOrder Defines the mapping of the dimensions between the image
+	 *          and the Tensor where the index corresponds to the dimension
+	 *          in the image and the value corresponds to the dimension in the
+	 *          Tensor.
+	 * @return A Tensor containing the data of the image.
+	 */
+	public static Tensor<Integer> tensorShort(
+		final RandomAccessibleInterval<ShortType> image, final int[] dimOrder)
 	{
-		final long[] value = longArray(image);
-		LongBuffer buffer = LongBuffer.wrap(value);
-		return Tensor.create(shape(image), buffer);
+		@SuppressWarnings("unchecked")
+		final Tensor<Integer> tensor = (Tensor<Integer>) stagedTensor(image, dimOrder,
+			int[].class, stagingPool);
+		return tensor;
 	}
 
 	/**
-	 * Creates a TensorFlow Tensor containing data from the given byte image.
+	 * Creates a TensorFlow Tensor containing data from the given unsigned short image.
 	 * <p>
-	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * TensorFlow has no 16-bit integer data type, so the pixels are widened to
+	 * {@link DataType#INT32}.
+	 * </p><p>
+	 * The pixels are widened directly from the primitive arrays backing the
+	 * image when possible.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
 	 * @param dimOrder Defines the mapping of the dimensions between the image
 	 *          and the Tensor where the index corresponds to the dimension
 	 *          in the image and the value corresponds to the dimension in the
-	 *          Tensor. TODO Example?
+	 *          Tensor.
 	 * @return A Tensor containing the data of the image.
 	 */
-	public static Tensor<UInt8> tensorByte(
-		final RandomAccessibleInterval<ByteType> image, final int[] dimOrder)
+	public static Tensor<Integer> tensorUnsignedShort(
+		final RandomAccessibleInterval<UnsignedShortType> image, final int[] dimOrder)
 	{
-		return tensorByte(reverse(reorder(image, dimOrder)));
+		@SuppressWarnings("unchecked")
+		final Tensor<Integer> tensor = (Tensor<Integer>) stagedTensor(image, dimOrder,
+			int[].class, stagingPool);
+		return tensor;
 	}
 
 	/**
-	 * Creates a TensorFlow Tensor containing data from the given double image.
+	 * Creates a TensorFlow Tensor containing data from the given unsigned int image.
 	 * <p>
-	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * TensorFlow has no unsigned 32-bit data type, so the pixels are widened
+	 * to {@link DataType#INT64}.
+	 * </p><p>
+	 * The pixels are widened directly from the primitive arrays backing the
+	 * image when possible.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
 	 * @param dimOrder Defines the mapping of the dimensions between the image
 	 *          and the Tensor where the index corresponds to the dimension
 	 *          in the image and the value corresponds to the dimension in the
-	 *          Tensor. TODO Example?
+	 *          Tensor.
 	 * @return A Tensor containing the data of the image.
 	 */
-	public static Tensor<Double> tensorDouble(
-		final RandomAccessibleInterval<DoubleType> image, final int[] dimOrder)
+	public static Tensor<Long> tensorUnsignedInt(
+		final RandomAccessibleInterval<UnsignedIntType> image, final int[] dimOrder)
 	{
-		return tensorDouble(reverse(reorder(image, dimOrder)));
+		@SuppressWarnings("unchecked")
+		final Tensor<Long> tensor = (Tensor<Long>) stagedTensor(image, dimOrder,
+			long[].class, stagingPool);
+		return tensor;
 	}
 
 	/**
-	 * Creates a TensorFlow Tensor containing data from the given float image.
+	 * Creates a TensorFlow Tensor of data type {@link DataType#FLOAT} containing
+	 * data from the given image, converting the pixels to float.
 	 * <p>
-	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image. See
+	 * {@link #tensorAsFloat(RandomAccessibleInterval, int[])} for details.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
-	 * @param dimOrder Defines the mapping of the dimensions between the image
-	 *          and the Tensor where the index corresponds to the dimension
-	 *          in the image and the value corresponds to the dimension in the
-	 *          Tensor. TODO Example?
 	 * @return A Tensor containing the data of the image.
 	 */
-	public static Tensor<Float> tensorFloat(
-		final RandomAccessibleInterval<FloatType> image, final int[] dimOrder)
+	public static <T extends RealType<T>> Tensor<Float> tensorAsFloat(
+		final RandomAccessibleInterval<T> image)
 	{
-		return tensorFloat(reverse(reorder(image, dimOrder)));
+		return tensorAsFloat(image, reversedOrder(image.numDimensions()));
 	}
 
 	/**
-	 * Creates a TensorFlow Tensor containing data from the given int image.
+	 * Creates a TensorFlow Tensor of data type {@link DataType#FLOAT} containing
+	 * data from the given image, converting the pixels to float.
 	 * <p>
-	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * The conversion is fused with the copy into the Tensor buffer: Pixels of
+	 * images stored in primitive arrays, like 8-, 16- and 32-bit camera images,
+	 * are converted array by array in a single pass. Unsigned types are
+	 * converted by their unsigned value, {@link HalfFloatType} pixels are decoded
+	 * in bulk. Other images are converted pixel by pixel using
+	 * {@link RealType#getRealFloat()}.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
 	 * @param dimOrder Defines the mapping of the dimensions between the image
 	 *          and the Tensor where the index corresponds to the dimension
 	 *          in the image and the value corresponds to the dimension in the
-	 *          Tensor. TODO Example?
+	 *          Tensor.
 	 * @return A Tensor containing the data of the image.
 	 */
-	public static Tensor<Integer> tensorInt(
-		final RandomAccessibleInterval<IntType> image, final int[] dimOrder)
+	public static <T extends RealType<T>> Tensor<Float> tensorAsFloat(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder)
+	{
+		if (Util.getTypeFromInterval(image) instanceof FloatType) {
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<FloatType> floatImage =
+				(RandomAccessibleInterval<FloatType>) image;
+			return tensorFloat(floatImage, dimOrder);
+		}
+		@SuppressWarnings("unchecked")
+		final Tensor<Float> tensor = (Tensor<Float>) stagedTensor(image, dimOrder,
+			float[].class, stagingPool);
+		return tensor;
+	}
+
+	/**
+	 * Creates a TensorFlow Tensor of data type {@link DataType#FLOAT} containing
+	 * normalized data from the given image.
+	 * <p>
+	 * Note that this does _not_ adjust any dimensions. This means that
+	 * the resulting Tensor will have a shape corresponding to the reversed
+	 * dimensions of the image. See
+	 * {@link #tensorAsFloat(RandomAccessibleInterval, int[], Normalization)}
+	 * for details.
+	 * </p>
+	 * @param image The image which should be put into the Tensor.
+	 * @param normalization The normalization applied to the pixels.
+	 * @return A Tensor containing the normalized data of the image.
+	 */
+	public static <T extends RealType<T>> Tensor<Float> tensorAsFloat(
+		final RandomAccessibleInterval<T> image, final Normalization normalization)
 	{
-		return tensorInt(reverse(reorder(image, dimOrder)));
+		return tensorAsFloat(image, reversedOrder(image.numDimensions()),
+			normalization);
 	}
 
 	/**
-	 * Creates a TensorFlow Tensor containing data from the given long image.
+	 * Creates a TensorFlow Tensor of data type {@link DataType#FLOAT} containing
+	 * normalized data from the given image.
 	 * <p>
-	 * Note that this will use the backing RAI's primitive array when one is
-	 * available and no dimensions where swapped. Otherwise a copy will be made.
+	 * The normalization is fused with the conversion to float: Pixels of images
+	 * stored in primitive arrays are converted, normalized and written to the
+	 * Tensor buffer in a single pass, without an intermediate float image.
+	 * Other images are converted pixel by pixel and normalized in the Tensor
+	 * buffer afterwards.
 	 * </p>
 	 * @param image The image which should be put into the Tensor.
 	 * @param dimOrder Defines the mapping of the dimensions between the image
 	 *          and the Tensor where the index corresponds to the dimension
 	 *          in the image and the value corresponds to the dimension in the
-	 *          Tensor. TODO Example?
-	 * @return A Tensor containing the data of the image.
+	 *          Tensor.
+	 * @param normalization The normalization applied to the pixels. Its channel
+	 *          dimension refers to the dimensions of the image.
+	 * @return A Tensor containing the normalized data of the image.
+	 * @throws IllegalArgumentException if the channels of the normalization do
+	 *           not fit the image.
 	 */
-	public static Tensor<Long> tensorLong(
-		final RandomAccessibleInterval<LongType> image, final int[] dimOrder)
+	public static <T extends RealType<T>> Tensor<Float> tensorAsFloat(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final Normalization normalization)
 	{
-		return tensorLong(reverse(reorder(image, dimOrder)));
+		normalization.check(image);
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		final long[] shape = CopyPlan.tensorShape(dims, dimOrder);
+		final T type = Util.getTypeFromInterval(image);
+		final Class<?> arrayType = arrayType(type);
+		final List<PrimitiveBlocks.Block> blocks = arrayType == null ? null
+			: PrimitiveBlocks.of(image, arrayType);
+		try (final TensorBufferPool.Lease lease = stagingPool.lease(Intervals
+			.numElements(dims) * Float.BYTES))
+		{
+			final ByteBuffer bytes = lease.buffer();
+			if (blocks != null) {
+				final FloatBuffer buffer = bytes.asFloatBuffer();
+				final boolean unsigned = isUnsigned(type);
+				transferBlocks(blocks, dims, dimOrder, block -> CopyPlan.convert(
+					block.array, unsigned, buffer, normalization.transform(block.min,
+						block.dims)));
+			}
+			else {
+				stage(image, dimOrder, bytes, float[].class);
+				final int channelDim = normalization.getChannelDimension();
+				normalization.apply(bytes.asFloatBuffer(), shape, channelDim < 0 ? -1
+					: dimOrder[channelDim]);
+			}
+			return Tensor.create(Float.class, shape, bytes);
+		}
 	}
 
 	/**
@@ -725,7 +1928,7 @@ public final class Tensors {
 	public static Tensor<UInt8> tensorByteDirect(
 		final RandomAccessibleInterval<ByteType> image)
 	{
-		return tensorByte(reverse(image));
+		return tensorByte(image, identityOrder(image.numDimensions()));
 	}
 
 	/**
@@ -747,7 +1950,7 @@ public final class Tensors {
 	public static Tensor<Double> tensorDoubleDirect(
 		final RandomAccessibleInterval<DoubleType> image)
 	{
-		return tensorDouble(reverse(image));
+		return tensorDouble(image, identityOrder(image.numDimensions()));
 	}
 
 	/**
@@ -769,7 +1972,7 @@ public final class Tensors {
 	public static Tensor<Float> tensorFloatDirect(
 		final RandomAccessibleInterval<FloatType> image)
 	{
-		return tensorFloat(reverse(image));
+		return tensorFloat(image, identityOrder(image.numDimensions()));
 	}
 
 	/**
@@ -791,7 +1994,7 @@ public final class Tensors {
 	public static Tensor<Integer> tensorIntDirect(
 		final RandomAccessibleInterval<IntType> image)
 	{
-		return tensorInt(reverse(image));
+		return tensorInt(image, identityOrder(image.numDimensions()));
 	}
 
 	/**
@@ -813,7 +2016,322 @@ public final class Tensors {
 	public static Tensor<Long> tensorLongDirect(
 		final RandomAccessibleInterval<LongType> image)
 	{
-		return tensorLong(reverse(image));
+		return tensorLong(image, identityOrder(image.numDimensions()));
+	}
+
+	// --------- MEMORY-MAPPED FILES ---------
+
+	/**
+	 * Creates a TensorFlow Tensor from a raw Tensor file, e.g. one written by
+	 * {@link #writeTensor(Tensor, Path)}. The file is memory-mapped and copied
+	 * into the Tensor without going through the Java heap.
+	 * <p>
+	 * Raw Tensor files hold nothing but the Tensor elements, laid out like the
+	 * data of the Tensor, in the native byte order of the platform.
+	 * </p>
+	 *
+	 * @param file The raw Tensor file.
+	 * @param dataType The data type of the Tensor elements.
+	 * @param shape The shape of the Tensor.
+	 * @return A Tensor containing the data of the file.
+	 * @throws IllegalArgumentException if the data type is not supported, if
+	 *           the size of the file does not match the shape, or if the Tensor
+	 *           would be larger than 2 GB, the limit of TensorFlow's Java API.
+	 */
+	public static Tensor<?> readTensor(final Path file, final DataType dataType,
+		final long[] shape) throws IOException
+	{
+		final Class<?> arrayType = arrayType(dataType);
+		final long numBytes = Intervals.numElements(shape) * bytesPerElement(
+			arrayType);
+		if (numBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Tensor of shape " + Arrays.toString(
+				shape) + " is larger than 2 GB; read it with mappedImg instead");
+		}
+		try (final FileChannel channel = FileChannel.open(file,
+			StandardOpenOption.READ))
+		{
+			checkSize(file, channel, numBytes);
+			final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+				numBytes).order(ByteOrder.nativeOrder());
+			return Tensor.create(tensorType(arrayType), shape, mapped);
+		}
+	}
+
+	/**
+	 * Writes the data of a TensorFlow Tensor into a raw Tensor file, e.g. to
+	 * keep a large model output out of the Java heap. An existing file is
+	 * replaced. The file can be viewed as an image with
+	 * {@link #mappedImg(Path, DataType, long[], FileChannel.MapMode)}.
+	 *
+	 * @param tensor The Tensor to write.
+	 * @param file The raw Tensor file.
+	 * @see #readTensor(Path, DataType, long[])
+	 */
+	public static void writeTensor(final Tensor<?> tensor, final Path file)
+		throws IOException
+	{
+		try (final FileChannel channel = FileChannel.open(file,
+			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				tensor.numBytes()).order(ByteOrder.nativeOrder());
+			tensor.writeTo(mapped);
+		}
+	}
+
+	/**
+	 * Writes the data of an image into a raw Tensor file, laid out like the data
+	 * of {@link #tensor(RandomAccessibleInterval, int[])}. The image may be
+	 * larger than the Java heap and than a single Tensor; the file is written
+	 * in parallel, through mappings of at most 1 GB each. An existing file is
+	 * replaced.
+	 *
+	 * @param image The image to write.
+	 * @param dimOrder Defines the mapping of the dimensions of the image to the
+	 *          Tensor dimensions, as in
+	 *          {@link #tensor(RandomAccessibleInterval, int[])}.
+	 * @param file The raw Tensor file.
+	 * @throws IllegalArgumentException if the image type is not supported.
+	 * @see #readTensor(Path, DataType, long[])
+	 * @see #mappedImg(Path, DataType, long[], FileChannel.MapMode)
+	 */
+	public static <T extends RealType<T>> void writeTensor(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final Path file) throws IOException
+	{
+		writeTensor(image, dimOrder, file, MAX_MAPPING_BYTES);
+	}
+
+	static <T extends RealType<T>> void writeTensor(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final Path file, final long maxMappingBytes) throws IOException
+	{
+		final Class<?> arrayType = tensorArrayType(Util.getTypeFromInterval(
+			image));
+		final RandomAccessibleInterval<T> source = reverse(reorder(image,
+			dimOrder));
+		final int bytesPerElement = bytesPerElement(arrayType);
+		final long numElements = Intervals.numElements(source);
+		final long maxElements = Math.max(1, maxMappingBytes / bytesPerElement);
+		try (final FileChannel channel = FileChannel.open(file,
+			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			// NB: Sizes the file up front, so that the chunks can be mapped
+			// concurrently.
+			if (numElements > 0) {
+				channel.write(ByteBuffer.allocate(1), numElements * bytesPerElement -
+					1);
+			}
+			ParallelChunks.forEach(numElements, MIN_PARALLEL_COPY, (from, to) -> {
+				for (long offset = from; offset < to; offset += maxElements) {
+					final long count = Math.min(maxElements, to - offset);
+					final ByteBuffer mapped = map(channel, FileChannel.MapMode.READ_WRITE,
+						offset * bytesPerElement, count * bytesPerElement);
+					copy(source, offset, bufferImg(arrayType, mapped, new long[] {
+						count }));
+				}
+			});
+		}
+		catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Views a raw Tensor file as an image, without loading it into the Java
+	 * heap. The image is backed by memory-mapped regions of the file of at most
+	 * 1 GB each, so that it can be larger than the heap and than a single
+	 * Tensor. Its dimensions are those of the Tensor in reverse order, like the
+	 * image of {@link #img(Tensor)}.
+	 *
+	 * @param file The raw Tensor file.
+	 * @param dataType The data type of the Tensor elements.
+	 * @param shape The shape of the Tensor.
+	 * @param mode How the file is mapped. With
+	 *          {@link FileChannel.MapMode#READ_WRITE}, changes of the pixels are
+	 *          written to the file, and a missing or empty file is created with
+	 *          the size of the Tensor. With {@link FileChannel.MapMode#PRIVATE},
+	 *          changes stay in memory.
+	 * @return An image of the data of the file.
+	 * @throws IllegalArgumentException if the data type is not supported or if
+	 *           the size of the file does not match the shape.
+	 */
+	public static Img<?> mappedImg(final Path file, final DataType dataType,
+		final long[] shape, final FileChannel.MapMode mode) throws IOException
+	{
+		return mappedImg(file, dataType, shape, mode, MAX_MAPPING_BYTES);
+	}
+
+	static Img<?> mappedImg(final Path file, final DataType dataType,
+		final long[] shape, final FileChannel.MapMode mode,
+		final long maxMappingBytes) throws IOException
+	{
+		final Class<?> arrayType = arrayType(dataType);
+		if (shape.length == 0) {
+			throw new IllegalArgumentException("Cannot map a scalar Tensor");
+		}
+		final long[] dims = shape(new FinalDimensions(shape));
+		final int bytesPerElement = bytesPerElement(arrayType);
+		final long numBytes = Intervals.numElements(dims) * bytesPerElement;
+		final CellGrid grid = new CellGrid(dims, mappedCellDims(dims, Math.max(1,
+			maxMappingBytes / bytesPerElement)));
+
+		final boolean writable = mode == FileChannel.MapMode.READ_WRITE;
+		final List<ByteBuffer> regions = new ArrayList<>();
+		try (final FileChannel channel = writable ? FileChannel.open(file,
+			StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE) : mode == FileChannel.MapMode.PRIVATE
+				? FileChannel.open(file, StandardOpenOption.READ,
+					StandardOpenOption.WRITE) : FileChannel.open(file,
+						StandardOpenOption.READ))
+		{
+			if (writable && channel.size() == 0 && numBytes > 0) {
+				channel.write(ByteBuffer.allocate(1), numBytes - 1);
+			}
+			checkSize(file, channel, numBytes);
+			// NB: Each cell is a contiguous region of the file.
+			final long[] cellMin = new long[dims.length];
+			final int[] cellDims = new int[dims.length];
+			for (long i = 0; i < Intervals.numElements(grid.getGridDimensions()); i++) {
+				grid.getCellDimensions(i, cellMin, cellDims);
+				regions.add(map(channel, mode, IntervalIndexer.positionToIndex(cellMin,
+					dims) * bytesPerElement, Intervals.numElements(cellDims) *
+						bytesPerElement));
+			}
+		}
+		catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+		switch (dataType) {
+			case UINT8:
+				return cellImg(new ByteType(), grid, regions,
+					bytes -> new ByteBufferAccess(bytes, true));
+			case DOUBLE:
+				return cellImg(new DoubleType(), grid, regions,
+					bytes -> new DoubleBufferAccess(bytes, true));
+			case FLOAT:
+				return cellImg(new FloatType(), grid, regions,
+					bytes -> new FloatBufferAccess(bytes, true));
+			case INT32:
+				return cellImg(new IntType(), grid, regions,
+					bytes -> new IntBufferAccess(bytes, true));
+			default:
+				return cellImg(new LongType(), grid, regions,
+					bytes -> new LongBufferAccess(bytes, true));
+		}
+	}
+
+	/** Gets the Tensor array type of a TensorFlow data type. */
+	private static Class<?> arrayType(final DataType dataType) {
+		switch (dataType) {
+			case UINT8:
+				return byte[].class;
+			case DOUBLE:
+				return double[].class;
+			case FLOAT:
+				return float[].class;
+			case INT32:
+				return int[].class;
+			case INT64:
+				return long[].class;
+			default:
+				throw new IllegalArgumentException("Unsupported Tensor data type: " +
+					dataType);
+		}
+	}
+
+	private static void checkSize(final Path file, final FileChannel channel,
+		final long numBytes) throws IOException
+	{
+		if (channel.size() != numBytes) {
+			throw new IllegalArgumentException("Expected " + numBytes +
+				" bytes but " + file + " has " + channel.size());
+		}
+	}
+
+	/**
+	 * Maps a region of a file in the native byte order. Throws an
+	 * {@link UncheckedIOException} so that it can be called from lambdas.
+	 */
+	private static ByteBuffer map(final FileChannel channel,
+		final FileChannel.MapMode mode, final long position, final long size)
+	{
+		try {
+			return channel.map(mode, position, size).order(ByteOrder.nativeOrder());
+		}
+		catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Gets the dimensions of cells of at most {@code maxElements} pixels which
+	 * are contiguous in the flat iteration order of an image: each cell spans
+	 * the faster dimensions completely and the slower ones with extent 1.
+	 */
+	private static int[] mappedCellDims(final long[] dims,
+		final long maxElements)
+	{
+		final int[] cellDims = new int[dims.length];
+		Arrays.fill(cellDims, 1);
+		long cellSize = 1;
+		for (int d = 0; d < dims.length; d++) {
+			final long extent = Math.min(dims[d], maxElements / cellSize);
+			cellDims[d] = (int) Math.max(1, extent);
+			if (extent < dims[d]) break;
+			cellSize *= dims[d];
+		}
+		return cellDims;
+	}
+
+	/**
+	 * Copies the pixels of a buffer image from an image, starting at the given
+	 * offset in its flat iteration order. Pixels of the same type are copied
+	 * exactly, so that 64-bit integers do not go through a double.
+	 */
+	private static <T extends RealType<T>> void copy(
+		final RandomAccessibleInterval<T> source, final long offset,
+		final Img<? extends RealType<?>> target)
+	{
+		final Cursor<T> cursor = Views.flatIterable(source).cursor();
+		cursor.jumpFwd(offset);
+		if (target.firstElement().getClass() == Util.getTypeFromInterval(source)
+			.getClass())
+		{
+			@SuppressWarnings("unchecked")
+			final Img<T> typedTarget = (Img<T>) target;
+			for (final T t : typedTarget) {
+				t.set(cursor.next());
+			}
+			return;
+		}
+		for (final RealType<?> t : target) {
+			t.setReal(cursor.next().getRealDouble());
+		}
+	}
+
+	/** Creates a cell image whose cells are backed by the given buffers. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static <T extends NativeType<T>> Img<T> cellImg(final T type,
+		final CellGrid grid, final List<ByteBuffer> buffers,
+		final Function<ByteBuffer, ? extends DataAccess> access)
+	{
+		final int n = grid.numDimensions();
+		final List<Cell<DataAccess>> cells = new ArrayList<>();
+		for (int i = 0; i < buffers.size(); i++) {
+			final long[] cellMin = new long[n];
+			final int[] cellDims = new int[n];
+			grid.getCellDimensions(i, cellMin, cellDims);
+			cells.add(new Cell<>(cellDims, cellMin, access.apply(buffers.get(i))));
+		}
+		final CellImg img = new CellImg<>(new CellImgFactory<>(type, grid
+			.getCellDimensions()), grid, new ListImg<>(cells, grid
+				.getGridDimensions()), type.getEntitiesPerPixel());
+		img.setLinkedType(type.getNativeTypeFactory().createLinkedType(img));
+		return img;
 	}
 
 	// --------- DIMENSIONAL HELPER METHODS ---------
@@ -900,6 +2418,378 @@ public final class Tensors {
 		return reorder(image, reverseDimOrder);
 	}
 
+	/** Dimension order which keeps the dimensions of an image in the Tensor. */
+	private static int[] identityOrder(final int n) {
+		return IntStream.range(0, n).toArray();
+	}
+
+	/** Dimension order which reverses the dimensions of an image in the Tensor. */
+	private static int[] reversedOrder(final int n) {
+		return IntStream.range(0, n).map(d -> n - 1 - d).toArray();
+	}
+
+	/**
+	 * Gets the data of an image as primitive array laid out as the Tensor with
+	 * the given dimension order. This is the backing array itself if the image
+	 * is an {@link ArrayImg} whose layout matches the Tensor.
+	 *
+	 * @return The array, or null if the image is not stored in primitive arrays
+	 *         of the given type.
+	 */
+	private static Object tensorArray(final RandomAccessibleInterval<?> image,
+		final Class<?> arrayType, final int[] dimOrder)
+	{
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		final List<PrimitiveBlocks.Block> blocks = PrimitiveBlocks.of(image,
+			arrayType);
+		if (blocks != null && blocks.size() == 1 && CopyPlan.get(dims, dimOrder)
+			.isIdentity() && Array.getLength(blocks.get(0).array) == Intervals
+				.numElements(dims))
+		{
+			return blocks.get(0).array;
+		}
+		return blocks == null ? null : copyBlocks(blocks, dims, arrayType,
+			dimOrder);
+	}
+
+	/**
+	 * Copies the primitive arrays backing an image into a new array laid out as
+	 * the Tensor with the given dimension order.
+	 *
+	 * @return The array, or null if the image is not stored in primitive arrays
+	 *         of the given type.
+	 */
+	private static Object blockArray(final RandomAccessibleInterval<?> image,
+		final Class<?> arrayType, final int[] dimOrder)
+	{
+		final List<PrimitiveBlocks.Block> blocks = PrimitiveBlocks.of(image,
+			arrayType);
+		return blocks == null ? null : copyBlocks(blocks, Intervals
+			.dimensionsAsLongArray(image), arrayType, dimOrder);
+	}
+
+	private static Object copyBlocks(final List<PrimitiveBlocks.Block> blocks,
+		final long[] dims, final Class<?> arrayType, final int[] dimOrder)
+	{
+		final long size = Intervals.numElements(dims);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Image is too large: " + size +
+				" elements");
+		}
+		final Object array = Array.newInstance(arrayType.getComponentType(),
+			(int) size);
+		final Buffer buffer = CopyPlan.wrap(array);
+		transferBlocks(blocks, dims, dimOrder, block -> CopyPlan.scatter(
+			block.array, buffer));
+		return array;
+	}
+
+	/**
+	 * Copies the primitive arrays backing an image from or to a buffer laid out
+	 * as the Tensor with the given dimension order. Blocks are processed in
+	 * parallel.
+	 *
+	 * @param rows Creates the rows copying the elements of one block.
+	 */
+	private static void transferBlocks(final List<PrimitiveBlocks.Block> blocks,
+		final long[] dims, final int[] dimOrder,
+		final Function<PrimitiveBlocks.Block, Supplier<CopyPlan.Row>> rows)
+	{
+		final long[] strides = CopyPlan.tensorStrides(dims, dimOrder);
+		ParallelChunks.forEach(blocks.size(), 1, (from, to) -> {
+			for (int i = (int) from; i < to; i++) {
+				final PrimitiveBlocks.Block block = blocks.get(i);
+				long offset = 0;
+				for (int d = 0; d < dims.length; d++) {
+					offset += block.min[d] * strides[d];
+				}
+				CopyPlan.get(block.dims, strides).execute(rows.apply(block),
+					(int) offset);
+			}
+		});
+	}
+
+	// --------- POOLED BUFFER HELPERS ---------
+
+	/**
+	 * Gets the primitive array type storing pixels of the given type.
+	 *
+	 * @return The array type, or null if pixels of this type are not stored in
+	 *         primitive arrays with one element per pixel.
+	 */
+	static Class<?> arrayType(final RealType<?> type) {
+		if (type instanceof ByteType || type instanceof UnsignedByteType) {
+			return byte[].class;
+		}
+		if (type instanceof DoubleType) return double[].class;
+		if (type instanceof FloatType) return float[].class;
+		if (type instanceof ShortType || type instanceof UnsignedShortType) {
+			return short[].class;
+		}
+		if (type instanceof IntType || type instanceof UnsignedIntType) {
+			return int[].class;
+		}
+		if (type instanceof LongType) return long[].class;
+		return null;
+	}
+
+	/**
+	 * Gets the array type of the Tensor elements holding pixels of the given
+	 * type without loss. TensorFlow has no 16-bit or unsigned 32-bit integer
+	 * data types, so such pixels are widened to the next larger signed type,
+	 * and {@link HalfFloatType} pixels to float.
+	 *
+	 * @throws IllegalArgumentException if the type is not supported.
+	 */
+	private static Class<?> tensorArrayType(final RealType<?> type) {
+		if (type instanceof HalfFloatType) return float[].class;
+		if (type instanceof ShortType || type instanceof UnsignedShortType) {
+			return int[].class;
+		}
+		if (type instanceof UnsignedIntType) return long[].class;
+		final Class<?> arrayType = arrayType(type);
+		if (arrayType == null) {
+			throw new IllegalArgumentException("Unsupported image type: " + //
+				type.getClass().getName());
+		}
+		return arrayType;
+	}
+
+	static boolean isUnsigned(final RealType<?> type) {
+		return type instanceof UnsignedByteType ||
+			type instanceof UnsignedShortType || type instanceof UnsignedIntType;
+	}
+
+	/** Gets the TensorFlow element class for the given Tensor array type. */
+	private static Class<?> tensorType(final Class<?> arrayType) {
+		if (arrayType == byte[].class) return UInt8.class;
+		if (arrayType == double[].class) return Double.class;
+		if (arrayType == float[].class) return Float.class;
+		if (arrayType == int[].class) return Integer.class;
+		return Long.class;
+	}
+
+	private static int bytesPerElement(final Class<?> arrayType) {
+		if (arrayType == byte[].class) return 1;
+		if (arrayType == short[].class) return 2;
+		if (arrayType == float[].class || arrayType == int[].class) return 4;
+		return 8;
+	}
+
+	/** Views a byte buffer as a buffer of the primitive array's element type. */
+	private static Buffer typedBuffer(final ByteBuffer bytes,
+		final Class<?> arrayType)
+	{
+		if (arrayType == byte[].class) return bytes;
+		if (arrayType == double[].class) return bytes.asDoubleBuffer();
+		if (arrayType == float[].class) return bytes.asFloatBuffer();
+		if (arrayType == int[].class) return bytes.asIntBuffer();
+		return bytes.asLongBuffer();
+	}
+
+	/**
+	 * Creates a Tensor from an image, staging its data in a leased buffer.
+	 *
+	 * @param tensorArrayType The array type of the Tensor elements. The pixels
+	 *          are converted if the image is stored in another type.
+	 */
+	private static <T extends RealType<T>> Tensor<?> stagedTensor(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final Class<?> tensorArrayType, final TensorBufferPool pool)
+	{
+		final long[] dims = Intervals.dimensionsAsLongArray(image);
+		final long[] shape = CopyPlan.tensorShape(dims, dimOrder);
+		final long numBytes = Intervals.numElements(dims) * bytesPerElement(
+			tensorArrayType);
+		try (final TensorBufferPool.Lease lease = pool.lease(numBytes)) {
+			final ByteBuffer bytes = lease.buffer();
+			stage(image, dimOrder, bytes, tensorArrayType);
+			return Tensor.create(tensorType(tensorArrayType), shape, bytes);
+		}
+	}
+
+	/**
+	 * Writes the data of an image into a buffer, laid out as the Tensor with the
+	 * given dimension order. Images stored in primitive arrays are converted
+	 * array by array, without going through their {@link RealType}.
+	 *
+	 * @param tensorArrayType The array type of the Tensor elements.
+	 */
+	private static <T extends RealType<T>> void stage(
+		final RandomAccessibleInterval<T> image, final int[] dimOrder,
+		final ByteBuffer bytes, final Class<?> tensorArrayType)
+	{
+		final T type = Util.getTypeFromInterval(image);
+		final boolean half = type instanceof HalfFloatType;
+		final Class<?> arrayType = half ? short[].class : arrayType(type);
+		final List<PrimitiveBlocks.Block> blocks = arrayType == null ? null
+			: PrimitiveBlocks.of(image, arrayType);
+		if (blocks != null) {
+			final Buffer buffer = typedBuffer(bytes, tensorArrayType);
+			final boolean unsigned = isUnsigned(type);
+			transferBlocks(blocks, Intervals.dimensionsAsLongArray(image), dimOrder,
+				half ? block -> CopyPlan.decodeHalf(block.array, buffer) : //
+					arrayType == tensorArrayType ? //
+						block -> CopyPlan.scatter(block.array, buffer) : //
+						block -> CopyPlan.convert(block.array, unsigned, buffer));
+			return;
+		}
+		final RandomAccessibleInterval<T> source = reverse(reorder(image,
+			dimOrder));
+		final Img<? extends RealType<?>> target = bufferImg(tensorArrayType, bytes,
+			Intervals.dimensionsAsLongArray(source));
+		if (target.firstElement().getClass() == type.getClass()) {
+			@SuppressWarnings("unchecked")
+			final Img<T> typedTarget = (Img<T>) target;
+			copy(source, typedTarget);
+		}
+		else copy(source, target, (s, d) -> d.setReal(s.getRealDouble()));
+	}
+
+	/** Gets a part of a byte buffer, keeping its byte order. */
+	private static ByteBuffer slice(final ByteBuffer bytes, final long offset,
+		final long length)
+	{
+		final ByteBuffer slice = bytes.duplicate();
+		slice.position((int) offset);
+		slice.limit((int) (offset + length));
+		return slice.slice().order(bytes.order());
+	}
+
+	/** Creates an image for Tensor data of the given data type. */
+	private static Img<?> arrayImg(final DataType dataType, final long[] dims) {
+		switch (dataType) {
+			case UINT8:
+				return ArrayImgs.bytes(dims);
+			case DOUBLE:
+				return ArrayImgs.doubles(dims);
+			case FLOAT:
+				return ArrayImgs.floats(dims);
+			case INT32:
+				return ArrayImgs.ints(dims);
+			case INT64:
+				return ArrayImgs.longs(dims);
+			default:
+				throw new IllegalArgumentException("Unsupported Tensor data type: " +
+					dataType);
+		}
+	}
+
+	/** Wraps a byte buffer into an image of the given type. */
+	@SuppressWarnings("unchecked")
+	private static <T extends RealType<T>> Img<T> bufferImg(final T type,
+		final ByteBuffer bytes, final long[] dims)
+	{
+		return (Img<T>) bufferImg(arrayType(type), bytes, dims);
+	}
+
+	/**
+	 * Wraps a byte buffer into an image whose pixels are stored in the given
+	 * Tensor array type.
+	 */
+	private static Img<? extends RealType<?>> bufferImg(final Class<?> arrayType,
+		final ByteBuffer bytes, final long[] dims)
+	{
+		if (arrayType == byte[].class) {
+			return ArrayImgs.bytes(new ByteBufferAccess(bytes, true), dims);
+		}
+		if (arrayType == double[].class) {
+			return ArrayImgs.doubles(new DoubleBufferAccess(bytes, true), dims);
+		}
+		if (arrayType == float[].class) {
+			return ArrayImgs.floats(new FloatBufferAccess(bytes, true), dims);
+		}
+		if (arrayType == int[].class) {
+			return ArrayImgs.ints(new IntBufferAccess(bytes, true), dims);
+		}
+		return ArrayImgs.longs(new LongBufferAccess(bytes, true), dims);
+	}
+
+	/**
+	 * Writes the data of a Tensor into an existing image. Uses a bulk read if
+	 * the image is stored in one primitive array with the Tensor's layout, and
+	 * gathers the pixels of each array from a staging buffer otherwise.
+	 */
+	private static <T extends RealType<T>> void write(final Tensor<?> image,
+		final DataType dataType, final RandomAccessibleInterval<T> out,
+		final int[] dimOrder)
+	{
+		final long[] dims = Intervals.dimensionsAsLongArray(out);
+		final long[] shape = CopyPlan.tensorShape(dims, dimOrder);
+		if (!Arrays.equals(shape, image.shape())) {
+			throw new IllegalArgumentException("Tensor of shape " + Arrays.toString(
+				image.shape()) + " does not fit into an image of size " + Arrays
+					.toString(dims) + " with dimension order " + Arrays.toString(
+						dimOrder));
+		}
+		final T type = Util.getTypeFromInterval(out);
+		final Class<?> arrayType = arrayType(type);
+		final List<PrimitiveBlocks.Block> blocks = PrimitiveBlocks.of(out,
+			arrayType);
+		if (blocks != null && blocks.size() == 1 && CopyPlan.get(dims, dimOrder)
+			.isIdentity() && Array.getLength(blocks.get(0).array) == Intervals
+				.numElements(dims))
+		{
+			if (image.dataType() != dataType) {
+				throw new IllegalArgumentException("Tensor has data type " + image
+					.dataType() + ", expected " + dataType);
+			}
+			readTo(image, blocks.get(0).array);
+			return;
+		}
+		try (final TensorBufferPool.Lease lease = stagingPool.lease(image
+			.numBytes()))
+		{
+			final ByteBuffer bytes = readTo(image, dataType, lease);
+			if (blocks != null) {
+				final Buffer buffer = typedBuffer(bytes, arrayType);
+				transferBlocks(blocks, dims, dimOrder, block -> CopyPlan.gather(buffer,
+					block.array));
+			}
+			else {
+				final long[] reversedShape = shape(image);
+				copy(reverseReorder(reverse(bufferImg(type, bytes, reversedShape)),
+					dimOrder), out);
+			}
+		}
+	}
+
+	/** Writes the data of a Tensor into a primitive array of the same size. */
+	private static void readTo(final Tensor<?> image, final Object array) {
+		if (array instanceof byte[]) image.writeTo(ByteBuffer.wrap((byte[]) array));
+		else if (array instanceof double[]) image.writeTo(DoubleBuffer.wrap(
+			(double[]) array));
+		else if (array instanceof float[]) image.writeTo(FloatBuffer.wrap(
+			(float[]) array));
+		else if (array instanceof int[]) image.writeTo(IntBuffer.wrap(
+			(int[]) array));
+		else image.writeTo(LongBuffer.wrap((long[]) array));
+	}
+
+	/**
+	 * Writes the data of a Tensor into a leased buffer.
+	 *
+	 * @return The leased buffer, with position 0 and the Tensor size as limit.
+	 */
+	private static ByteBuffer readTo(final Tensor<?> image,
+		final DataType dataType, final TensorBufferPool.Lease lease)
+	{
+		if (image.dataType() != dataType) {
+			throw new IllegalArgumentException("Tensor has data type " + image
+				.dataType() + ", expected " + dataType);
+		}
+		final ByteBuffer buffer = lease.buffer();
+		final int numBytes = image.numBytes();
+		if (buffer.capacity() < numBytes) {
+			throw new IllegalArgumentException("Leased buffer is too small: " +
+				buffer.capacity() + " < " + numBytes + " bytes");
+		}
+		buffer.clear();
+		buffer.limit(numBytes);
+		image.writeTo(buffer.duplicate());
+		return buffer;
+	}
+
 	// --------- HELPER STUFF ---------
 
 	// TODO: consider also putting this outside Tensors, and instead in ImgLib2 core.
@@ -947,6 +2837,9 @@ public final class Tensors {
 	private static byte[] createByteArray(
 		final RandomAccessibleInterval<ByteType> image)
 	{
+		final byte[] array = (byte[]) blockArray(image, byte[].class,
+			reversedOrder(image.numDimensions()));
+		if (array != null) return array;
 		final long[] dims = Intervals.dimensionsAsLongArray(image);
 		final ArrayImg<ByteType, ByteArray> dest = ArrayImgs.bytes(dims);
 		copy(image, dest);
@@ -956,6 +2849,9 @@ public final class Tensors {
 	private static double[] createDoubleArray(
 		final RandomAccessibleInterval<DoubleType> image)
 	{
+		final double[] array = (double[]) blockArray(image, double[].class,
+			reversedOrder(image.numDimensions()));
+		if (array != null) return array;
 		final long[] dims = Intervals.dimensionsAsLongArray(image);
 		final ArrayImg<DoubleType, DoubleArray> dest = ArrayImgs.doubles(dims);
 		copy(image, dest);
@@ -965,6 +2861,9 @@ public final class Tensors {
 	private static float[] createFloatArray(
 		final RandomAccessibleInterval<FloatType> image)
 	{
+		final float[] array = (float[]) blockArray(image, float[].class,
+			reversedOrder(image.numDimensions()));
+		if (array != null) return array;
 		final long[] dims = Intervals.dimensionsAsLongArray(image);
 		final ArrayImg<FloatType, FloatArray> dest = ArrayImgs.floats(dims);
 		copy(image, dest);
@@ -974,6 +2873,9 @@ public final class Tensors {
 	private static int[] createIntArray(
 		final RandomAccessibleInterval<IntType> image)
 	{
+		final int[] array = (int[]) blockArray(image, int[].class,
+			reversedOrder(image.numDimensions()));
+		if (array != null) return array;
 		final long[] dims = Intervals.dimensionsAsLongArray(image);
 		final ArrayImg<IntType, IntArray> dest = ArrayImgs.ints(dims);
 		copy(image, dest);
@@ -983,6 +2885,9 @@ public final class Tensors {
 	private static long[] createLongArray(
 		final RandomAccessibleInterval<LongType> image)
 	{
+		final long[] array = (long[]) blockArray(image, long[].class,
+			reversedOrder(image.numDimensions()));
+		if (array != null) return array;
 		final long[] dims = Intervals.dimensionsAsLongArray(image);
 		final ArrayImg<LongType, LongArray> dest = ArrayImgs.longs(dims);
 		copy(image, dest);
@@ -992,9 +2897,10 @@ public final class Tensors {
 	private static byte[] extractByteArray(
 		final RandomAccessibleInterval<ByteType> image)
 	{
-		if (!(image instanceof ArrayImg)) return null;
+		final RandomAccessibleInterval<ByteType> img = PrimitiveBlocks.unwrap(image);
+		if (!(img instanceof ArrayImg)) return null;
 		@SuppressWarnings("unchecked")
-		final ArrayImg<ByteType, ?> arrayImg = (ArrayImg<ByteType, ?>) image;
+		final ArrayImg<ByteType, ?> arrayImg = (ArrayImg<ByteType, ?>) img;
 		final Object dataAccess = arrayImg.update(null);
 		return dataAccess instanceof ByteArray ? //
 			((ByteArray) dataAccess).getCurrentStorageArray() : null;
@@ -1003,9 +2909,10 @@ public final class Tensors {
 	private static double[] extractDoubleArray(
 		final RandomAccessibleInterval<DoubleType> image)
 	{
-		if (!(image instanceof ArrayImg)) return null;
+		final RandomAccessibleInterval<DoubleType> img = PrimitiveBlocks.unwrap(image);
+		if (!(img instanceof ArrayImg)) return null;
 		@SuppressWarnings("unchecked")
-		final ArrayImg<DoubleType, ?> arrayImg = (ArrayImg<DoubleType, ?>) image;
+		final ArrayImg<DoubleType, ?> arrayImg = (ArrayImg<DoubleType, ?>) img;
 		final Object dataAccess = arrayImg.update(null);
 		return dataAccess instanceof DoubleArray ? //
 			((DoubleArray) dataAccess).getCurrentStorageArray() : null;
@@ -1014,9 +2921,10 @@ public final class Tensors {
 	private static float[] extractFloatArray(
 		final RandomAccessibleInterval<FloatType> image)
 	{
-		if (!(image instanceof ArrayImg)) return null;
+		final RandomAccessibleInterval<FloatType> img = PrimitiveBlocks.unwrap(image);
+		if (!(img instanceof ArrayImg)) return null;
 		@SuppressWarnings("unchecked")
-		final ArrayImg<FloatType, ?> arrayImg = (ArrayImg<FloatType, ?>) image;
+		final ArrayImg<FloatType, ?> arrayImg = (ArrayImg<FloatType, ?>) img;
 		// GOOD NEWS: float[] rasterization order is dimension-wise!
 		// BAD NEWS: it always goes d0,d1,d2,.... is that the order we need?
 		// MORE BAD NEWS: As soon as you use Views.permute, image is not ArrayImg anymore.
@@ -1029,9 +2937,10 @@ public final class Tensors {
 	private static int[] extractIntArray(
 		final RandomAccessibleInterval<IntType> image)
 	{
-		if (!(image instanceof ArrayImg)) return null;
+		final RandomAccessibleInterval<IntType> img = PrimitiveBlocks.unwrap(image);
+		if (!(img instanceof ArrayImg)) return null;
 		@SuppressWarnings("unchecked")
-		final ArrayImg<IntType, ?> arrayImg = (ArrayImg<IntType, ?>) image;
+		final ArrayImg<IntType, ?> arrayImg = (ArrayImg<IntType, ?>) img;
 		final Object dataAccess = arrayImg.update(null);
 		return dataAccess instanceof IntArray ? //
 			((IntArray) dataAccess).getCurrentStorageArray() : null;
@@ -1040,9 +2949,10 @@ public final class Tensors {
 	private static long[] extractLongArray(
 		final RandomAccessibleInterval<LongType> image)
 	{
-		if (!(image instanceof ArrayImg)) return null;
+		final RandomAccessibleInterval<LongType> img = PrimitiveBlocks.unwrap(image);
+		if (!(img instanceof ArrayImg)) return null;
 		@SuppressWarnings("unchecked")
-		final ArrayImg<LongType, ?> arrayImg = (ArrayImg<LongType, ?>) image;
+		final ArrayImg<LongType, ?> arrayImg = (ArrayImg<LongType, ?>) img;
 		final Object dataAccess = arrayImg.update(null);
 		return dataAccess instanceof LongArray ? //
 			((LongArray) dataAccess).getCurrentStorageArray() : null;
@@ -1050,14 +2960,101 @@ public final class Tensors {
 
 	private static <T extends RealType<T>> void copy(
 		final RandomAccessibleInterval<T> source,
-		final IterableInterval<T> dest)
-	{
-		final RandomAccess<T> sourceAccess = source.randomAccess();
-		final Cursor<T> destCursor = dest.localizingCursor();
-		while (destCursor.hasNext()) {
-			destCursor.fwd();
-			sourceAccess.setPosition(destCursor);
-			destCursor.get().set(sourceAccess.get());
+		final RandomAccessibleInterval<T> dest)
+	{
+		copy(source, dest, (s, d) -> d.set(s));
+	}
+
+	/** Copies all pixels, converting them with the given assignment. */
+	private static <S, D> void copy(final RandomAccessibleInterval<S> source,
+		final RandomAccessibleInterval<D> dest, final BiConsumer<S, D> assign)
+	{
+		// NB: Chunks consist of whole lines so that they split the image along
+		// its slowest dimensions.
+		final long lineLength = dest.numDimensions() == 0 ? 1 : dest.dimension(0);
+		final long lines = Intervals.numElements(dest) / Math.max(1, lineLength);
+		final long minLines = Math.max(1, MIN_PARALLEL_COPY / Math.max(1, lineLength));
+		ParallelChunks.forEach(lines, minLines, (from, to) -> copy(source, dest,
+			assign, from * lineLength, (to - from) * lineLength));
+	}
+
+	/** Copies {@code count} pixels in flat iteration order, starting at {@code offset}. */
+	private static <S, D> void copy(final RandomAccessibleInterval<S> source,
+		final RandomAccessibleInterval<D> dest, final BiConsumer<S, D> assign,
+		final long offset, final long count)
+	{
+		final Cursor<S> sourceCursor = Views.flatIterable(source).cursor();
+		final Cursor<D> destCursor = Views.flatIterable(dest).cursor();
+		sourceCursor.jumpFwd(offset);
+		destCursor.jumpFwd(offset);
+		for (long i = 0; i < count; i++) {
+			assign.accept(sourceCursor.next(), destCursor.next());
+		}
+	}
+
+	/**
+	 * A cached plan for converting Tensors of one data type and shape into
+	 * images with a given dimension order.
+	 */
+	private static final class ImgPlan {
+
+		private static final int MAX_CACHED_PLANS = 256;
+
+		private static final Map<String, ImgPlan> plans =
+			new ConcurrentHashMap<>();
+
+		private final DataType dataType;
+		private final long[] dims;
+
+		/**
+		 * The plan gathering the image from the Tensor data, or null if image and
+		 * Tensor have the same layout.
+		 */
+		private final CopyPlan copy;
+
+		private ImgPlan(final DataType dataType, final long[] shape,
+			final int[] dimOrder)
+		{
+			CopyPlan.checkDimOrder(shape.length, dimOrder);
+			this.dataType = dataType;
+			dims = new long[shape.length];
+			for (int d = 0; d < dims.length; d++) {
+				dims[d] = shape[dimOrder[d]];
+			}
+			final CopyPlan plan = CopyPlan.get(dims, dimOrder);
+			copy = plan.isIdentity() ? null : plan;
+		}
+
+		private static ImgPlan get(final DataType dataType, final long[] shape,
+			final int[] dimOrder)
+		{
+			final String key = dataType + Arrays.toString(shape) + Arrays.toString(
+				dimOrder);
+			ImgPlan plan = plans.get(key);
+			if (plan == null) {
+				plan = new ImgPlan(dataType, shape, dimOrder);
+				if (plans.size() >= MAX_CACHED_PLANS) plans.clear();
+				plans.put(key, plan);
+			}
+			return plan;
+		}
+
+		private Img<?> convert(final Tensor<?> image) {
+			final Img<?> img = arrayImg(dataType, dims);
+			final Object array = ((ArrayDataAccess<?>) ((ArrayImg<?, ?>) img).update(
+				null)).getCurrentStorageArray();
+			if (copy == null) {
+				readTo(image, array);
+				return img;
+			}
+			try (final TensorBufferPool.Lease lease = stagingPool.lease(image
+				.numBytes()))
+			{
+				final ByteBuffer bytes = readTo(image, dataType, lease);
+				copy.execute(CopyPlan.gather(typedBuffer(bytes, array.getClass()),
+					array), 0);
+			}
+			return img;
 		}
 	}
 }
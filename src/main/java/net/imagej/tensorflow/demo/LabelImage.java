@@ -116,7 +116,8 @@ public class LabelImage implements Command {
 			)
 			{
 				outputImage = Tensors.imgFloat(image, new int[]{ 2, 1, 3, 0 });
-				final float[] labelProbabilities = executeInceptionGraph(graph, image);
+				final float[] labelProbabilities = executeInceptionGraph(
+					tensorFlowService.session(graph), image);
 
 				// Sort labels by probability.
 				final int labelCount = Math.min(labelProbabilities.length, labels
@@ -203,11 +204,10 @@ public class LabelImage implements Command {
 		}
 	}
 
-	private static float[] executeInceptionGraph(final Graph g,
+	private static float[] executeInceptionGraph(final Session s,
 		final Tensor<Float> image)
 	{
 		try (
-			final Session s = new Session(g);
 			@SuppressWarnings("unchecked")
 			final Tensor<Float> result = (Tensor<Float>) s.runner().feed("input", image)//
 				.fetch("output").run().get(0)
@@ -0,0 +1,224 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Predicts the output of a {@link TiledPredictor} for an image which is
+ * edited between predictions, e.g. in an interactive annotation workflow.
+ * Only the tiles affected by the changes since the previous prediction are
+ * predicted again; the outputs of all other tiles are kept.
+ * <p>
+ * Changes are found in one of two ways. Regions of the input which were
+ * changed can be marked with {@link #markDirty(Interval)}; a tile is then
+ * predicted again if its core, extended by the receptive field of the model,
+ * overlaps a dirty region. If no region was marked, the content of the input
+ * of every tile is hashed, and the tiles whose hash changed are predicted
+ * again.
+ * </p>
+ * <p>
+ * Tiles are stitched with {@link Stitching#CROP}.
+ * </p>
+ */
+public class IncrementalPredictor<T extends RealType<T>> {
+
+	private final TiledPredictor predictor;
+	private final RandomAccessibleInterval<T> input;
+	private final long[] offset;
+	private final Tiling tiling;
+	private final long[] receptiveField;
+	private final List<Interval> dirty = new ArrayList<>();
+	private RandomAccessibleInterval<FloatType> output;
+	private long[] hashes;
+	private long lastPredictedTiles;
+
+	/**
+	 * Creates an incremental predictor.
+	 *
+	 * @param predictor The predictor of the tiles.
+	 * @param input The input image, which may change between predictions.
+	 * @throws IllegalArgumentException if the predictor blends its tiles.
+	 */
+	public IncrementalPredictor(final TiledPredictor predictor,
+		final RandomAccessibleInterval<T> input)
+	{
+		if (predictor.getStitching() != Stitching.CROP) {
+			throw new IllegalArgumentException(
+				"Incremental predictions can only crop their tiles");
+		}
+		this.predictor = predictor;
+		offset = Intervals.minAsLongArray(input);
+		this.input = Views.zeroMin(input);
+		tiling = predictor.tiling(this.input);
+		receptiveField = tiling.getHalo();
+	}
+
+	/**
+	 * Sets the receptive field of the model: the distance along each dimension
+	 * over which a change of the input affects the output. Defaults to the
+	 * halo of the predictor. A dirty region marks all tiles within this
+	 * distance of their core, so a field narrower than the reach of the model
+	 * misses changed tiles.
+	 *
+	 * @throws IllegalArgumentException if the number of dimensions does not
+	 *           match or if a distance is negative.
+	 */
+	public void setReceptiveField(final long... receptiveField) {
+		if (receptiveField.length != this.receptiveField.length || Arrays.stream(
+			receptiveField).anyMatch(r -> r < 0))
+		{
+			throw new IllegalArgumentException("Invalid receptive field: " + Arrays
+				.toString(receptiveField));
+		}
+		System.arraycopy(receptiveField, 0, this.receptiveField, 0,
+			receptiveField.length);
+	}
+
+	/**
+	 * Marks a region of the input as changed, in the coordinates of the input
+	 * image. The tiles affected by all regions marked since the previous
+	 * prediction are predicted by the next one, without hashing the input.
+	 */
+	public void markDirty(final Interval region) {
+		final long[] min = Intervals.minAsLongArray(region);
+		final long[] max = Intervals.maxAsLongArray(region);
+		for (int d = 0; d < min.length; d++) {
+			// NB: Translates into the coordinates of the zero-min input.
+			min[d] -= offset[d];
+			max[d] -= offset[d];
+		}
+		synchronized (dirty) {
+			dirty.add(new FinalInterval(min, max));
+		}
+	}
+
+	/**
+	 * Predicts the tiles which changed since the previous prediction. The first
+	 * prediction predicts all tiles.
+	 *
+	 * @return The output image, which is updated in place by later predictions.
+	 */
+	public synchronized RandomAccessibleInterval<FloatType> predict() {
+		final List<Interval> regions;
+		synchronized (dirty) {
+			regions = new ArrayList<>(dirty);
+			dirty.clear();
+		}
+		final boolean[] selected = new boolean[(int) tiling.numTiles()];
+		if (output == null) {
+			Arrays.fill(selected, true);
+			hashes = hashes();
+		}
+		else if (!regions.isEmpty()) {
+			for (final Tile tile : tiling.tiles()) {
+				selected[(int) tile.getIndex()] = affected(tile, regions);
+			}
+			// NB: Keeps the hashes up to date for later predictions.
+			final long[] newHashes = hashes(selected);
+			for (int i = 0; i < selected.length; i++) {
+				if (selected[i]) hashes[i] = newHashes[i];
+			}
+		}
+		else {
+			final long[] newHashes = hashes();
+			for (int i = 0; i < selected.length; i++) {
+				selected[i] = newHashes[i] != hashes[i];
+			}
+			hashes = newHashes;
+		}
+		long count = 0;
+		for (final boolean s : selected) {
+			if (s) count++;
+		}
+		lastPredictedTiles = count;
+		if (output == null || count > 0) {
+			output = predictor.run(input, output, tile -> selected[(int) tile
+				.getIndex()]);
+		}
+		return output;
+	}
+
+	/** Gets the number of tiles predicted by the last prediction. */
+	public long getLastPredictedTiles() {
+		return lastPredictedTiles;
+	}
+
+	// -- Helper methods --
+
+	private boolean affected(final Tile tile, final List<Interval> regions) {
+		final Interval reach = Intervals.expand(tile.getCore(), receptiveField);
+		for (final Interval region : regions) {
+			if (!Intervals.isEmpty(Intervals.intersect(reach, region))) return true;
+		}
+		return false;
+	}
+
+	private long[] hashes() {
+		final boolean[] all = new boolean[(int) tiling.numTiles()];
+		Arrays.fill(all, true);
+		return hashes(all);
+	}
+
+	/** Hashes the inputs of the selected tiles, in parallel. */
+	private long[] hashes(final boolean[] selected) {
+		final RandomAccessible<T> extended = Views.extendMirrorSingle(input);
+		final long[] result = new long[selected.length];
+		IntStream.range(0, selected.length).parallel().filter(i -> selected[i])
+			.forEach(i -> result[i] = hash(Views.interval(extended, tiling.tile(i)
+				.getInput())));
+		return result;
+	}
+
+	private static <T extends RealType<T>> long hash(
+		final RandomAccessibleInterval<T> region)
+	{
+		long hash = 0;
+		for (final T t : Views.flatIterable(region)) {
+			hash = (hash ^ Double.doubleToLongBits(t.getRealDouble())) *
+				0x9e3779b97f4a7c15L;
+			hash ^= hash >>> 29;
+		}
+		return hash;
+	}
+}
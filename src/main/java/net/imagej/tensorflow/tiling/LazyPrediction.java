@@ -0,0 +1,367 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * The output of a {@link TiledPredictor} for an image, predicted lazily: each
+ * cell of the output image is predicted when it is first accessed, e.g. while
+ * browsing a large volume in a viewer which shows only a small part of it.
+ * <p>
+ * The cells of the output image are the tile cores of the predictor, and
+ * each cell is predicted from its tile including the halo. Predicted cells
+ * are kept in a bounded cache: the most recently used cells are held
+ * strongly, older ones only softly, so that the garbage collector can free
+ * them when memory gets low. Evicted cells are predicted again when they are
+ * accessed. Optionally, the neighbors of each accessed cell are predicted in
+ * the background, anticipating where the user will look next.
+ * </p>
+ * <p>
+ * The output image is a {@link LazyCellImg}. Cells of tiles which are
+ * predicted concurrently by several threads are only predicted once. Tiles
+ * are stitched with {@link Stitching#CROP}.
+ * </p>
+ */
+public class LazyPrediction<T extends RealType<T>> implements AutoCloseable {
+
+	private final TiledPredictor predictor;
+	private final Tiling tiling;
+	private final RandomAccessible<T> extended;
+	private final long[] outputDims;
+	private final CellGrid grid;
+	private final LazyCellImg<FloatType, FloatArray> img;
+	private final int maxCachedCells;
+
+	/** The most recently used cells, in access order. */
+	private final LinkedHashMap<Long, Cell<FloatArray>> recent;
+
+	/** Cells evicted from the recently used ones. */
+	private final Map<Long, CellReference> evicted = new ConcurrentHashMap<>();
+
+	/** Evicted cells freed by the garbage collector. */
+	private final ReferenceQueue<Cell<FloatArray>> freed =
+		new ReferenceQueue<>();
+
+	/**
+	 * The number of invalidations, so that cells predicted from an outdated
+	 * input are not cached.
+	 */
+	private long generation;
+
+	/** Cells which are being predicted. */
+	private final Map<Long, CompletableFuture<Cell<FloatArray>>> pending =
+		new ConcurrentHashMap<>();
+
+	private final ExecutorService prefetcher;
+	private volatile boolean prefetchNeighbors = true;
+	private final AtomicLong predictions = new AtomicLong();
+
+	/**
+	 * Creates the lazy prediction of an image. The first cell is predicted
+	 * right away, to find the dimensions of the output.
+	 *
+	 * @param predictor The predictor, whose tile size defines the cells of the
+	 *          output image.
+	 * @param input The input image.
+	 * @param maxCachedCells The number of most recently used cells which are
+	 *          held strongly, at least 1.
+	 * @throws IllegalArgumentException if the predictor blends its tiles, or
+	 *           if fewer than one cell is cached.
+	 */
+	public LazyPrediction(final TiledPredictor predictor,
+		final RandomAccessibleInterval<T> input, final int maxCachedCells)
+	{
+		if (predictor.getStitching() != Stitching.CROP) {
+			throw new IllegalArgumentException(
+				"Lazy predictions can only crop their tiles");
+		}
+		if (maxCachedCells < 1) {
+			throw new IllegalArgumentException("Invalid number of cached cells: " +
+				maxCachedCells);
+		}
+		this.predictor = predictor;
+		this.maxCachedCells = maxCachedCells;
+		final RandomAccessibleInterval<T> image = Views.zeroMin(input);
+		tiling = predictor.tiling(image);
+		extended = Views.extendMirrorSingle(image);
+		recent = new LinkedHashMap<>(16, 0.75f, true);
+
+		final Tile first = tiling.tile(0);
+		final RandomAccessibleInterval<? extends RealType<?>> firstOutput =
+			predictor.predictTile(extended, first);
+		outputDims = TiledPredictor.outputDimensions(tiling, firstOutput);
+		final int[] cellDims = new int[outputDims.length];
+		final long[] tileSize = tiling.getTileSize();
+		for (int d = 0; d < cellDims.length; d++) {
+			cellDims[d] = (int) (outputDims[d] == tiling.getImage().dimension(d)
+				? Math.min(tileSize[d], outputDims[d]) : outputDims[d]);
+		}
+		grid = new CellGrid(outputDims, cellDims);
+		cache(0, cell(first, firstOutput), generation);
+
+		prefetcher = Executors.newSingleThreadExecutor(task -> {
+			final Thread thread = new Thread(task, "LazyPrediction");
+			thread.setDaemon(true);
+			return thread;
+		});
+		img = new LazyCellImg<>(grid, new FloatType(), this::get);
+	}
+
+	/** Gets the lazily predicted output image. */
+	public LazyCellImg<FloatType, FloatArray> getImg() {
+		return img;
+	}
+
+	/**
+	 * Sets whether the neighbors of accessed cells are predicted in the
+	 * background. Enabled by default.
+	 */
+	public void setPrefetchNeighbors(final boolean prefetchNeighbors) {
+		this.prefetchNeighbors = prefetchNeighbors;
+	}
+
+	/** Gets the number of tiles predicted so far. */
+	public long getPredictions() {
+		return predictions.get();
+	}
+
+	/**
+	 * Discards all predicted cells, e.g. after the input image was changed.
+	 * Cells are predicted again when they are accessed. Cells which are being
+	 * predicted are not cached.
+	 */
+	public void invalidate() {
+		synchronized (recent) {
+			generation++;
+			recent.clear();
+			evicted.clear();
+			// NB: Later accesses do not wait for outdated predictions.
+			pending.clear();
+		}
+	}
+
+	/** Stops predicting cells in the background. */
+	@Override
+	public void close() {
+		prefetcher.shutdownNow();
+	}
+
+	// -- Helper methods --
+
+	/** Gets a cell, predicting it if it is not cached. */
+	private Cell<FloatArray> get(final long index) {
+		final Cell<FloatArray> cached = cached(index);
+		if (cached != null) return cached;
+		final Cell<FloatArray> cell = await(predict(index));
+		if (prefetchNeighbors) prefetchNeighbors(index);
+		return cell;
+	}
+
+	private Cell<FloatArray> cached(final long index) {
+		synchronized (recent) {
+			final Cell<FloatArray> cell = recent.get(index);
+			if (cell != null) return cell;
+			final CellReference ref = evicted.get(index);
+			final Cell<FloatArray> softCell = ref == null ? null : ref.get();
+			if (softCell != null) cache(index, softCell, generation);
+			return softCell;
+		}
+	}
+
+	/**
+	 * Predicts a cell, unless it is already being predicted.
+	 *
+	 * @return The future of the predicted cell.
+	 */
+	private CompletableFuture<Cell<FloatArray>> predict(final long index) {
+		final CompletableFuture<Cell<FloatArray>> future =
+			new CompletableFuture<>();
+		final CompletableFuture<Cell<FloatArray>> existing = pending.putIfAbsent(
+			index, future);
+		if (existing != null) return existing;
+		try {
+			final long generation;
+			synchronized (recent) {
+				generation = this.generation;
+			}
+			// NB: The cell may have been cached since it was looked up.
+			Cell<FloatArray> cell = cached(index);
+			if (cell == null) {
+				final Tile tile = tiling.tile(index);
+				cell = cell(tile, predictor.predictTile(extended, tile));
+				cache(index, cell, generation);
+			}
+			future.complete(cell);
+		}
+		catch (final Throwable t) {
+			future.completeExceptionally(t);
+		}
+		finally {
+			pending.remove(index, future);
+		}
+		return future;
+	}
+
+	private void prefetchNeighbors(final long index) {
+		final long[] gridDims = grid.getGridDimensions();
+		final long[] position = new long[gridDims.length];
+		IntervalIndexer.indexToPosition(index, gridDims, position);
+		for (int d = 0; d < position.length; d++) {
+			for (int step = -1; step <= 1; step += 2) {
+				position[d] += step;
+				if (position[d] >= 0 && position[d] < gridDims[d]) {
+					final long neighbor = IntervalIndexer.positionToIndex(position,
+						gridDims);
+					if (cached(neighbor) == null && !pending.containsKey(neighbor)) {
+						try {
+							prefetcher.execute(() -> {
+								if (cached(neighbor) == null) predict(neighbor);
+							});
+						}
+						catch (final RejectedExecutionException e) {
+							// NB: The prediction was closed.
+							return;
+						}
+					}
+				}
+				position[d] -= step;
+			}
+		}
+	}
+
+	/** Creates a cell holding the output of its tile. */
+	private Cell<FloatArray> cell(final Tile tile,
+		final RandomAccessibleInterval<? extends RealType<?>> tileOutput)
+	{
+		predictions.incrementAndGet();
+		final long index = tile.getIndex();
+		final long[] min = new long[outputDims.length];
+		final int[] dims = new int[outputDims.length];
+		grid.getCellDimensions(index, min, dims);
+		final FloatArray data = new FloatArray((int) Intervals.numElements(dims));
+		final RandomAccessibleInterval<FloatType> target = Views.translate(
+			ArrayImgs.floats(data.getCurrentStorageArray(), toLongs(dims)), min);
+		predictor.write(tiling, tile, tileOutput, target, outputDims);
+		return new Cell<>(dims, min, data);
+	}
+
+	/**
+	 * Caches a cell, unless the prediction was invalidated since the cell was
+	 * predicted.
+	 */
+	private void cache(final long index, final Cell<FloatArray> cell,
+		final long generation)
+	{
+		synchronized (recent) {
+			if (generation != this.generation) return;
+			// NB: Forgets the evicted cells freed by the garbage collector.
+			Reference<? extends Cell<FloatArray>> ref;
+			while ((ref = freed.poll()) != null) {
+				evicted.remove(((CellReference) ref).index, ref);
+			}
+			recent.put(index, cell);
+			evicted.remove(index);
+			if (recent.size() > maxCachedCells) {
+				final Map.Entry<Long, Cell<FloatArray>> eldest = recent.entrySet()
+					.iterator().next();
+				recent.remove(eldest.getKey());
+				evicted.put(eldest.getKey(), new CellReference(eldest.getKey(), eldest
+					.getValue(), freed));
+			}
+		}
+	}
+
+	private static Cell<FloatArray> await(
+		final CompletableFuture<Cell<FloatArray>> future)
+	{
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static long[] toLongs(final int[] values) {
+		final long[] longs = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			longs[i] = values[i];
+		}
+		return longs;
+	}
+
+	/** A softly held cell, which remembers its index once it is freed. */
+	private static final class CellReference extends
+		SoftReference<Cell<FloatArray>>
+	{
+
+		private final long index;
+
+		private CellReference(final long index, final Cell<FloatArray> cell,
+			final ReferenceQueue<Cell<FloatArray>> queue)
+		{
+			super(cell, queue);
+			this.index = index;
+		}
+	}
+}
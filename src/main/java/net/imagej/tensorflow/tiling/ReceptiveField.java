@@ -0,0 +1,390 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import net.imagej.tensorflow.Tensors;
+import net.imagej.tensorflow.util.GraphUtil;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.tensorflow.Graph;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
+import org.tensorflow.Shape;
+import org.tensorflow.Tensor;
+
+/**
+ * Measures the receptive field of a model, i.e. the smallest halo which lets
+ * a {@link TiledPredictor} stitch its tiles without seams.
+ * <p>
+ * The model is probed with impulse inputs: the output for an input with a
+ * single changed pixel in its center is compared with the output for the
+ * unchanged input, on a background of zeros and on a random background, so
+ * that activations which are cut off for one of them are still seen. The
+ * receptive field along each dimension is the largest distance of a changed
+ * output pixel from the impulse, scaled back to the input for models whose
+ * output is smaller or larger than their input.
+ * </p>
+ * <p>
+ * Tensor dimensions of unknown size, like the spatial dimensions of a fully
+ * convolutional network, are probed with increasing sizes until the changed
+ * output no longer reaches the border of the probe. Dimensions of known size,
+ * like channels, are fed at that size and have a receptive field of zero, as
+ * they are not tiled. A {@link #setBatchDimension(int) batch dimension} of
+ * unknown size is fed with a single sample and measures zero, since the
+ * samples of a batch are independent.
+ * </p>
+ *
+ * <pre>
+ * ReceptiveField field = new ReceptiveField(model, "input", "output", dimOrder);
+ * File cache = tensorFlowService.loadFile(source, modelName,
+ * 	ReceptiveField.CACHE_FILE);
+ * predictor.setHalo(field.measure(cache));
+ * </pre>
+ */
+public class ReceptiveField {
+
+	/**
+	 * The name of the file in which {@link #measure(File)} caches the receptive
+	 * fields of a model, next to the model in its cache directory.
+	 */
+	public static final String CACHE_FILE = "receptive-field.properties";
+
+	private final Graph graph;
+	private final Session session;
+	private final String input;
+	private final String output;
+	private final int[] dimOrder;
+	private long[] probeSizes = { 32, 64, 128, 256 };
+	private int batchDimension = 0;
+
+	/**
+	 * Creates a probe of a graph, which is run in a new session during the
+	 * measurement.
+	 *
+	 * @param graph The graph of the model.
+	 * @param input The name of the input operation.
+	 * @param output The name of the output operation.
+	 * @param dimOrder The mapping of the image dimensions to the dimensions of
+	 *          the input and output Tensors, as passed to the
+	 *          {@link TiledPredictor}.
+	 * @throws IllegalArgumentException if an operation does not exist.
+	 */
+	public ReceptiveField(final Graph graph, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this(graph, null, input, output, dimOrder);
+	}
+
+	/**
+	 * Creates a probe of a saved model, which is run in the session of the
+	 * model.
+	 *
+	 * @see #ReceptiveField(Graph, String, String, int[])
+	 */
+	public ReceptiveField(final SavedModelBundle model, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this(model.graph(), model.session(), input, output, dimOrder);
+	}
+
+	private ReceptiveField(final Graph graph, final Session session,
+		final String input, final String output, final int[] dimOrder)
+	{
+		this.graph = graph;
+		this.session = session;
+		this.input = input;
+		this.output = output;
+		this.dimOrder = dimOrder.clone();
+		GraphUtil.operation(graph, input);
+		GraphUtil.operation(graph, output);
+	}
+
+	/**
+	 * Sets the Tensor dimension holding the samples of a batch, or -1 if the
+	 * model takes no batch. Defaults to 0, the first dimension. It is not
+	 * probed, but fed at size 1 if its size is unknown.
+	 */
+	public void setBatchDimension(final int batchDimension) {
+		if (batchDimension < -1 || batchDimension >= dimOrder.length) {
+			throw new IllegalArgumentException("Invalid batch dimension: " +
+				batchDimension);
+		}
+		this.batchDimension = batchDimension;
+	}
+
+	/**
+	 * Sets the increasing sizes with which dimensions of unknown size are
+	 * probed. Defaults to 32, 64, 128 and 256, which are multiples of the
+	 * input size of most U-Nets.
+	 */
+	public void setProbeSizes(final long... probeSizes) {
+		for (int i = 0; i < probeSizes.length; i++) {
+			if (probeSizes[i] < 3 || i > 0 && probeSizes[i] <= probeSizes[i - 1]) {
+				throw new IllegalArgumentException("Invalid probe sizes: " + Arrays
+					.toString(probeSizes));
+			}
+		}
+		if (probeSizes.length == 0) {
+			throw new IllegalArgumentException("No probe sizes");
+		}
+		this.probeSizes = probeSizes.clone();
+	}
+
+	/**
+	 * Measures the receptive field of the model.
+	 *
+	 * @return The receptive field along each image dimension, which is the
+	 *         smallest correct halo of a {@link TiledPredictor}.
+	 * @throws IllegalArgumentException if the receptive field exceeds the
+	 *           largest probe, or if the output does not match the input.
+	 */
+	public long[] measure() {
+		if (session != null) return measure(session);
+		try (Session s = new Session(graph)) {
+			return measure(s);
+		}
+	}
+
+	/**
+	 * Measures the receptive field of the model, or reads it from a cache file
+	 * if it was measured before. The file may hold the receptive fields of
+	 * several inputs and outputs of a model.
+	 *
+	 * @param cacheFile The cache file, usually {@link #CACHE_FILE} in the
+	 *          directory of the model.
+	 * @throws IOException if the cache file cannot be read or written.
+	 * @see #measure()
+	 */
+	public long[] measure(final File cacheFile) throws IOException {
+		final String key = input + "->" + output + Arrays.toString(dimOrder) +
+			(batchDimension == 0 ? "" : "batch" + batchDimension);
+		synchronized (ReceptiveField.class) {
+			final Properties cache = load(cacheFile);
+			final String cached = cache.getProperty(key);
+			if (cached != null) {
+				return Arrays.stream(cached.split(",")).mapToLong(Long::parseLong)
+					.toArray();
+			}
+		}
+		final long[] field = measure();
+		synchronized (ReceptiveField.class) {
+			// NB: Reloads the cache, which another probe may have updated.
+			final Properties cache = load(cacheFile);
+			cache.setProperty(key, Arrays.stream(field).mapToObj(Long::toString)
+				.collect(Collectors.joining(",")));
+			final File tmp = new File(cacheFile.getPath() + ".tmp");
+			try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+				cache.store(out, "Receptive fields measured by " + getClass()
+					.getName());
+			}
+			Files.move(tmp.toPath(), cacheFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		return field;
+	}
+
+	// -- Helper methods --
+
+	private long[] measure(final Session s) {
+		final int n = dimOrder.length;
+		final Shape shape = GraphUtil.operation(graph, input).output(0)
+			.shape();
+		if (shape.numDimensions() >= 0 && shape.numDimensions() != n) {
+			throw new IllegalArgumentException("Expected an input with " + n +
+				" dimensions");
+		}
+		final long[] size = new long[n];
+		final int[] probe = new int[n];
+		for (int d = 0; d < n; d++) {
+			final long fixed = shape.numDimensions() < 0 ? -1 : shape.size(
+				dimOrder[d]);
+			final boolean batch = dimOrder[d] == batchDimension;
+			size[d] = fixed >= 0 ? fixed : batch ? 1 : probeSizes[0];
+			probe[d] = fixed < 0 && !batch ? 0 : -1;
+		}
+		while (true) {
+			final long[] field = probe(s, size);
+			boolean done = true;
+			for (int d = 0; d < n; d++) {
+				if (probe[d] < 0) {
+					field[d] = 0;
+					continue;
+				}
+				final long center = size[d] / 2;
+				if (field[d] < Math.min(center, size[d] - 1 - center)) continue;
+				if (probe[d] == probeSizes.length - 1) {
+					throw new IllegalArgumentException("The receptive field along " +
+						"dimension " + d + " exceeds the probe of size " + size[d]);
+				}
+				size[d] = probeSizes[++probe[d]];
+				done = false;
+			}
+			if (done) return field;
+		}
+	}
+
+	/** Measures the receptive field with probes of one size. */
+	private long[] probe(final Session s, final long[] size) {
+		final int n = size.length;
+		final long[] center = new long[n];
+		for (int d = 0; d < n; d++) {
+			center[d] = size[d] / 2;
+		}
+		final Img<FloatType> background = new ArrayImgFactory<>(new FloatType())
+			.create(size);
+		final double[] field = new double[n];
+		final Random random = new Random(42);
+		for (int b = 0; b < 2; b++) {
+			if (b > 0) {
+				for (final FloatType t : background) {
+					t.set(random.nextFloat());
+				}
+			}
+			final Img<FloatType> impulse = background.copy();
+			final RandomAccess<FloatType> access = impulse.randomAccess();
+			access.setPosition(center);
+			access.get().set(access.get().get() + 1);
+			try (Tensor<?> expected = run(s, background);
+					Tensor<?> actual = run(s, impulse))
+			{
+				addChanges(realImg(expected), realImg(actual), size, center, field);
+			}
+		}
+		final long[] result = new long[n];
+		for (int d = 0; d < n; d++) {
+			// NB: Tolerates rounding of the scale of resampling models.
+			result[d] = (long) Math.ceil(field[d] - 1e-6);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private RandomAccessibleInterval<? extends RealType<?>> realImg(
+		final Tensor<?> tensor)
+	{
+		return (RandomAccessibleInterval<? extends RealType<?>>) Tensors.img(
+			tensor, dimOrder);
+	}
+
+	private Tensor<?> run(final Session s, final Img<FloatType> image) {
+		try (Tensor<Float> tensor = Tensors.tensorFloat(image, dimOrder)) {
+			return s.runner().feed(input, tensor).fetch(output).run().get(0);
+		}
+	}
+
+	/**
+	 * Grows the receptive field to the distances of all changed output pixels
+	 * from the impulse, in the pixels of the input.
+	 */
+	private static void addChanges(
+		final RandomAccessibleInterval<? extends RealType<?>> expected,
+		final RandomAccessibleInterval<? extends RealType<?>> actual,
+		final long[] size,
+		final long[] center, final double[] field)
+	{
+		final int n = size.length;
+		if (expected.numDimensions() != n) {
+			throw new IllegalArgumentException("Expected an output with " + n +
+				" dimensions");
+		}
+		final double[] scale = new double[n];
+		for (int d = 0; d < n; d++) {
+			scale[d] = (double) expected.dimension(d) / size[d];
+		}
+		final double[] change = changes(expected, actual);
+		double max = 0;
+		for (final double c : change) {
+			max = Math.max(max, c);
+		}
+		if (max == 0) return;
+		// NB: Ignores rounding errors of the unchanged pixels.
+		final double threshold = max * 1e-5;
+		final long[] dims = Intervals.dimensionsAsLongArray(expected);
+		final long[] position = new long[n];
+		for (int i = 0; i < change.length; i++) {
+			if (change[i] > threshold) {
+				IntervalIndexer.indexToPosition(i, dims, position);
+				for (int d = 0; d < n; d++) {
+					final double x = (position[d] + 0.5) / scale[d] - 0.5;
+					field[d] = Math.max(field[d], Math.abs(x - center[d]));
+				}
+			}
+		}
+	}
+
+	/** Gets the absolute differences of two images, in flat iteration order. */
+	private static double[] changes(
+		final RandomAccessibleInterval<? extends RealType<?>> expected,
+		final RandomAccessibleInterval<? extends RealType<?>> actual)
+	{
+		final double[] change = new double[(int) Intervals.numElements(
+			expected)];
+		final Cursor<? extends RealType<?>> e = Views.flatIterable(expected)
+			.cursor();
+		final Cursor<? extends RealType<?>> a = Views.flatIterable(actual)
+			.cursor();
+		for (int i = 0; i < change.length; i++) {
+			change[i] = Math.abs(a.next().getRealDouble() - e.next()
+				.getRealDouble());
+		}
+		return change;
+	}
+
+	private static Properties load(final File file) throws IOException {
+		final Properties properties = new Properties();
+		if (file.exists()) {
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+}
@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import net.imglib2.Interval;
+
+/**
+ * One tile of a {@link Tiling}: the core region of the image it predicts and
+ * the larger input region, including the halo, which is fed to the model.
+ */
+public final class Tile {
+
+	private final long index;
+	private final Interval core;
+	private final Interval input;
+
+	Tile(final long index, final Interval core, final Interval input) {
+		this.index = index;
+		this.core = core;
+		this.input = input;
+	}
+
+	/** Gets the index of the tile in the flat iteration order of its grid. */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the region of the image predicted by this tile. The cores of all
+	 * tiles partition the image.
+	 */
+	public Interval getCore() {
+		return core;
+	}
+
+	/**
+	 * Gets the region of the image fed to the model, which is the core extended
+	 * by the halo and to the full tile size. It may reach beyond the image.
+	 */
+	public Interval getInput() {
+		return input;
+	}
+
+	@Override
+	public String toString() {
+		return "Tile " + index + " " + core;
+	}
+}
@@ -0,0 +1,140 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import net.imagej.tensorflow.CachedModelBundle;
+
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+/**
+ * A model predicting the output of one tile.
+ *
+ * @see TiledPredictor
+ */
+@FunctionalInterface
+public interface TileModel {
+
+	/**
+	 * Predicts the output of one tile.
+	 *
+	 * @param input The input Tensor of the tile, which is closed by the caller.
+	 * @return The output Tensor of the tile, which is closed by the caller.
+	 */
+	Tensor<?> run(Tensor<?> input);
+
+	/**
+	 * Opens the model for the tiles of one prediction, e.g. to hold the
+	 * resources of the model until all tiles are predicted. By default, the
+	 * opened model runs this model and holds nothing.
+	 *
+	 * @return The opened model, which is closed after the last tile.
+	 */
+	default Opened open() {
+		return new Opened() {
+
+			@Override
+			public Tensor<?> run(final Tensor<?> input) {
+				return TileModel.this.run(input);
+			}
+
+			@Override
+			public void close() {
+				// NB: Nothing to release.
+			}
+		};
+	}
+
+	/**
+	 * Creates a model feeding the tiles to one operation of a session and
+	 * fetching the output of another.
+	 *
+	 * @param session The session running the graph.
+	 * @param input The name of the input operation, e.g. {@code "input"} or
+	 *          {@code "input:0"}.
+	 * @param output The name of the output operation.
+	 */
+	static TileModel of(final Session session, final String input,
+		final String output)
+	{
+		return tile -> session.runner().feed(input, tile).fetch(output).run().get(
+			0);
+	}
+
+	/**
+	 * Creates a model feeding the tiles to one operation of a saved model and
+	 * fetching the output of another. Each prediction holds one lease of the
+	 * model from its first to its last tile, so the cache cannot release the
+	 * model in between.
+	 *
+	 * @throws IllegalStateException when a prediction starts if the model is
+	 *           closed.
+	 * @see #of(Session, String, String)
+	 */
+	static TileModel of(final CachedModelBundle model, final String input,
+		final String output)
+	{
+		return new TileModel() {
+
+			@Override
+			public Tensor<?> run(final Tensor<?> tile) {
+				try (CachedModelBundle.Lease lease = model.acquire()) {
+					return of(lease.model().session(), input, output).run(tile);
+				}
+			}
+
+			@Override
+			public Opened open() {
+				final CachedModelBundle.Lease lease = model.acquire();
+				final TileModel leased = of(lease.model().session(), input, output);
+				return new Opened() {
+
+					@Override
+					public Tensor<?> run(final Tensor<?> tile) {
+						return leased.run(tile);
+					}
+
+					@Override
+					public void close() {
+						lease.close();
+					}
+				};
+			}
+		};
+	}
+
+	/** A model opened for the tiles of one prediction. */
+	interface Opened extends TileModel, AutoCloseable {
+
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.util.Arrays;
+
+/**
+ * The tile size, halo and pipeline depth chosen by a {@link TilePlanner},
+ * with the memory they are estimated to need.
+ */
+public final class TilePlan {
+
+	private final long[] tileSize;
+	private final long[] halo;
+	private final int queueDepth;
+	private final long nativeBytes;
+	private final long heapBytes;
+
+	TilePlan(final long[] tileSize, final long[] halo, final int queueDepth,
+		final long nativeBytes, final long heapBytes)
+	{
+		this.tileSize = tileSize;
+		this.halo = halo;
+		this.queueDepth = queueDepth;
+		this.nativeBytes = nativeBytes;
+		this.heapBytes = heapBytes;
+	}
+
+	/** Gets the size of the tile cores along each image dimension. */
+	public long[] getTileSize() {
+		return tileSize.clone();
+	}
+
+	/** Gets the halo on each side of the tiles. */
+	public long[] getHalo() {
+		return halo.clone();
+	}
+
+	/** Gets the size of the input of each tile, including the halo. */
+	public long[] getInputSize() {
+		final long[] size = new long[tileSize.length];
+		for (int d = 0; d < size.length; d++) {
+			size[d] = tileSize[d] + 2 * halo[d];
+		}
+		return size;
+	}
+
+	/** Gets the depth of the queues between the stages of the prediction. */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/** Gets the estimated peak native memory of the prediction in bytes. */
+	public long getNativeBytes() {
+		return nativeBytes;
+	}
+
+	/**
+	 * Gets the estimated peak heap memory of the prediction in bytes, not
+	 * counting the output image.
+	 */
+	public long getHeapBytes() {
+		return heapBytes;
+	}
+
+	/**
+	 * Configures a predictor to use this plan. Tiles larger than the image are
+	 * kept, so that the model gets the planned input size.
+	 */
+	public void apply(final TiledPredictor predictor) {
+		predictor.setTileSize(tileSize);
+		predictor.setKeepLargeTiles(true);
+		predictor.setHalo(halo);
+		predictor.setQueueDepth(queueDepth);
+	}
+
+	@Override
+	public String toString() {
+		return "Tiles of " + Arrays.toString(tileSize) + " with halo " + Arrays
+			.toString(halo) + ", queue depth " + queueDepth + ": ~" + nativeBytes +
+			" native bytes, ~" + heapBytes + " heap bytes";
+	}
+}
@@ -0,0 +1,352 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.imagej.tensorflow.util.GraphUtil;
+import net.imglib2.Interval;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Operation;
+import org.tensorflow.Output;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Shape;
+
+/**
+ * Chooses the largest tiles for a {@link TiledPredictor} which fit into a
+ * memory budget, based on the shapes of a model.
+ * <p>
+ * The shapes and data types of the input, the output and the intermediate
+ * activations are read from the graph. Tensor dimensions of unknown size,
+ * like the spatial dimensions of a fully convolutional network, are free to
+ * be chosen; dimensions of known size, like channels or the input size of a
+ * model with fixed input shape, are kept. The native memory of one tile is
+ * estimated as the sum of its input, its output and all activations whose
+ * size depends on the tile size, which is an upper bound as TensorFlow frees
+ * activations once they are no longer needed. Activations whose number of
+ * dimensions differs from the input are not counted.
+ * </p>
+ * <p>
+ * Starting from tiles covering the whole image, the largest free dimension of
+ * the tiles is shrunk until the estimate for the whole pipeline of the
+ * predictor fits into the budget. The input size of the tiles, including the
+ * halo, stays a multiple of the configured values, e.g. 16 for a U-Net with
+ * four pooling layers.
+ * </p>
+ *
+ * <pre>
+ * TilePlanner planner = new TilePlanner(model, "input", "output", dimOrder);
+ * planner.setHalo(16, 16, 0);
+ * planner.setMultipleOf(16, 16, 1);
+ * planner.setNativeBudget(2L &lt;&lt; 30);
+ * planner.plan(image).apply(predictor);
+ * </pre>
+ */
+public class TilePlanner {
+
+	private final Graph graph;
+	private final String input;
+	private final String output;
+	private final int[] dimOrder;
+	private long[] halo;
+	private long[] multipleOf;
+	private long nativeBudget = 1L << 30;
+	private long heapBudget = Runtime.getRuntime().maxMemory() / 4;
+	private int maxQueueDepth = 2;
+
+	/**
+	 * The native bytes of the activations, as coefficients of the products of
+	 * the Tensor dimensions which they depend on, keyed by the bit masks of
+	 * these dimensions. Computed once, as graphs can have many operations.
+	 */
+	private final Map<Long, Double> activations = new HashMap<>();
+
+	/**
+	 * Creates a planner for a graph.
+	 *
+	 * @param graph The graph of the model.
+	 * @param input The name of the input operation.
+	 * @param output The name of the output operation.
+	 * @param dimOrder The mapping of the image dimensions to the dimensions of
+	 *          the input Tensor, as passed to the {@link TiledPredictor}.
+	 * @throws IllegalArgumentException if an operation does not exist.
+	 */
+	public TilePlanner(final Graph graph, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this.graph = graph;
+		this.input = input;
+		this.output = output;
+		this.dimOrder = dimOrder.clone();
+		final Operation in = GraphUtil.operation(graph, input);
+		GraphUtil.operation(graph, output);
+		final int rank = dimOrder.length;
+		for (final Iterator<Operation> it = graph.operations(); it.hasNext();) {
+			final Operation op = it.next();
+			if (op.name().equals(in.name())) continue;
+			for (int i = 0; i < op.numOutputs(); i++) {
+				final Output<?> out = op.output(i);
+				if (!dependsOnTileSize(out.shape(), rank)) continue;
+				long mask = 0;
+				double coefficient = GraphUtil.bytesPerElement(out.dataType());
+				for (int k = 0; k < rank; k++) {
+					if (out.shape().size(k) < 0) mask |= 1L << k;
+					else coefficient *= out.shape().size(k);
+				}
+				activations.merge(mask, coefficient, Double::sum);
+			}
+		}
+	}
+
+	/**
+	 * Creates a planner for a saved model.
+	 *
+	 * @see #TilePlanner(Graph, String, String, int[])
+	 */
+	public TilePlanner(final SavedModelBundle model, final String input,
+		final String output, final int[] dimOrder)
+	{
+		this(model.graph(), input, output, dimOrder);
+	}
+
+	/** Sets the halo on each side of the tiles. Defaults to zero. */
+	public void setHalo(final long... halo) {
+		this.halo = halo.clone();
+	}
+
+	/**
+	 * Sets the values which the input size of the tiles must be a multiple of,
+	 * along each image dimension. Defaults to 1.
+	 */
+	public void setMultipleOf(final long... multipleOf) {
+		for (final long m : multipleOf) {
+			if (m <= 0) {
+				throw new IllegalArgumentException("Invalid multiple: " + Arrays
+					.toString(multipleOf));
+			}
+		}
+		this.multipleOf = multipleOf.clone();
+	}
+
+	/** Sets the native memory available to the prediction. Defaults to 1 GB. */
+	public void setNativeBudget(final long bytes) {
+		nativeBudget = bytes;
+	}
+
+	/**
+	 * Sets the heap memory available to the prediction, not counting the
+	 * output image. Defaults to a quarter of the maximum heap size.
+	 */
+	public void setHeapBudget(final long bytes) {
+		heapBudget = bytes;
+	}
+
+	/**
+	 * Sets the queue depth of the planned pipeline, see
+	 * {@link TiledPredictor#setQueueDepth(int)}. Defaults to 2. Images which fit
+	 * into one tile are predicted without a pipeline.
+	 */
+	public void setMaxQueueDepth(final int maxQueueDepth) {
+		if (maxQueueDepth < 0) {
+			throw new IllegalArgumentException("Invalid queue depth: " +
+				maxQueueDepth);
+		}
+		this.maxQueueDepth = maxQueueDepth;
+	}
+
+	/**
+	 * Plans the tiles of an image.
+	 *
+	 * @throws IllegalArgumentException if the model does not fit the image, or
+	 *           if even the smallest tiles exceed the budget.
+	 */
+	public TilePlan plan(final Interval image) {
+		final int n = image.numDimensions();
+		if (dimOrder.length != n) {
+			throw new IllegalArgumentException("Expected an image with " +
+				dimOrder.length + " dimensions");
+		}
+		final long[] halo = this.halo == null ? new long[n] : this.halo;
+		final Shape inputShape = GraphUtil.operation(graph, input).output(0)
+			.shape();
+		final long[] size = new long[n];
+		final long[] minSize = new long[n];
+		for (int d = 0; d < n; d++) {
+			final long m = multipleOf == null ? 1 : multipleOf[d];
+			final long fixed = inputShape.numDimensions() < 0 ? -1 : inputShape.size(
+				dimOrder[d]);
+			if (fixed >= 0) {
+				// NB: Tiles larger than the image are filled by mirroring.
+				if (fixed - 2 * halo[d] <= 0) {
+					throw new IllegalArgumentException("Model input of size " + fixed +
+						" does not fit image dimension " + d + " of size " + image
+							.dimension(d) + " with halo " + halo[d]);
+				}
+				size[d] = minSize[d] = fixed;
+			}
+			else {
+				size[d] = roundUp(image.dimension(d) + 2 * halo[d], m);
+				minSize[d] = roundUp(2 * halo[d] + 1, m);
+			}
+		}
+		// NB: An image which fits into one tile needs no pipeline.
+		final int queueDepth = fits(size, 0) && covers(size, halo, image) ? 0
+			: maxQueueDepth;
+		while (!fits(size, queueDepth)) {
+			// NB: Shrinks the largest free dimension, to keep tiles compact.
+			int largest = -1;
+			for (int d = 0; d < n; d++) {
+				if (size[d] > minSize[d] && (largest < 0 || size[d] > size[largest])) {
+					largest = d;
+				}
+			}
+			if (largest < 0) {
+				throw new IllegalArgumentException("Tiles of " + Arrays.toString(
+					size) + " need ~" + nativeBytes(size, queueDepth) +
+					" native and ~" + heapBytes(size) + " heap bytes, exceeding " +
+					"the budget of " + nativeBudget + " and " + heapBudget + " bytes");
+			}
+			size[largest] -= multipleOf == null ? 1 : multipleOf[largest];
+		}
+		final long[] tileSize = new long[n];
+		for (int d = 0; d < n; d++) {
+			tileSize[d] = size[d] - 2 * halo[d];
+		}
+		return new TilePlan(tileSize, halo.clone(), queueDepth, nativeBytes(size,
+			queueDepth), heapBytes(size));
+	}
+
+	/**
+	 * Estimates the peak native memory of a tiled prediction: the input
+	 * Tensors waiting in the pipeline, the activations of the running tile and
+	 * the output Tensors waiting to be written.
+	 *
+	 * @param inputSize The size of the input of a tile along each image
+	 *          dimension, including the halo.
+	 * @param queueDepth The queue depth of the pipeline.
+	 */
+	public long nativeBytes(final long[] inputSize, final int queueDepth) {
+		final long[] shape = tensorShape(inputSize);
+		final Output<?> in = GraphUtil.operation(graph, input).output(0);
+		final double inputBytes = bytes(in.dataType(), in.shape(), shape);
+		double activationBytes = 0;
+		for (final Map.Entry<Long, Double> term : activations.entrySet()) {
+			double bytes = term.getValue();
+			for (int k = 0; k < shape.length; k++) {
+				if ((term.getKey() >> k & 1) != 0) bytes *= shape[k];
+			}
+			activationBytes += bytes;
+		}
+		return (long) Math.min(Long.MAX_VALUE, inputBytes * (queueDepth + 2) +
+			activationBytes + outputBytes(shape) * (queueDepth + 1));
+	}
+
+	/**
+	 * Estimates the heap memory of a tiled prediction, which holds the output
+	 * of one tile while it is written.
+	 *
+	 * @param inputSize The size of the input of a tile along each image
+	 *          dimension, including the halo.
+	 */
+	public long heapBytes(final long[] inputSize) {
+		return (long) Math.min(Long.MAX_VALUE, outputBytes(tensorShape(
+			inputSize)));
+	}
+
+	// -- Helper methods --
+
+	private boolean fits(final long[] inputSize, final int queueDepth) {
+		return nativeBytes(inputSize, queueDepth) <= nativeBudget && heapBytes(
+			inputSize) <= heapBudget;
+	}
+
+	private static boolean covers(final long[] inputSize, final long[] halo,
+		final Interval image)
+	{
+		for (int d = 0; d < inputSize.length; d++) {
+			if (inputSize[d] - 2 * halo[d] < image.dimension(d)) return false;
+		}
+		return true;
+	}
+
+	private long[] tensorShape(final long[] inputSize) {
+		final long[] shape = new long[inputSize.length];
+		for (int d = 0; d < shape.length; d++) {
+			shape[dimOrder[d]] = inputSize[d];
+		}
+		return shape;
+	}
+
+	private double outputBytes(final long[] inputShape) {
+		final Output<?> out = GraphUtil.operation(graph, output).output(0);
+		final Shape shape = out.shape();
+		if (shape.numDimensions() != inputShape.length) {
+			// NB: Without known dimensions, assumes an output like the input.
+			return bytes(out.dataType(), Shape.unknown(), inputShape);
+		}
+		return bytes(out.dataType(), shape, inputShape);
+	}
+
+	private static boolean dependsOnTileSize(final Shape shape,
+		final int rank)
+	{
+		if (shape.numDimensions() != rank) return false;
+		for (int i = 0; i < rank; i++) {
+			if (shape.size(i) < 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the bytes of a Tensor, replacing unknown dimensions by those of the
+	 * input.
+	 */
+	private static double bytes(final DataType dataType, final Shape shape,
+		final long[] inputShape)
+	{
+		double elements = 1;
+		for (int i = 0; i < inputShape.length; i++) {
+			final long size = shape.numDimensions() == inputShape.length ? shape
+				.size(i) : -1;
+			elements *= size < 0 ? inputShape[i] : size;
+		}
+		return elements * GraphUtil.bytesPerElement(dataType);
+	}
+
+	private static long roundUp(final long value, final long multiple) {
+		return (value + multiple - 1) / multiple * multiple;
+	}
+}
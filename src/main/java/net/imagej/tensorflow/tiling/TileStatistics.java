@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+/**
+ * Timing of a tiled prediction, e.g. to compare the throughput of different
+ * tile sizes.
+ * <p>
+ * Besides the wall time, the time spent in each stage of the prediction is
+ * summed up over all tiles: converting the input of a tile into a Tensor,
+ * running the model, and writing its output into the output image. When the
+ * stages are pipelined, they also wait for each other: a stage waits for its
+ * input if the previous stage is slower, and for space in its output queue
+ * if the next stage is slower. The stage which hardly waits is the
+ * bottleneck.
+ * </p>
+ *
+ * @see TiledPredictor#getStatistics()
+ */
+public final class TileStatistics {
+
+	private final long tiles;
+	private final long pixels;
+	private final long wallNanos;
+	private final int queueDepth;
+	private final long convertNanos;
+	private final long runNanos;
+	private final long writeNanos;
+	private final long convertWaitNanos;
+	private final long runWaitNanos;
+	private final long writeWaitNanos;
+
+	TileStatistics(final long tiles, final long pixels, final long wallNanos,
+		final int queueDepth, final long convertNanos, final long runNanos,
+		final long writeNanos, final long convertWaitNanos,
+		final long runWaitNanos, final long writeWaitNanos)
+	{
+		this.tiles = tiles;
+		this.pixels = pixels;
+		this.wallNanos = wallNanos;
+		this.queueDepth = queueDepth;
+		this.convertNanos = convertNanos;
+		this.runNanos = runNanos;
+		this.writeNanos = writeNanos;
+		this.convertWaitNanos = convertWaitNanos;
+		this.runWaitNanos = runWaitNanos;
+		this.writeWaitNanos = writeWaitNanos;
+	}
+
+	/** Gets the number of predicted tiles. */
+	public long getTiles() {
+		return tiles;
+	}
+
+	/** Gets the number of predicted pixels, i.e. the pixels of all tile cores. */
+	public long getPixels() {
+		return pixels;
+	}
+
+	/** Gets the wall time of the prediction in nanoseconds. */
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * Gets the depth of the queues between the stages, or zero if the stages
+	 * ran one after the other.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/** Gets the time spent converting tiles into Tensors, in nanoseconds. */
+	public long getConvertNanos() {
+		return convertNanos;
+	}
+
+	/** Gets the time spent running the model, in nanoseconds. */
+	public long getRunNanos() {
+		return runNanos;
+	}
+
+	/** Gets the time spent writing tile outputs, in nanoseconds. */
+	public long getWriteNanos() {
+		return writeNanos;
+	}
+
+	/**
+	 * Gets the time the conversion stage waited for space in its output queue,
+	 * in nanoseconds.
+	 */
+	public long getConvertWaitNanos() {
+		return convertWaitNanos;
+	}
+
+	/**
+	 * Gets the time the model stage waited for converted tiles and for space
+	 * in its output queue, in nanoseconds.
+	 */
+	public long getRunWaitNanos() {
+		return runWaitNanos;
+	}
+
+	/** Gets the time the write stage waited for tile outputs, in nanoseconds. */
+	public long getWriteWaitNanos() {
+		return writeWaitNanos;
+	}
+
+	/** Gets the number of tiles predicted per second of wall time. */
+	public double tilesPerSecond() {
+		return perSecond(tiles);
+	}
+
+	/** Gets the number of pixels predicted per second of wall time. */
+	public double pixelsPerSecond() {
+		return perSecond(pixels);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d tiles in %.3f s (%.1f tiles/s, %.3g pixels/s); " +
+			"convert %.3f s (waiting %.3f s), run %.3f s (waiting %.3f s), " +
+			"write %.3f s (waiting %.3f s)", tiles, wallNanos / 1e9,
+			tilesPerSecond(), pixelsPerSecond(), convertNanos / 1e9,
+			convertWaitNanos / 1e9, runNanos / 1e9, runWaitNanos / 1e9, writeNanos /
+				1e9, writeWaitNanos / 1e9);
+	}
+
+	private double perSecond(final long count) {
+		return wallNanos == 0 ? 0 : count * 1e9 / wallNanos;
+	}
+}
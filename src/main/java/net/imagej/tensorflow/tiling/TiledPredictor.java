@@ -0,0 +1,720 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import net.imagej.tensorflow.Normalization;
+import net.imagej.tensorflow.Tensors;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Tensor;
+
+/**
+ * Predicts the output of a model for an image tile by tile, so that images
+ * larger than the native memory available to TensorFlow can be processed.
+ * <p>
+ * The image is split into tiles with a {@link Tiling}. The input of each tile
+ * is converted into a float Tensor, with the given dimension order and
+ * optional {@link Normalization}, and fed to the {@link TileModel}. Pixels
+ * outside of the image are mirrored. The output Tensors are stitched into one
+ * float image, as defined by the {@link Stitching}.
+ * </p>
+ * <p>
+ * The conversion of the next tiles and the writing of the previous outputs
+ * run on worker threads while the model runs on the calling thread, see
+ * {@link #setQueueDepth(int)}.
+ * </p>
+ * <p>
+ * The model has to predict dense outputs: each output dimension either has
+ * the extent of the input tile, or is a dimension which is not tiled, like a
+ * channel dimension. Its extent then becomes the extent of the output image.
+ * </p>
+ *
+ * <pre>
+ * TiledPredictor predictor = new TiledPredictor(TileModel.of(session,
+ * 	"input", "output"), dimOrder);
+ * predictor.setTileSize(256, 256, 1);
+ * predictor.setHalo(16, 16, 0);
+ * Img&lt;FloatType&gt; output = predictor.predict(image);
+ * </pre>
+ */
+public class TiledPredictor {
+
+	private final TileModel model;
+	private final int[] dimOrder;
+	private int[] outputDimOrder;
+	private long[] tileSize;
+	private long[] halo;
+	private boolean keepLargeTiles;
+	private Stitching stitching = Stitching.CROP;
+	private Normalization normalization;
+	private int queueDepth = 2;
+	private volatile TileStatistics statistics;
+
+	/**
+	 * Creates a tiled predictor.
+	 *
+	 * @param model The model predicting each tile.
+	 * @param dimOrder The mapping of the image dimensions to the dimensions of
+	 *          the input Tensors, as in
+	 *          {@link Tensors#tensor(RandomAccessibleInterval, int[])}. Also used
+	 *          for the output Tensors unless
+	 *          {@link #setOutputDimOrder(int[])} is called.
+	 */
+	public TiledPredictor(final TileModel model, final int[] dimOrder) {
+		this.model = model;
+		this.dimOrder = dimOrder.clone();
+		outputDimOrder = this.dimOrder;
+	}
+
+	/**
+	 * Sets the mapping of the dimensions of the output Tensors to the output
+	 * image, as in {@link Tensors#img(Tensor, int[])}.
+	 */
+	public void setOutputDimOrder(final int... outputDimOrder) {
+		this.outputDimOrder = outputDimOrder.clone();
+	}
+
+	/**
+	 * Sets the size of the tile cores along each image dimension. By default,
+	 * the whole image is predicted as one tile. Tiles larger than the image
+	 * are reduced to the size of the image, unless large tiles are kept.
+	 *
+	 * @see #setKeepLargeTiles(boolean)
+	 */
+	public void setTileSize(final long... tileSize) {
+		this.tileSize = tileSize.clone();
+	}
+
+	/**
+	 * Sets whether tiles larger than the image keep their size, and are filled
+	 * by mirroring the image. This is needed for models which only accept
+	 * certain input sizes, e.g. a fixed size or a multiple of 16, and is set by
+	 * {@link TilePlan#apply}. Defaults to false.
+	 */
+	public void setKeepLargeTiles(final boolean keepLargeTiles) {
+		this.keepLargeTiles = keepLargeTiles;
+	}
+
+	/** Sets the halo added on each side of the tiles. Defaults to zero. */
+	public void setHalo(final long... halo) {
+		this.halo = halo.clone();
+	}
+
+	/** Sets how the tile outputs are stitched. Defaults to {@link Stitching#CROP}. */
+	public void setStitching(final Stitching stitching) {
+		this.stitching = stitching;
+	}
+
+	/** Sets the normalization applied to the input tiles, or null for none. */
+	public void setNormalization(final Normalization normalization) {
+		this.normalization = normalization;
+	}
+
+	/**
+	 * Sets the number of tiles which may wait between two stages of the
+	 * prediction. With a depth of at least one, the next tiles are converted
+	 * and the previous outputs written while the model runs, at the cost of
+	 * the native memory of up to {@code 2 * queueDepth + 3} tile Tensors. With
+	 * a depth of zero, all stages run one after the other on the calling
+	 * thread. Defaults to 2.
+	 */
+	public void setQueueDepth(final int queueDepth) {
+		if (queueDepth < 0) {
+			throw new IllegalArgumentException("Invalid queue depth: " +
+				queueDepth);
+		}
+		this.queueDepth = queueDepth;
+	}
+
+	/** Gets the timing of the last prediction, or null before the first one. */
+	public TileStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Creates the tiling of an image with the tile size and halo of this
+	 * predictor.
+	 *
+	 * @throws IllegalArgumentException if the tile size or halo don't fit the
+	 *           image, or if a tile is too small to blend half of its halo.
+	 */
+	public Tiling tiling(final Interval image) {
+		final int n = image.numDimensions();
+		final Tiling tiling = new Tiling(image, tileSize == null ? Intervals
+			.dimensionsAsLongArray(image) : tileSize, halo == null ? new long[n]
+				: halo, keepLargeTiles);
+		if (stitching == Stitching.BLEND) {
+			final long[] size = tiling.getTileSize();
+			for (int d = 0; d < n; d++) {
+				if (tiling.isTiled(d) && size[d] < tiling.getHalo()[d]) {
+					throw new IllegalArgumentException("Blending needs tiles of at " +
+						"least the size of the halo: " + Arrays.toString(size));
+				}
+			}
+		}
+		return tiling;
+	}
+
+	/**
+	 * Predicts the output of a model for an image.
+	 *
+	 * @param input The input image.
+	 * @return The stitched output, whose origin is at the minimum of the input.
+	 */
+	public <T extends RealType<T>> Img<FloatType> predict(
+		final RandomAccessibleInterval<T> input)
+	{
+		@SuppressWarnings("unchecked")
+		final Img<FloatType> output = (Img<FloatType>) run(input, null, null);
+		return output;
+	}
+
+	/**
+	 * Predicts the output of a model for an image into an existing image.
+	 *
+	 * @param input The input image.
+	 * @param output The output image. Its origin corresponds to the minimum of
+	 *          the input.
+	 * @throws IllegalArgumentException if the dimensions of the output don't
+	 *           match those predicted by the model.
+	 */
+	public <T extends RealType<T>> void predict(
+		final RandomAccessibleInterval<T> input,
+		final RandomAccessibleInterval<FloatType> output)
+	{
+		run(input, output, null);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Predicts the output of some tiles of an image.
+	 *
+	 * @param output The output image, or null to create it.
+	 * @param selected Selects the tiles to predict, or null for all tiles.
+	 * @return The output image.
+	 */
+	<T extends RealType<T>> RandomAccessibleInterval<FloatType> run(
+		final RandomAccessibleInterval<T> input,
+		final RandomAccessibleInterval<FloatType> output,
+		final Predicate<Tile> selected)
+	{
+		final RandomAccessibleInterval<T> image = Views.zeroMin(input);
+		final Tiling tiling = tiling(image);
+		final List<Tile> tiles = selected == null ? tiling.tiles() : tiling
+			.tiles().stream().filter(selected).collect(Collectors.toList());
+		final RandomAccessible<T> extended = Views.extendMirrorSingle(image);
+		final Writer writer = new Writer(tiling, output == null ? null : Views
+			.zeroMin(output), selected == null);
+		final Stage convert = new Stage();
+		final Stage run = new Stage();
+		final Stage write = new Stage();
+		final long start = System.nanoTime();
+		// NB: The model stays open until all tiles are predicted, e.g. holding
+		// one lease of a cached model.
+		try (TileModel.Opened opened = model.open()) {
+			if (queueDepth == 0) {
+				for (final Tile tile : tiles) {
+					final Tensor<?> result;
+					try (Tensor<Float> tensor = convert.time(() -> tensor(extended,
+						tile)))
+					{
+						result = run.time(() -> opened.run(tensor));
+					}
+					try {
+						write.time(() -> writer.write(tile, result));
+					}
+					finally {
+						result.close();
+					}
+				}
+			}
+			else runPipelined(opened, tiles, extended, writer, convert, run, write);
+		}
+		long pixels = 0;
+		for (final Tile tile : tiles) {
+			pixels += Intervals.numElements(tile.getCore());
+		}
+		statistics = new TileStatistics(tiles.size(), pixels, System
+			.nanoTime() - start, queueDepth, convert.busy, run.busy, write.busy,
+			convert.waiting, run.waiting, write.waiting);
+		return writer.target;
+	}
+
+	/**
+	 * Predicts the tiles in three stages connected by bounded queues: a worker
+	 * thread converts the tiles into Tensors, the calling thread runs the model,
+	 * and another worker thread writes the outputs. A stage whose queue is full
+	 * waits for the next stage. If a stage fails, the remaining tiles are
+	 * drained and their Tensors closed, and the first failure is rethrown. If
+	 * the calling thread is interrupted, the workers are stopped and the
+	 * Tensors left in the queues are closed.
+	 */
+	private <T extends RealType<T>> void runPipelined(final TileModel opened,
+		final List<Tile> tiles, final RandomAccessible<T> extended,
+		final Writer writer, final Stage convert, final Stage run,
+		final Stage write)
+	{
+		final BlockingQueue<TileTensor> inputs = new ArrayBlockingQueue<>(
+			queueDepth);
+		final BlockingQueue<TileTensor> outputs = new ArrayBlockingQueue<>(
+			queueDepth);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(2, task -> {
+			final Thread thread = new Thread(task, "TiledPredictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final Future<?> converting = executor.submit(() -> {
+				try {
+					for (final Tile tile : tiles) {
+						if (failure.get() != null) break;
+						final Tensor<Float> tensor = convert.time(() -> tensor(extended,
+							tile));
+						convert.put(inputs, new TileTensor(tile, tensor));
+					}
+				}
+				catch (final Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+				finally {
+					convert.put(inputs, TileTensor.END);
+				}
+			});
+			final Future<?> writing = executor.submit(() -> {
+				for (TileTensor item; (item = write.take(outputs)) != TileTensor.END;) {
+					try (Tensor<?> result = item.tensor) {
+						final Tile tile = item.tile;
+						if (failure.get() == null) write.time(() -> writer.write(tile,
+							result));
+					}
+					catch (final Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+			try {
+				for (TileTensor item; (item = run.take(inputs)) != TileTensor.END;) {
+					try (Tensor<?> tensor = item.tensor) {
+						if (failure.get() != null) continue;
+						final Tensor<?> result = run.time(() -> opened.run(tensor));
+						run.put(outputs, new TileTensor(item.tile, result));
+					}
+					catch (final Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			}
+			catch (final Throwable t) {
+				// NB: Taking the next tile only fails if the thread is interrupted.
+				failure.compareAndSet(null, t);
+			}
+			run.put(outputs, TileTensor.END);
+			converting.get();
+			writing.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		}
+		catch (final ExecutionException e) {
+			failure.compareAndSet(null, e.getCause());
+		}
+		catch (final RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+		finally {
+			// NB: After an interruption, the workers may still hold Tensors.
+			executor.shutdownNow();
+			awaitTermination(executor);
+			close(inputs);
+			close(outputs);
+		}
+		final Throwable t = failure.get();
+		if (t instanceof RuntimeException) throw (RuntimeException) t;
+		if (t instanceof Error) throw (Error) t;
+		if (t != null) throw new IllegalStateException("Tiled prediction failed", t);
+	}
+
+	/** Waits until the workers stopped, keeping the interrupt status. */
+	private static void awaitTermination(final ExecutorService executor) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+				break;
+			}
+			catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/** Closes the Tensors left in a queue. */
+	private static void close(final BlockingQueue<TileTensor> queue) {
+		for (TileTensor item; (item = queue.poll()) != null;) {
+			if (item.tensor != null) item.tensor.close();
+		}
+	}
+
+	/**
+	 * Predicts the output of one tile, for callers which predict tiles on
+	 * demand.
+	 *
+	 * @param extended The input image, extended beyond its bounds.
+	 */
+	<T extends RealType<T>> RandomAccessibleInterval<? extends RealType<?>>
+		predictTile(final RandomAccessible<T> extended, final Tile tile)
+	{
+		try (Tensor<Float> tensor = tensor(extended, tile);
+				Tensor<?> result = model.run(tensor))
+		{
+			@SuppressWarnings("unchecked")
+			final RandomAccessibleInterval<? extends RealType<?>> tileOutput =
+				(RandomAccessibleInterval<? extends RealType<?>>) Tensors.img(result,
+					outputDimOrder);
+			return tileOutput;
+		}
+	}
+
+	/** Gets how the tile outputs are stitched. */
+	Stitching getStitching() {
+		return stitching;
+	}
+
+	/** Converts the input of a tile into a Tensor. */
+	private <T extends RealType<T>> Tensor<Float> tensor(
+		final RandomAccessible<T> extended, final Tile tile)
+	{
+		final RandomAccessibleInterval<T> input = Views.zeroMin(Views.interval(
+			extended, tile.getInput()));
+		return normalization == null ? Tensors.tensorAsFloat(input, dimOrder)
+			: Tensors.tensorAsFloat(input, dimOrder, normalization);
+	}
+
+	/**
+	 * Gets the dimensions of the output image from the output of a tile.
+	 *
+	 * @throws IllegalArgumentException if the tile output is not dense.
+	 */
+	static long[] outputDimensions(final Tiling tiling,
+		final Interval tileOutput)
+	{
+		final long[] inputSize = tiling.getInputSize();
+		final int n = inputSize.length;
+		if (tileOutput.numDimensions() != n) {
+			throw new IllegalArgumentException("Expected a tile output with " + n +
+				" dimensions: " + Arrays.toString(Intervals.dimensionsAsLongArray(
+					tileOutput)));
+		}
+		final long[] dims = new long[n];
+		for (int d = 0; d < n; d++) {
+			final long extent = tileOutput.dimension(d);
+			if (extent == inputSize[d]) dims[d] = tiling.getImage().dimension(d);
+			else if (!tiling.isTiled(d) && tiling.getHalo()[d] == 0) dims[d] = extent;
+			else {
+				throw new IllegalArgumentException("Tile output " + Arrays.toString(
+					Intervals.dimensionsAsLongArray(tileOutput)) +
+					" does not match the tile input " + Arrays.toString(inputSize) +
+					" in dimension " + d);
+			}
+		}
+		return dims;
+	}
+
+	private static void checkOutput(final Interval output, final long[] dims) {
+		if (!Arrays.equals(Intervals.dimensionsAsLongArray(output), dims)) {
+			throw new IllegalArgumentException("Expected an output of size " + Arrays
+				.toString(dims) + " but got " + Arrays.toString(Intervals
+					.dimensionsAsLongArray(output)));
+		}
+	}
+
+	private static void clear(final RandomAccessibleInterval<FloatType> image) {
+		for (final FloatType t : Views.flatIterable(image)) {
+			t.setZero();
+		}
+	}
+
+	/**
+	 * Writes the output of a tile into the output image, cropped to its core or
+	 * blended into its neighbors.
+	 *
+	 * @param output The output image, or a part of it containing the pixels
+	 *          written by the tile.
+	 * @param outputDims The dimensions of the whole output image.
+	 */
+	void write(final Tiling tiling, final Tile tile,
+		final RandomAccessibleInterval<? extends RealType<?>> tileOutput,
+		final RandomAccessibleInterval<FloatType> output, final long[] outputDims)
+	{
+		final int n = output.numDimensions();
+		final boolean blend = stitching == Stitching.BLEND;
+		final Interval core = tile.getCore();
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		final long[] offset = new long[n];
+		final float[][] weights = new float[n][];
+		for (int d = 0; d < n; d++) {
+			if (outputDims[d] != tiling.getImage().dimension(d)) {
+				// NB: A dimension which the model changes is written completely.
+				min[d] = 0;
+				max[d] = outputDims[d] - 1;
+				continue;
+			}
+			offset[d] = tile.getInput().min(d);
+			// NB: Tiles overlap by half of their halo on each side of their core.
+			final long overlap = blend ? tiling.getHalo()[d] / 2 : 0;
+			final boolean first = core.min(d) == 0;
+			final boolean last = core.max(d) == outputDims[d] - 1;
+			final long start = first ? 0 : core.min(d) - overlap;
+			final long end = last ? core.max(d) : core.max(d) + overlap;
+			min[d] = start;
+			max[d] = Math.min(end, outputDims[d] - 1);
+			if (overlap > 0) weights[d] = weights(start, end, max[d], first, last,
+				2 * overlap);
+		}
+		final Interval region = new FinalInterval(min, max);
+		final Cursor<FloatType> cursor = Views.flatIterable(Views.interval(output,
+			region)).localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = tileOutput
+			.randomAccess();
+		final long[] position = new long[n];
+		while (cursor.hasNext()) {
+			final FloatType t = cursor.next();
+			cursor.localize(position);
+			float weight = 1;
+			for (int d = 0; d < n; d++) {
+				if (weights[d] != null) weight *= weights[d][(int) (position[d] -
+					min[d])];
+				position[d] -= offset[d];
+			}
+			access.setPosition(position);
+			final float value = access.get().getRealFloat();
+			if (blend) t.set(t.get() + weight * value);
+			else t.set(value);
+		}
+	}
+
+	/**
+	 * Computes the linear blending weights of a tile along one dimension. The
+	 * weights of two neighbors sum up to one within their overlap.
+	 *
+	 * @param start The first position written by the tile.
+	 * @param end The last position written by the tile, which may be beyond
+	 *          the image.
+	 * @param max The last position within the image.
+	 */
+	private static float[] weights(final long start, final long end,
+		final long max, final boolean first, final boolean last,
+		final long ramp)
+	{
+		final float[] weights = new float[(int) (max - start + 1)];
+		for (int i = 0; i < weights.length; i++) {
+			final long x = start + i;
+			float weight = 1;
+			if (!first) weight *= Math.min(1, (x - start + 0.5f) / ramp);
+			if (!last) weight *= Math.min(1, (end - x + 0.5f) / ramp);
+			weights[i] = weight;
+		}
+		return weights;
+	}
+
+	/** Writes the outputs of the tiles, creating the output image if needed. */
+	private class Writer {
+
+		private final Tiling tiling;
+		private final boolean allTiles;
+		private RandomAccessibleInterval<FloatType> target;
+		private boolean first = true;
+
+		/** The output of a float tile, reused for all tiles. */
+		private Img<FloatType> buffer;
+
+		private Writer(final Tiling tiling,
+			final RandomAccessibleInterval<FloatType> target,
+			final boolean allTiles)
+		{
+			this.tiling = tiling;
+			this.target = target;
+			this.allTiles = allTiles;
+		}
+
+		private void write(final Tile tile, final Tensor<?> result) {
+			final RandomAccessibleInterval<? extends RealType<?>> tileOutput =
+				tileOutput(result);
+			if (first) {
+				first = false;
+				final long[] outputDims = outputDimensions(tiling, tileOutput);
+				if (target == null) {
+					target = Util.getSuitableImgFactory(new FinalInterval(outputDims),
+						new FloatType()).create(outputDims);
+				}
+				else {
+					checkOutput(target, outputDims);
+					// NB: Blending adds up the outputs of all tiles.
+					if (allTiles && stitching == Stitching.BLEND) clear(target);
+				}
+			}
+			TiledPredictor.this.write(tiling, tile, tileOutput, target, Intervals
+				.dimensionsAsLongArray(target));
+		}
+
+		/**
+		 * Gets the output of a tile. Float results are written into the buffer
+		 * of the writer, so that the write-back does not allocate an image per
+		 * tile.
+		 */
+		@SuppressWarnings("unchecked")
+		private RandomAccessibleInterval<? extends RealType<?>> tileOutput(
+			final Tensor<?> result)
+		{
+			final long[] shape = result.shape();
+			if (result.dataType() != DataType.FLOAT ||
+				shape.length != outputDimOrder.length)
+			{
+				return (RandomAccessibleInterval<? extends RealType<?>>) Tensors.img(
+					result, outputDimOrder);
+			}
+			final long[] dims = new long[shape.length];
+			for (int d = 0; d < dims.length; d++) {
+				dims[d] = shape[outputDimOrder[d]];
+			}
+			if (buffer == null || !Arrays.equals(dims, Intervals
+				.dimensionsAsLongArray(buffer)))
+			{
+				buffer = ArrayImgs.floats(dims);
+			}
+			return Tensors.imgFloat(result.expect(Float.class), buffer,
+				outputDimOrder);
+		}
+	}
+
+	/** The time one stage of the prediction spent working and waiting. */
+	private static class Stage {
+
+		private long busy;
+		private long waiting;
+
+		private <R> R time(final Supplier<R> work) {
+			final long start = System.nanoTime();
+			try {
+				return work.get();
+			}
+			finally {
+				busy += System.nanoTime() - start;
+			}
+		}
+
+		private void time(final Runnable work) {
+			time(() -> {
+				work.run();
+				return null;
+			});
+		}
+
+		private void put(final BlockingQueue<TileTensor> queue,
+			final TileTensor item)
+		{
+			final long start = System.nanoTime();
+			try {
+				queue.put(item);
+			}
+			catch (final InterruptedException e) {
+				// NB: The item is not passed on, so its Tensor is closed here.
+				if (item.tensor != null) item.tensor.close();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted", e);
+			}
+			finally {
+				waiting += System.nanoTime() - start;
+			}
+		}
+
+		private TileTensor take(final BlockingQueue<TileTensor> queue) {
+			final long start = System.nanoTime();
+			try {
+				return queue.take();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted", e);
+			}
+			finally {
+				waiting += System.nanoTime() - start;
+			}
+		}
+	}
+
+	/** A Tensor of one tile, passed between the stages. */
+	private static class TileTensor {
+
+		/** Marks the end of the tiles. */
+		private static final TileTensor END = new TileTensor(null, null);
+
+		private final Tile tile;
+		private final Tensor<?> tensor;
+
+		private TileTensor(final Tile tile, final Tensor<?> tensor) {
+			this.tile = tile;
+			this.tensor = tensor;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+
+/**
+ * Splits an image into a grid of tiles with a halo.
+ * <p>
+ * The image is cut into cores of the tile size, where the last core along
+ * each dimension may be smaller. The input of each tile is its core extended
+ * by the halo on both sides, and always has the full tile size plus twice the
+ * halo, so that all tiles are fed to a model with the same shape. Input
+ * regions can thus reach beyond the image, which then has to be extended,
+ * e.g. by mirroring. Tile sizes larger than the image are reduced to the
+ * size of the image, unless the tiling keeps them, e.g. to feed a model the
+ * input size it accepts, such as a multiple of 16.
+ * </p>
+ */
+public final class Tiling {
+
+	private final Interval image;
+	private final long[] tileSize;
+	private final long[] halo;
+	private final long[] gridDims;
+
+	/**
+	 * Creates the tiling of an image.
+	 *
+	 * @param image The interval of the image.
+	 * @param tileSize The size of the tile cores along each dimension. Sizes
+	 *          larger than the image are reduced to the size of the image.
+	 * @param halo The number of pixels added on each side of the core along
+	 *          each dimension.
+	 * @throws IllegalArgumentException if the arrays don't match the
+	 *           dimensionality of the image, or if a tile size is not positive
+	 *           or a halo is negative.
+	 */
+	public Tiling(final Interval image, final long[] tileSize,
+		final long[] halo)
+	{
+		this(image, tileSize, halo, false);
+	}
+
+	/**
+	 * Creates the tiling of an image.
+	 *
+	 * @param image The interval of the image.
+	 * @param tileSize The size of the tile cores along each dimension.
+	 * @param halo The number of pixels added on each side of the core along
+	 *          each dimension.
+	 * @param keepLargeTiles Whether cores larger than the image keep their
+	 *          size, and cover the image with one tile filled by mirroring.
+	 *          Otherwise, they are reduced to the size of the image.
+	 * @throws IllegalArgumentException if the arrays don't match the
+	 *           dimensionality of the image, or if a tile size is not positive
+	 *           or a halo is negative.
+	 */
+	public Tiling(final Interval image, final long[] tileSize,
+		final long[] halo, final boolean keepLargeTiles)
+	{
+		final int n = image.numDimensions();
+		if (tileSize.length != n || halo.length != n) {
+			throw new IllegalArgumentException("Tile size " + Arrays.toString(
+				tileSize) + " and halo " + Arrays.toString(halo) +
+				" must have one entry per image dimension: " + n);
+		}
+		this.image = new FinalInterval(image);
+		this.tileSize = new long[n];
+		this.halo = halo.clone();
+		gridDims = new long[n];
+		for (int d = 0; d < n; d++) {
+			if (tileSize[d] <= 0 || halo[d] < 0) {
+				throw new IllegalArgumentException("Invalid tile size " + Arrays
+					.toString(tileSize) + " or halo " + Arrays.toString(halo));
+			}
+			this.tileSize[d] = keepLargeTiles ? tileSize[d] : Math.max(1, Math
+				.min(tileSize[d], image.dimension(d)));
+			// NB: Avoids overflowing for huge tile sizes.
+			gridDims[d] = image.dimension(d) == 0 ? 0 : 1 + (image.dimension(d) -
+				1) / this.tileSize[d];
+		}
+	}
+
+	/** Gets the interval of the tiled image. */
+	public Interval getImage() {
+		return image;
+	}
+
+	/**
+	 * Gets the size of the tile cores, reduced to the size of the image unless
+	 * the tiling keeps large tiles.
+	 */
+	public long[] getTileSize() {
+		return tileSize.clone();
+	}
+
+	/** Gets the halo added on each side of the tile cores. */
+	public long[] getHalo() {
+		return halo.clone();
+	}
+
+	/**
+	 * Gets the size of the input of every tile, which is the tile size plus
+	 * twice the halo.
+	 */
+	public long[] getInputSize() {
+		final long[] size = new long[tileSize.length];
+		for (int d = 0; d < size.length; d++) {
+			size[d] = tileSize[d] + 2 * halo[d];
+		}
+		return size;
+	}
+
+	/** Gets the number of tiles along each dimension. */
+	public long[] getGridDimensions() {
+		return gridDims.clone();
+	}
+
+	/** Gets the number of tiles. */
+	public long numTiles() {
+		return Intervals.numElements(gridDims);
+	}
+
+	/** Checks whether the image is cut into more than one tile along a dimension. */
+	public boolean isTiled(final int d) {
+		return gridDims[d] > 1;
+	}
+
+	/**
+	 * Gets a tile by its index in the flat iteration order of the grid.
+	 *
+	 * @throws IndexOutOfBoundsException if there is no tile with this index.
+	 */
+	public Tile tile(final long index) {
+		if (index < 0 || index >= numTiles()) {
+			throw new IndexOutOfBoundsException("Tile " + index + " of " +
+				numTiles());
+		}
+		final int n = gridDims.length;
+		final long[] position = new long[n];
+		IntervalIndexer.indexToPosition(index, gridDims, position);
+		final long[] coreMin = new long[n];
+		final long[] coreMax = new long[n];
+		final long[] inputMin = new long[n];
+		final long[] inputMax = new long[n];
+		for (int d = 0; d < n; d++) {
+			coreMin[d] = image.min(d) + position[d] * tileSize[d];
+			coreMax[d] = Math.min(image.max(d), coreMin[d] + tileSize[d] - 1);
+			inputMin[d] = coreMin[d] - halo[d];
+			inputMax[d] = coreMin[d] + tileSize[d] - 1 + halo[d];
+		}
+		return new Tile(index, new FinalInterval(coreMin, coreMax),
+			new FinalInterval(inputMin, inputMax));
+	}
+
+	/** Gets all tiles, in the flat iteration order of the grid. */
+	public List<Tile> tiles() {
+		return new AbstractList<Tile>() {
+
+			@Override
+			public Tile get(final int index) {
+				return tile(index);
+			}
+
+			@Override
+			public int size() {
+				return (int) Math.min(Integer.MAX_VALUE, numTiles());
+			}
+		};
+	}
+}
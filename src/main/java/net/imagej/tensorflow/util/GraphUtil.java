@@ -0,0 +1,74 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.util;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Operation;
+
+/**
+ * Utility methods for inspecting the operations of a TensorFlow graph
+ */
+public final class GraphUtil {
+
+	private GraphUtil() {}
+
+	/**
+	 * Gets an operation of a graph by its name, or by the name of one of its
+	 * outputs like {@code "input:0"}.
+	 *
+	 * @throws IllegalArgumentException if the operation does not exist.
+	 */
+	public static Operation operation(final Graph graph, final String name) {
+		final int colon = name.lastIndexOf(':');
+		final Operation op = graph.operation(colon < 0 ? name : name.substring(0,
+			colon));
+		if (op == null) {
+			throw new IllegalArgumentException("No operation " + name +
+				" in the graph");
+		}
+		return op;
+	}
+
+	/** Gets the size of one element of a Tensor with a data type, in bytes. */
+	public static int bytesPerElement(final DataType dataType) {
+		switch (dataType) {
+			case UINT8:
+			case BOOL:
+				return 1;
+			case FLOAT:
+			case INT32:
+				return 4;
+			default:
+				return 8;
+		}
+	}
+}
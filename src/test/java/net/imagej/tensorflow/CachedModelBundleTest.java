@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import net.imagej.tensorflow.tiling.TileModel;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.Graph;
+import org.tensorflow.Shape;
+import org.tensorflow.Tensor;
+
+/**
+ * Tests {@link CachedModelBundle}.
+ */
+public class CachedModelBundleTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLeases() throws IOException {
+		final CachedModelBundle model = new CachedModelBundle(savedModel()
+			.getPath(), new String[] { "serve" });
+		assertTrue(model.estimatedBytes() > 0);
+		final CachedModelBundle.Lease lease = model.acquire();
+		final CachedModelBundle.Lease other = model.acquire();
+		assertEquals(2, model.getLeases());
+		assertEquals(Long.MAX_VALUE, model.idleSinceNanos());
+		model.close();
+		assertTrue(model.isClosed());
+		try {
+			model.acquire();
+			fail("Expected an exception for a closed model");
+		}
+		catch (final IllegalStateException e) {
+			// expected
+		}
+		other.close();
+		other.close();
+		assertEquals(1, model.getLeases());
+		// NB: The native model stays alive while it is leased.
+		try (Tensor<?> result = lease.model().session().runner().fetch("answer")
+			.run().get(0))
+		{
+			assertEquals(42, result.floatValue(), 0);
+		}
+		lease.close();
+		assertEquals(0, model.getLeases());
+		assertTrue(model.idleSinceNanos() - System.nanoTime() <= 0);
+	}
+
+	@Test
+	public void testUnleasedClose() throws IOException {
+		final CachedModelBundle model = new CachedModelBundle(savedModel()
+			.getPath(), new String[] { "serve" });
+		assertFalse(model.isClosed());
+		model.close();
+		model.close();
+		assertTrue(model.isClosed());
+	}
+
+	@Test
+	public void testLeasedUsers() throws IOException, InterruptedException,
+		ExecutionException
+	{
+		final CachedModelBundle model = new CachedModelBundle(savedModelWithInput()
+			.getPath(), new String[] { "serve" });
+		final InferenceBatcher batcher = new InferenceBatcher(model, "input",
+			"output", new int[] { 0 });
+		assertEquals(2, ((RealType<?>) batcher.submit(ArrayImgs.floats(
+			new float[] { 3 }, 1)).get().firstElement()).getRealDouble(), 0);
+		// NB: The batcher only leases the model while a batch runs.
+		assertEquals(0, model.getLeases());
+		try (TileModel.Opened tiles = TileModel.of(model, "input", "output")
+			.open())
+		{
+			assertEquals(1, model.getLeases());
+			model.close();
+			// NB: The model stays usable until its users are done.
+			try (Tensor<Float> input = Tensor.create(new float[] { 3 }, Float.class);
+					Tensor<?> output = tiles.run(input))
+			{
+				assertEquals(2, output.copyTo(new float[1])[0], 0);
+			}
+		}
+		assertEquals(0, model.getLeases());
+		try {
+			batcher.submit(ArrayImgs.floats(new float[] { 3 }, 1)).get();
+			fail("Expected an exception for a closed model");
+		}
+		catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		batcher.close();
+		try {
+			new InferenceBatcher(model, "input", "output", new int[] { 0 });
+			fail("Expected an exception for a closed model");
+		}
+		catch (final IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/** Writes a saved model whose graph holds a constant. */
+	private File savedModel() throws IOException {
+		try (Graph graph = new Graph()) {
+			new GraphBuilder(graph).constant("answer", 42f);
+			return SavedModels.write(folder.newFolder(), graph);
+		}
+	}
+
+	/** Writes a saved model subtracting one from its input. */
+	private File savedModelWithInput() throws IOException {
+		try (Graph graph = SavedModels.subtractOne(Shape.unknown())) {
+			return SavedModels.write(folder.newFolder(), graph);
+		}
+	}
+}
@@ -0,0 +1,409 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.scijava.Context;
+import org.scijava.app.StatusService;
+import org.scijava.io.location.FileLocation;
+import org.scijava.io.location.Location;
+import org.scijava.util.FileUtils;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+import org.tensorflow.Shape;
+import org.tensorflow.Tensor;
+
+/**
+ * Tests {@link DefaultTensorFlowService}.
+ */
+public class DefaultTensorFlowServiceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File models;
+	private Context context;
+	private TensorFlowService tensorFlowService;
+
+	@Before
+	public void setUp() throws IOException {
+		models = folder.newFolder("models");
+		System.setProperty("imagej.tensorflow.models.dir", models.getPath());
+		context = new Context(TensorFlowService.class, StatusService.class);
+		tensorFlowService = context.service(TensorFlowService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+		System.clearProperty("imagej.tensorflow.models.dir");
+	}
+
+	@Test
+	public void testDeletedModelIsUnpackedAgain() throws IOException {
+		final Location source = zip("labels.txt", "a\nb\n");
+		final File labels = tensorFlowService.loadFile(source, "model",
+			"labels.txt");
+		assertTrue(labels.isFile());
+		FileUtils.deleteRecursively(labels.getParentFile());
+		assertEquals(labels, tensorFlowService.loadFile(source, "model",
+			"labels.txt"));
+		assertTrue(labels.isFile());
+	}
+
+	@Test
+	public void testEvictionClosesBatchers() throws Exception {
+		final CachedModelBundle model = tensorFlowService.loadCachedModel(
+			savedModel("a"), "a", "serve");
+		final InferenceBatcher batcher = tensorFlowService.batcher(model,
+			"input", "output", new int[] { 0 });
+		assertSame(batcher, tensorFlowService.batcher(model, "input", "output",
+			new int[] { 0 }));
+		tensorFlowService.setMaxCachedBytes(0);
+		// NB: Evicted models are closed in the background.
+		awaitTrue(batcher::isClosed);
+		awaitTrue(model::isClosed);
+		assertEquals(1, tensorFlowService.getEvictions());
+		assertEquals(0, tensorFlowService.getCachedBytes());
+	}
+
+	@Test
+	public void testIdleUnloadingClosesBatchers() throws Exception {
+		final CachedModelBundle model = tensorFlowService.loadCachedModel(
+			savedModel("a"), "a", "serve");
+		final InferenceBatcher batcher = tensorFlowService.batcher(model,
+			"input", "output", new int[] { 0 });
+		// NB: An idle batcher does not keep its model loaded.
+		assertEquals(1, ((DefaultTensorFlowService) tensorFlowService).unloadIdle(
+			0));
+		awaitTrue(batcher::isClosed);
+		awaitTrue(model::isClosed);
+		assertEquals(1, tensorFlowService.getEvictions());
+	}
+
+	@Test
+	public void testBatcherOfClosedModel() throws Exception {
+		final CachedModelBundle model = tensorFlowService.loadCachedModel(
+			savedModel("a"), "a", "serve");
+		final InferenceBatcher batcher = tensorFlowService.batcher(model,
+			"input", "output", new int[] { 0 });
+		model.close();
+		try {
+			tensorFlowService.batcher(model, "input", "output", new int[] { 0 });
+			fail("Expected an exception for a closed model");
+		}
+		catch (final IllegalStateException exc) {
+			// expected
+		}
+		assertTrue(batcher.isClosed());
+	}
+
+	@Test
+	public void testLeaseModel() throws IOException {
+		final Location source = savedModel("a");
+		final CachedModelBundle model = tensorFlowService.loadCachedModel(source,
+			"a", "serve");
+		try (CachedModelBundle.Lease lease = tensorFlowService.leaseModel(source,
+			"a", "serve"))
+		{
+			assertSame(model, lease.bundle());
+			assertEquals(1, model.getLeases());
+		}
+		// NB: A closed model is loaded again.
+		model.close();
+		try (CachedModelBundle.Lease lease = tensorFlowService.leaseModel(source,
+			"a", "serve"))
+		{
+			assertNotSame(model, lease.bundle());
+			assertFalse(lease.bundle().isClosed());
+		}
+	}
+
+	@Test
+	public void testGraphLeases() throws Exception {
+		final Location source = graphs("g", "pinned.pb", "leased.pb");
+		final Graph pinned = tensorFlowService.loadGraph(source, "g",
+			"pinned.pb");
+		final CachedGraph.Lease lease = tensorFlowService.leaseGraph(source, "g",
+			"leased.pb");
+		final Session session = lease.session();
+		assertSame(session, tensorFlowService.session(lease.graph()));
+		tensorFlowService.setMaxCachedBytes(0);
+		assertEquals(1, tensorFlowService.getEvictions());
+		// NB: The leased graph is evicted, but released once its lease is
+		// closed. The pinned graph is kept.
+		assertEquals(42, answer(session), 0);
+		lease.close();
+		awaitTrue(() -> isClosed(session));
+		assertEquals(42, answer(tensorFlowService.session(pinned)), 0);
+		assertSame(pinned, tensorFlowService.loadGraph(source, "g", "pinned.pb"));
+		try (CachedGraph.Lease reloaded = tensorFlowService.leaseGraph(source,
+			"g", "leased.pb"))
+		{
+			assertNotSame(lease.graph(), reloaded.graph());
+			assertEquals(42, answer(reloaded.session()), 0);
+		}
+	}
+
+	@Test
+	public void testIdleUnloadingKeepsGraphsInUse() throws Exception {
+		final Location source = graphs("g", "pinned.pb", "leased.pb");
+		final Graph pinned = tensorFlowService.loadGraph(source, "g",
+			"pinned.pb");
+		final CachedGraph.Lease lease = tensorFlowService.leaseGraph(source, "g",
+			"leased.pb");
+		// NB: Runs the expiry directly rather than waiting for its timer.
+		final DefaultTensorFlowService service =
+			(DefaultTensorFlowService) tensorFlowService;
+		assertEquals(0, service.unloadIdle(0));
+		assertEquals(0, tensorFlowService.getEvictions());
+		final Session session = lease.session();
+		assertEquals(42, answer(session), 0);
+		lease.close();
+		assertEquals(1, service.unloadIdle(0));
+		assertEquals(1, tensorFlowService.getEvictions());
+		// NB: The evicted graph is released in the background.
+		awaitTrue(() -> isClosed(session));
+		assertEquals(42, answer(tensorFlowService.session(pinned)), 0);
+	}
+
+	@Test
+	public void testUnloadOnMemoryPressureIsOptIn() {
+		assertFalse(tensorFlowService.isUnloadOnMemoryPressure());
+		tensorFlowService.setUnloadOnMemoryPressure(true);
+		assertTrue(tensorFlowService.isUnloadOnMemoryPressure());
+		tensorFlowService.setUnloadOnMemoryPressure(false);
+		assertFalse(tensorFlowService.isUnloadOnMemoryPressure());
+	}
+
+	@Test
+	public void testSessionPerGraphAndConfig() throws IOException {
+		final Location source = graphs("g", "a.pb", "b.pb");
+		final Graph a = tensorFlowService.loadGraph(source, "g", "a.pb");
+		final Graph b = tensorFlowService.loadGraph(source, "g", "b.pb");
+		final Session session = tensorFlowService.session(a);
+		assertSame(session, tensorFlowService.session(a));
+		assertSame(session, tensorFlowService.session(a, null));
+		assertNotSame(session, tensorFlowService.session(b));
+		// NB: A ConfigProto with intra_op_parallelism_threads = 1.
+		final Session configured = tensorFlowService.session(a, new byte[] { 0x10,
+			0x01 });
+		assertNotSame(session, configured);
+		assertSame(configured, tensorFlowService.session(a, new byte[] { 0x10,
+			0x01 }));
+		assertEquals(42, answer(configured), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSessionRejectsForeignGraph() {
+		try (Graph graph = new Graph()) {
+			tensorFlowService.session(graph);
+		}
+	}
+
+	@Test
+	public void testSessionClosedOnEviction() throws Exception {
+		final Location source = graphs("g", "graph.pb");
+		final Graph graph;
+		final Session session;
+		try (CachedGraph.Lease lease = tensorFlowService.leaseGraph(source, "g",
+			"graph.pb"))
+		{
+			graph = lease.graph();
+			session = tensorFlowService.session(graph);
+		}
+		tensorFlowService.setMaxCachedBytes(0);
+		awaitTrue(() -> isClosed(session));
+		try {
+			tensorFlowService.session(graph);
+			fail("Evicted graph accepted");
+		}
+		catch (final IllegalArgumentException exc) {
+			// NB: Expected.
+		}
+	}
+
+	@Test
+	public void testSessionClosedOnDispose() throws IOException {
+		final Graph graph = tensorFlowService.loadGraph(graphs("g", "graph.pb"),
+			"g", "graph.pb");
+		final Session session = tensorFlowService.session(graph);
+		tensorFlowService.setMaxCachedBytes(0);
+		assertEquals(42, answer(session), 0);
+		tensorFlowService.dispose();
+		assertTrue(isClosed(session));
+	}
+
+	@Test
+	public void testPreloadModel() throws Exception {
+		final Location source = savedModel("a");
+		final ModelWarmUp warmUp = new ModelWarmUp("input", "output");
+		warmUp.setShape(4);
+		final CachedModelBundle model = tensorFlowService.preloadModel(source,
+			"a", warmUp, "serve").get();
+		assertFalse(model.isClosed());
+		assertEquals(0, model.getLeases());
+		assertSame(model, tensorFlowService.loadCachedModel(source, "a",
+			"serve"));
+		assertSame(model, tensorFlowService.preloadModel(source, "a", "serve")
+			.get());
+	}
+
+	@Test
+	public void testPreloadWarmUpFile() throws Exception {
+		savedModel("a");
+		savedModel("b");
+		try (Writer writer = Files.newBufferedWriter(new File(models,
+			"warmup.properties").toPath()))
+		{
+			final String source = new File(folder.getRoot(), "missing.zip").toURI()
+				.toString();
+			writer.write("a.source = " + source + "\na.tags = serve\n" +
+				"a.input = input\na.output = output\na.shape = 4\nb.source = " +
+				source + "\nb.tags = serve\n");
+		}
+		// NB: The warm-up file is read when the service starts.
+		context.dispose();
+		context = new Context(TensorFlowService.class, StatusService.class);
+		tensorFlowService = context.service(TensorFlowService.class);
+		final long bytes = modelBytes("a") + modelBytes("b");
+		awaitTrue(() -> tensorFlowService.getCachedBytes() == bytes);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPreloadAfterDispose() throws IOException {
+		tensorFlowService.dispose();
+		tensorFlowService.preloadModel(savedModel("a"), "a", "serve");
+	}
+
+	/**
+	 * Writes graphs holding a constant into the model cache directory, and
+	 * gets a source which is not read as the model is unpacked.
+	 */
+	private Location graphs(final String name, final String... graphPaths)
+		throws IOException
+	{
+		final File dir = new File(models, name);
+		assertTrue(dir.mkdir());
+		try (Graph graph = new Graph()) {
+			new GraphBuilder(graph).constant("answer", 42f);
+			for (final String graphPath : graphPaths) {
+				Files.write(new File(dir, graphPath).toPath(), graph.toGraphDef());
+			}
+		}
+		return new FileLocation(new File(folder.getRoot(), name + ".zip"));
+	}
+
+	private static float answer(final Session session) {
+		try (Tensor<?> answer = session.runner().fetch("answer").run().get(0)) {
+			return answer.floatValue();
+		}
+	}
+
+	private static boolean isClosed(final Session session) {
+		try {
+			answer(session);
+			return false;
+		}
+		catch (final IllegalStateException exc) {
+			return true;
+		}
+	}
+
+	/**
+	 * Writes a saved model into the model cache directory, subtracting one from
+	 * its input, and gets a source which is not read as the model is unpacked.
+	 */
+	private Location savedModel(final String name) throws IOException {
+		try (Graph graph = SavedModels.subtractOne(Shape.make(-1))) {
+			final File dir = new File(models, name);
+			assertTrue(dir.mkdir());
+			SavedModels.write(dir, graph);
+		}
+		return new FileLocation(new File(folder.getRoot(), name + ".zip"));
+	}
+
+	/** Gets the estimated bytes of a model in the model cache directory. */
+	private long modelBytes(final String name) {
+		try (CachedModelBundle model = new CachedModelBundle(new File(models,
+			name).getPath(), new String[] { "serve" }))
+		{
+			return model.estimatedBytes();
+		}
+	}
+
+	private static void awaitTrue(final BooleanSupplier condition)
+		throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	/** Writes a ZIP archive holding one file. */
+	private Location zip(final String name, final String content)
+		throws IOException
+	{
+		final File zip = new File(folder.getRoot(), "model.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(
+			zip)))
+		{
+			out.putNextEntry(new ZipEntry(name));
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+		return new FileLocation(zip);
+	}
+}
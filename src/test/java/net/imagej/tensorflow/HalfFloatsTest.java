@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link HalfFloats}.
+ */
+public class HalfFloatsTest {
+
+	@Test
+	public void testHalfRoundTrip() {
+		for (int bits = 0; bits < 1 << 16; bits++) {
+			final float value = HalfFloats.fromHalf((short) bits);
+			if (Float.isNaN(value)) {
+				assertTrue(Float.isNaN(HalfFloats.fromHalf(HalfFloats.toHalf(value))));
+			}
+			else assertEquals(bits, HalfFloats.toHalf(value) & 0xffff);
+		}
+	}
+
+	@Test
+	public void testHalfRounding() {
+		assertEquals(1, toHalfAndBack(1 + 0x1p-11f), 0);
+		assertEquals(1 + 0x1p-9f, toHalfAndBack(1 + 0x1.8p-10f), 0);
+		assertEquals(-1 - 0x1p-10f, toHalfAndBack(-1 - 0x1.1p-11f), 0);
+		assertEquals(65504, toHalfAndBack(65519), 0);
+		assertEquals(Float.POSITIVE_INFINITY, toHalfAndBack(65520), 0);
+		assertEquals(Float.NEGATIVE_INFINITY, toHalfAndBack(-1e10f), 0);
+		assertEquals(0x1p-14f, toHalfAndBack(0x1.ffcp-15f), 0);
+		assertEquals(0x1p-24f, toHalfAndBack(0x1.8p-25f), 0);
+		assertEquals(0, toHalfAndBack(0x1p-25f), 0);
+		assertEquals(0x1p-23f, toHalfAndBack(0x1.8p-24f), 0);
+		assertEquals(Float.floatToIntBits(-0f), Float.floatToIntBits(
+			toHalfAndBack(-1e-10f)));
+		assertTrue(Float.isNaN(toHalfAndBack(Float.NaN)));
+	}
+
+	@Test
+	public void testBFloat16Rounding() {
+		assertEquals(1, toBFloat16AndBack(1 + 0x1p-8f), 0);
+		assertEquals(1 + 0x1p-6f, toBFloat16AndBack(1 + 0x1.8p-7f), 0);
+		assertEquals(3.140625f, toBFloat16AndBack((float) Math.PI), 0);
+		assertEquals(Float.POSITIVE_INFINITY, toBFloat16AndBack(Float.MAX_VALUE),
+			0);
+		assertEquals(1e30f, toBFloat16AndBack(1e30f), 1e28f);
+		assertTrue(Float.isNaN(toBFloat16AndBack(Float.intBitsToFloat(
+			0x7f800001))));
+	}
+
+	@Test
+	public void testBulkConversion() {
+		final float[] values = { 0, 1, -2.5f, 1000.25f, 1e-6f, Float.NaN };
+		final short[] encoded = new short[values.length + 2];
+		final float[] decoded = new float[values.length];
+		HalfFloats.encodeHalf(values, 0, encoded, 2, values.length);
+		HalfFloats.decodeHalf(encoded, 2, decoded, 0, values.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(toHalfAndBack(values[i]), decoded[i], 0);
+		}
+		HalfFloats.encodeBFloat16(values, 0, encoded, 2, values.length);
+		HalfFloats.decodeBFloat16(encoded, 2, decoded, 0, values.length);
+		final float[] expected = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			expected[i] = toBFloat16AndBack(values[i]);
+		}
+		assertArrayEquals(expected, decoded, 0);
+	}
+
+	private static float toHalfAndBack(final float value) {
+		return HalfFloats.fromHalf(HalfFloats.toHalf(value));
+	}
+
+	private static float toBFloat16AndBack(final float value) {
+		return HalfFloats.fromBFloat16(HalfFloats.toBFloat16(value));
+	}
+}
@@ -0,0 +1,163 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+import org.tensorflow.Shape;
+
+/**
+ * Tests {@link InferenceBatcher}.
+ */
+public class InferenceBatcherTest {
+
+	private static final int[] DIM_ORDER = { 1, 0 };
+
+	private Graph graph;
+	private Session session;
+	private InferenceBatcher batcher;
+
+	@Before
+	public void setUp() {
+		graph = SavedModels.subtractOne(Shape.unknown());
+		session = new Session(graph);
+		batcher = new InferenceBatcher(session, "input", "output", DIM_ORDER);
+	}
+
+	@After
+	public void tearDown() {
+		batcher.close();
+		session.close();
+		graph.close();
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException,
+		ExecutionException
+	{
+		batcher.setMaxBatchSize(3);
+		batcher.setMaxWait(10, TimeUnit.SECONDS);
+		final List<CompletableFuture<Img<?>>> futures = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			futures.add(batcher.submit(image(i, 4, 3)));
+		}
+		for (int i = 0; i < 6; i++) {
+			assertValues(i - 1, 4, 3, futures.get(i).get());
+		}
+		final BatchStatistics statistics = batcher.getStatistics();
+		assertArrayEquals(new long[] { 0, 0, 0, 2 }, statistics
+			.getBatchSizeCounts());
+		assertEquals(6, statistics.getRequests());
+		assertEquals(3, statistics.meanBatchSize(), 0);
+	}
+
+	@Test
+	public void testIncompatibleSizes() throws InterruptedException,
+		ExecutionException
+	{
+		batcher.setMaxBatchSize(2);
+		batcher.setMaxWait(50, TimeUnit.MILLISECONDS);
+		final CompletableFuture<Img<?>> first = batcher.submit(image(1, 4, 3));
+		final CompletableFuture<Img<?>> other = batcher.submit(image(2, 5, 3));
+		final CompletableFuture<Img<?>> second = batcher.submit(image(3, 4, 3));
+		assertValues(0, 4, 3, first.get());
+		assertValues(1, 5, 3, other.get());
+		assertValues(2, 4, 3, second.get());
+		assertArrayEquals(new long[] { 0, 1, 1 }, batcher.getStatistics()
+			.getBatchSizeCounts());
+	}
+
+	@Test
+	public void testFailure() throws InterruptedException {
+		batcher.setMaxWait(0, TimeUnit.MILLISECONDS);
+		// NB: The model expects floats.
+		final CompletableFuture<Img<?>> future = batcher.submit(ArrayImgs
+			.doubles(4, 3));
+		try {
+			future.get();
+			fail("Expected the batch to fail");
+		}
+		catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		batcher.close();
+		try {
+			batcher.submit(image(0, 4, 3));
+			fail("Expected an exception for a closed batcher");
+		}
+		catch (final IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static Img<FloatType> image(final float value, final long... dims) {
+		final Img<FloatType> image = ArrayImgs.floats(dims);
+		for (final FloatType t : image) {
+			t.set(value);
+		}
+		return image;
+	}
+
+	private static void assertValues(final float expected, final long width,
+		final long height, final Img<?> actual)
+	{
+		assertArrayEquals(new long[] { width, height }, Intervals
+			.dimensionsAsLongArray(actual));
+		@SuppressWarnings("unchecked")
+		final RandomAccessibleInterval<? extends RealType<?>> values =
+			(RandomAccessibleInterval<? extends RealType<?>>) actual;
+		for (final RealType<?> t : Views.flatIterable(values)) {
+			assertEquals(expected, t.getRealFloat(), 0);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.Graph;
+import org.tensorflow.Shape;
+
+/**
+ * Tests {@link ModelWarmUp}.
+ */
+public class ModelWarmUpTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CachedModelBundle model;
+
+	@Before
+	public void setUp() throws IOException {
+		try (Graph graph = SavedModels.subtractOne(Shape.make(-1, 3))) {
+			model = new CachedModelBundle(SavedModels.write(folder.newFolder(),
+				graph).getPath(), new String[] { "serve" });
+		}
+	}
+
+	@After
+	public void tearDown() {
+		model.close();
+	}
+
+	@Test
+	public void testWarmUp() {
+		final ModelWarmUp warmUp = new ModelWarmUp("input", "output");
+		warmUp.run(model);
+		warmUp.setShape(5, 3);
+		warmUp.run(model);
+		try {
+			new ModelWarmUp("missing", "output").run(model);
+			fail("Expected an exception for a missing input");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			warmUp.setShape(1 << 20, 1 << 20);
+			warmUp.run(model);
+			fail("Expected an exception for an input too large for a buffer");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, model.getLeases());
+	}
+
+	@Test
+	public void testFromProperties() throws IOException {
+		final Properties properties = new Properties();
+		properties.load(new StringReader("unet.source = https://example.org\n" +
+			"unet.input = input\nunet.output = output\nunet.shape = 2, 3\n" +
+			"other.source = https://example.org\n"));
+		ModelWarmUp.fromProperties(properties, "unet.").run(model);
+		assertNull(ModelWarmUp.fromProperties(properties, "other."));
+		properties.setProperty("unet.shape", "2,x");
+		try {
+			ModelWarmUp.fromProperties(properties, "unet.");
+			fail("Expected an exception for an invalid shape");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Tests {@link Percentiles}.
+ */
+public class PercentilesTest {
+
+	private static final double[] PERCENTILES = { 0, 1, 12.5, 50, 99.8, 100 };
+
+	@Test
+	public void testIntegerTypes() {
+		final Random random = new Random(42);
+		testPercentiles(new ByteType(), () -> random.nextInt(256) - 128, 0);
+		testPercentiles(new UnsignedShortType(), () -> random.nextInt(65536), 0);
+		testPercentiles(new IntType(), () -> random.nextInt(), 0);
+	}
+
+	@Test
+	public void testFloatTypes() {
+		final Random random = new Random(42);
+		testPercentiles(new FloatType(), () -> (float) (random.nextGaussian() *
+			1000), 0);
+		// NB: Percentiles of 64-bit values are accurate to 32 bits.
+		testPercentiles(new DoubleType(), () -> random.nextGaussian() * 1e-3,
+			1e-8);
+	}
+
+	@Test
+	public void testNaNIsIgnored() {
+		final RandomAccessibleInterval<FloatType> img = new ArrayImgFactory<>(
+			new FloatType()).create(10);
+		float value = 0;
+		for (final FloatType t : Views.flatIterable(img)) {
+			t.set(value++ % 2 == 0 ? Float.NaN : value);
+		}
+		assertArrayEquals(new double[] { 2, 6, 10 }, Percentiles.percentiles(img,
+			0, 50, 100), 0);
+	}
+
+	@Test
+	public void testLongExtremesAreCounted() {
+		final RandomAccessibleInterval<LongType> img = new ArrayImgFactory<>(
+			new LongType()).create(3);
+		final long[] values = { Long.MIN_VALUE, 0, Long.MAX_VALUE };
+		int i = 0;
+		for (final LongType t : Views.flatIterable(img)) {
+			t.set(values[i++]);
+		}
+		// NB: Percentiles of 64-bit values are accurate to 32 bits.
+		final double delta = 0x1p32;
+		assertArrayEquals(new double[] { Long.MIN_VALUE, 0, Long.MAX_VALUE },
+			Percentiles.percentiles(img, 0, 50, 100), delta);
+		assertArrayEquals(new double[] { Long.MIN_VALUE, 0, Long.MAX_VALUE },
+			Percentiles.percentiles(Views.interval(Views.extendZero(img), img), 0,
+				50, 100), delta);
+	}
+
+	@Test
+	public void testNormalization() {
+		final RandomAccessibleInterval<UnsignedShortType> img =
+			new ArrayImgFactory<>(new UnsignedShortType()).create(101, 2);
+		for (final UnsignedShortType t : Views.hyperSlice(img, 1, 0)) {
+			t.set(7);
+		}
+		int value = 0;
+		for (final UnsignedShortType t : Views.hyperSlice(img, 1, 1)) {
+			t.set(1000 + 10 * value++);
+		}
+		final Normalization normalization = Percentiles.normalization(img, 1, 10,
+			90);
+		// NB: A constant channel is only shifted.
+		assertEquals(1, normalization.factor(0), 0);
+		assertEquals(-7, normalization.offset(0), 0);
+		assertEquals(1 / 800f, normalization.factor(1), 1e-9);
+		assertEquals(-1100 / 800f, normalization.offset(1), 1e-6);
+		try {
+			Percentiles.normalization(img, 1, 10, 101);
+			fail("Expected an exception for an invalid percentile");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private interface Generator {
+
+		double next();
+	}
+
+	private <T extends NativeType<T> & RealType<T>> void testPercentiles(
+		final T type, final Generator generator, final double delta)
+	{
+		final long[] dims = { 3, 67, 45, 5 };
+		final List<RandomAccessibleInterval<T>> imgs = new ArrayList<>();
+		imgs.add(new ArrayImgFactory<>(type).create(dims));
+		imgs.add(new PlanarImgFactory<>(type).create(dims));
+		imgs.add(new CellImgFactory<>(type, 16).create(dims));
+		for (final T t : Views.flatIterable(imgs.get(0))) {
+			t.setReal(generator.next());
+		}
+		for (final RandomAccessibleInterval<T> img : imgs.subList(1, 3)) {
+			final Cursor<T> cursor = Views.flatIterable(imgs.get(0)).cursor();
+			for (final T t : Views.flatIterable(img)) {
+				t.set(cursor.next());
+			}
+		}
+		imgs.add(Views.interval(Views.extendZero(imgs.get(0)), imgs.get(0)));
+		for (final RandomAccessibleInterval<T> img : imgs) {
+			assertArrayEquals(reference(img), Percentiles.percentiles(img,
+				PERCENTILES), delta);
+			for (final int channelDim : new int[] { 0, 3 }) {
+				final double[][] percentiles = Percentiles.channelPercentiles(img,
+					channelDim, PERCENTILES);
+				assertEquals(dims[channelDim], percentiles.length);
+				for (int c = 0; c < percentiles.length; c++) {
+					assertArrayEquals(reference(Views.hyperSlice(img, channelDim, c)),
+						percentiles[c], delta);
+				}
+			}
+		}
+	}
+
+	/** Computes the percentiles by sorting, interpolating like numpy. */
+	private <T extends RealType<T>> double[] reference(
+		final RandomAccessibleInterval<T> img)
+	{
+		final List<Double> values = new ArrayList<>();
+		for (final T t : Views.flatIterable(img)) {
+			values.add(t.getRealDouble());
+		}
+		final double[] sorted = values.stream().mapToDouble(v -> v).toArray();
+		Arrays.sort(sorted);
+		final double[] result = new double[PERCENTILES.length];
+		for (int p = 0; p < result.length; p++) {
+			final double rank = PERCENTILES[p] / 100 * (sorted.length - 1);
+			final int lower = (int) Math.floor(rank);
+			final int upper = Math.min(lower + 1, sorted.length - 1);
+			result[p] = sorted[lower] + (rank - lower) * (sorted[upper] -
+				sorted[lower]);
+		}
+		return result;
+	}
+}
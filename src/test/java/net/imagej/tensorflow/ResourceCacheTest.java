@@ -0,0 +1,206 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link ResourceCache}.
+ */
+public class ResourceCacheTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		final ResourceCache<String, Object> cache = new ResourceCache<>();
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ResourceCache.Loader<Object> loader = () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return new Object();
+		};
+		final Future<Object> first = executor.submit(() -> cache.get("a",
+			loader));
+		await(loading);
+		final Future<Object> second = executor.submit(() -> cache.get("a",
+			loader));
+		// NB: Another key loads while the first key is still loading.
+		assertEquals("b", cache.get("b", () -> "b"));
+		release.countDown();
+		assertSame(first.get(), second.get());
+		assertSame(first.get(), cache.get("a", loader));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testFailedLoad() throws Exception {
+		final ResourceCache<String, Object> cache = new ResourceCache<>();
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Future<Object> first = executor.submit(() -> cache.get("a", () -> {
+			loading.countDown();
+			await(release);
+			throw new IOException("missing");
+		}));
+		await(loading);
+		final CountDownLatch joining = new CountDownLatch(1);
+		final Thread[] waiter = new Thread[1];
+		final Future<Object> second = executor.submit(() -> {
+			waiter[0] = Thread.currentThread();
+			joining.countDown();
+			return cache.get("a", Object::new);
+		});
+		// NB: The second caller joins the load once it waits for its result.
+		await(joining);
+		awaitWaiting(waiter[0]);
+		release.countDown();
+		for (final Future<Object> future : Arrays.asList(first, second)) {
+			try {
+				future.get();
+				fail("Expected the load to fail");
+			}
+			catch (final ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+		// NB: Failures are not cached.
+		assertEquals("a", cache.get("a", () -> "a"));
+	}
+
+	@Test
+	public void testInvalidValues() throws IOException {
+		final ResourceCache<String, AtomicInteger> cache = new ResourceCache<>(
+			value -> value.get() == 0, value -> 0, value -> {});
+		final AtomicInteger value = cache.get("a", AtomicInteger::new);
+		assertSame(value, cache.get("a", AtomicInteger::new));
+		value.set(1);
+		final AtomicInteger reloaded = cache.get("a", AtomicInteger::new);
+		assertEquals(0, reloaded.get());
+		assertTrue(cache.containsValue(reloaded));
+		assertEquals(1, cache.clear().size());
+		assertFalse(cache.contains("a"));
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		final List<String> evicted = new ArrayList<>();
+		final ResourceCache<String, String> cache = new ResourceCache<>(
+			value -> true, String::length, evicted::add);
+		cache.setMaxWeight(10);
+		cache.get("a", () -> "aaaa");
+		cache.get("b", () -> "bbbb");
+		cache.get("a", () -> "unused");
+		cache.get("c", () -> "cccc");
+		// NB: b is the least recently used.
+		assertEquals(Arrays.asList("bbbb"), evicted);
+		assertEquals(8, cache.getWeight());
+		assertEquals(1, cache.getEvictions());
+		assertFalse(cache.contains("b"));
+		// NB: A value heavier than the maximum evicts all others.
+		cache.get("d", () -> "ddddddddddddddd");
+		assertEquals(Arrays.asList("bbbb", "aaaa", "cccc"), evicted);
+		assertEquals(15, cache.getWeight());
+		cache.setMaxWeight(0);
+		assertEquals(0, cache.getWeight());
+		assertEquals(4, cache.getEvictions());
+	}
+
+	@Test
+	public void testIdleEviction() throws IOException {
+		final List<String> evicted = new ArrayList<>();
+		final ResourceCache<String, String> cache = new ResourceCache<>(
+			value -> true, String::length, evicted::add);
+		cache.get("idle", () -> "idle");
+		cache.get("busy", () -> "busy");
+		cache.get("used", () -> "used");
+		final long now = System.nanoTime();
+		final long later = now + TimeUnit.SECONDS.toNanos(10);
+		final ToLongFunction<String> idleSince = value -> value.equals("busy")
+			? Long.MAX_VALUE : value.equals("used") ? later : Long.MIN_VALUE;
+		assertEquals(0, cache.evictIdle(TimeUnit.SECONDS.toNanos(20), later,
+			idleSince));
+		// NB: Only the value which is neither busy nor recently used expires.
+		assertEquals(1, cache.evictIdle(TimeUnit.SECONDS.toNanos(5), later,
+			idleSince));
+		assertEquals(Arrays.asList("idle"), evicted);
+		assertTrue(cache.touch("used"));
+		assertFalse(cache.touch("idle"));
+		assertEquals(8, cache.getWeight());
+	}
+
+	private static void awaitWaiting(final Thread thread)
+		throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (thread.getState() != Thread.State.WAITING) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		}
+		catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Shape;
+
+/**
+ * Builds graphs and writes saved models for tests.
+ */
+final class SavedModels {
+
+	private SavedModels() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Builds a graph subtracting the constant {@code one} from the float
+	 * placeholder {@code input} into {@code output}.
+	 *
+	 * @param shape The shape of the input.
+	 */
+	static Graph subtractOne(final Shape shape) {
+		final Graph graph = new Graph();
+		final GraphBuilder b = new GraphBuilder(graph);
+		final Output<Float> input = b.placeholder("input", DataType.FLOAT, shape);
+		b.sub(input, b.constant("one", new float[] { 1 }, new long[0]), "output");
+		return graph;
+	}
+
+	/**
+	 * Writes a saved model without variables, tagged {@code serve}. The
+	 * protocol buffer is encoded by hand to avoid a dependency.
+	 *
+	 * @return The directory of the model.
+	 */
+	static File write(final File dir, final Graph graph) throws IOException {
+		final byte[] metaInfoDef = field(4, "serve".getBytes(
+			StandardCharsets.UTF_8));
+		final byte[] metaGraphDef = concat(field(1, metaInfoDef), field(2, graph
+			.toGraphDef()));
+		final byte[] savedModel = concat(new byte[] { 0x08, 1 }, field(2,
+			metaGraphDef));
+		Files.write(new File(dir, "saved_model.pb").toPath(), savedModel);
+		return dir;
+	}
+
+	/** Encodes a length-delimited protocol buffer field. */
+	private static byte[] field(final int number, final byte[] value) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(number << 3 | 2);
+		for (int length = value.length;; length >>>= 7) {
+			if (length < 0x80) {
+				out.write(length);
+				break;
+			}
+			out.write(length & 0x7f | 0x80);
+		}
+		out.write(value, 0, value.length);
+		return out.toByteArray();
+	}
+
+	private static byte[] concat(final byte[] a, final byte[] b) {
+		final byte[] result = new byte[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link TensorBufferPool}.
+ */
+public class TensorBufferPoolTest {
+
+	@Test
+	public void testLeaseAndRelease() {
+		final TensorBufferPool pool = new TensorBufferPool();
+		final ByteBuffer first;
+		try (TensorBufferPool.Lease lease = pool.lease(5000)) {
+			first = lease.buffer();
+			assertTrue(first.isDirect());
+			assertEquals(ByteOrder.nativeOrder(), first.order());
+			assertEquals(0, first.position());
+			assertEquals(5000, first.limit());
+			assertEquals(8192, first.capacity());
+			first.position(100);
+		}
+		assertEquals(8192, pool.getBytesRetained());
+
+		// NB: Requests rounding up to the same capacity share a bucket.
+		try (TensorBufferPool.Lease lease = pool.lease(7000)) {
+			assertSame(first, lease.buffer());
+			assertEquals(0, lease.buffer().position());
+			assertEquals(7000, lease.buffer().limit());
+			assertEquals(0, pool.getBytesRetained());
+			try (TensorBufferPool.Lease other = pool.lease(7000)) {
+				assertNotSame(first, other.buffer());
+			}
+		}
+		assertEquals(1, pool.getHits());
+		assertEquals(2, pool.getMisses());
+		assertEquals(2 * 8192, pool.getBytesRetained());
+
+		pool.clear();
+		assertEquals(0, pool.getBytesRetained());
+	}
+
+	@Test
+	public void testMaxRetainedBytes() {
+		final TensorBufferPool pool = new TensorBufferPool(10000);
+		final TensorBufferPool.Lease a = pool.lease(8192);
+		final TensorBufferPool.Lease b = pool.lease(8192);
+		a.close();
+		b.close();
+		// NB: Closing twice must not retain the buffer twice.
+		a.close();
+		assertEquals(8192, pool.getBytesRetained());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUseAfterRelease() {
+		final TensorBufferPool.Lease lease = new TensorBufferPool().lease(16);
+		lease.close();
+		lease.buffer();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new TensorBufferPool().lease(-1);
+	}
+}
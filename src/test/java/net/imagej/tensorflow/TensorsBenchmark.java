@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow;
+
+import java.util.Arrays;
+
+import org.tensorflow.Tensor;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Measures how the conversion of images into Tensors scales with the number
+ * of threads given to {@link Tensors#setParallelism(int)}.
+ * <p>
+ * Run with the image dimensions as arguments, e.g. {@code 4096 4096 3}. The
+ * default is a 2048 x 2048 x 3 image.
+ * </p>
+ */
+public class TensorsBenchmark {
+
+	private static final int WARMUP = 3;
+	private static final int RUNS = 10;
+
+	public static void main(final String... args) {
+		final long[] dims = args.length == 0 ? new long[] { 2048, 2048, 3 } : //
+			Arrays.stream(args).mapToLong(Long::parseLong).toArray();
+
+		final Img<FloatType> img = ArrayImgs.floats(dims);
+		float value = 0;
+		for (final FloatType t : img) {
+			t.set(value++);
+		}
+		// NB: A view is not backed by a single array and has to be copied.
+		final RandomAccessibleInterval<FloatType> view = //
+			Views.interval(Views.extendZero(img), img);
+
+		System.out.println("Image dimensions: " + Arrays.toString(dims));
+		final int cores = Runtime.getRuntime().availableProcessors();
+		double sequential = 0;
+		// Double the number of threads until all cores are used.
+		for (int p = 1;; p = Math.min(2 * p, cores)) {
+			Tensors.setParallelism(p);
+			final double millis = medianMillis(view);
+			if (p == 1) sequential = millis;
+			System.out.println(String.format(
+				"parallelism %2d: %8.2f ms (speedup %.2fx)", p, millis, sequential /
+					millis));
+			if (p >= cores) break;
+		}
+	}
+
+	private static double medianMillis(
+		final RandomAccessibleInterval<FloatType> image)
+	{
+		final double[] times = new double[RUNS];
+		for (int i = -WARMUP; i < RUNS; i++) {
+			final long start = System.nanoTime();
+			try (Tensor<Float> tensor = Tensors.tensorFloat(image)) {
+				if (i >= 0) times[i] = (System.nanoTime() - start) / 1e6;
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2];
+	}
+}
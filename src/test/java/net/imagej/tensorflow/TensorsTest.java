@@ -32,14 +32,21 @@ package net.imagej.tensorflow;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.stream.IntStream;
@@ -51,17 +58,29 @@ import org.tensorflow.types.UInt8;
 
 import com.google.common.base.Function;
 
+import net.imglib2.Cursor;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.ByteType;
 import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
 
 public class TensorsTest {
 
@@ -204,6 +223,52 @@ public class TensorsTest {
 		checkImage(imgLong, n, dims, points);
 	}
 
+	/** Tests the generic img(Tensor) functions */
+	@Test
+	public void testGenericTensorToImg() {
+		testGenericTensorToImg(new ByteType());
+		testGenericTensorToImg(new DoubleType());
+		testGenericTensorToImg(new FloatType());
+		testGenericTensorToImg(new IntType());
+		testGenericTensorToImg(new LongType());
+		try (Tensor<?> tensor = Tensor.create(new boolean[] { true, false })) {
+			Tensors.img(tensor);
+			fail("Expected an exception for an unsupported data type");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private <T extends NativeType<T> & RealType<T>> void testGenericTensorToImg(final T type) {
+		final long[] dims = new long[] { 37, 21, 4 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final Img<T> img = new ArrayImgFactory<>(type).create(dims);
+		int value = 0;
+		for (final T t : img) {
+			t.setReal(value++ % 100);
+		}
+		try (Tensor<?> tensor = Tensors.tensor(img, mapping)) {
+			assertGenericImg(img, Tensors.img(tensor, mapping));
+			// NB: The second conversion reuses the cached plan.
+			assertGenericImg(img, Tensors.img(tensor, mapping));
+		}
+		try (Tensor<?> tensor = Tensors.tensor(img)) {
+			assertGenericImg(img, Tensors.img(tensor));
+		}
+		try (Tensor<?> tensor = Tensors.tensorDirect(img)) {
+			assertGenericImg(img, Tensors.imgDirect(tensor));
+		}
+	}
+
+	private <T extends RealType<T>> void assertGenericImg(final Img<T> expected, final Img<?> actual) {
+		assertSame(expected.firstElement().getClass(), actual.firstElement().getClass());
+		assertTrue(actual instanceof ArrayImg);
+		@SuppressWarnings("unchecked")
+		final Img<T> typed = (Img<T>) actual;
+		assertImgsEqual(expected, typed);
+	}
+
 	/** Checks one image for the dimensions and marked points */
 	private <T extends RealType<T>> void checkImage(final Img<T> img, final int n, final long[] dims,
 			final List<Point> points) {
@@ -212,6 +277,55 @@ public class TensorsTest {
 		checkPoints(img, points);
 	}
 
+	/** Tests the img<Type>(Tensor, out, int[]) functions writing into existing images */
+	@Test
+	public void testTensorToExistingImg() {
+		final long[] dims = new long[] { 37, 21, 4 };
+		final long[] shape = new long[] { 21, 4, 37 };
+		final int[] mapping = new int[] { 2, 0, 1 };
+		final float[] data = new float[37 * 21 * 4];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = i;
+		}
+		try (Tensor<Float> tensor = Tensor.create(shape, FloatBuffer.wrap(data))) {
+			final Img<FloatType> expected = Tensors.imgFloat(tensor, mapping);
+			final Img<FloatType> array = new ArrayImgFactory<>(new FloatType()).create(dims);
+			final List<RandomAccessibleInterval<FloatType>> outs = new ArrayList<>();
+			outs.add(array);
+			outs.add(new PlanarImgFactory<>(new FloatType()).create(dims));
+			outs.add(new CellImgFactory<>(new FloatType(), 8, 5, 3).create(dims));
+			outs.add(Views.interval(Views.extendZero(array), array));
+			for (final RandomAccessibleInterval<FloatType> out : outs) {
+				assertSame(out, Tensors.imgFloat(tensor, out, mapping));
+				assertImgsEqual(expected, out);
+			}
+
+			// NB: An ArrayImg with the Tensor's layout is filled in one bulk read.
+			final Img<FloatType> direct = new ArrayImgFactory<>(new FloatType()).create(shape);
+			assertImgsEqual(Tensors.imgFloatDirect(tensor), Tensors.imgFloat(tensor, direct, new int[] { 0, 1, 2 }));
+			final Img<FloatType> reversed = new ArrayImgFactory<>(new FloatType()).create(37, 4, 21);
+			assertImgsEqual(Tensors.imgFloat(tensor), Tensors.imgFloat(tensor, reversed));
+
+			try {
+				Tensors.imgFloat(tensor, array);
+				fail("Expected an IllegalArgumentException for mismatching dimensions");
+			}
+			catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	private <T extends RealType<T>> void assertImgsEqual(final RandomAccessibleInterval<T> expected,
+			final RandomAccessibleInterval<T> actual) {
+		assertArrayEquals(Intervals.dimensionsAsLongArray(expected), Intervals.dimensionsAsLongArray(actual));
+		final Cursor<T> expectedCursor = Views.flatIterable(expected).cursor();
+		final Cursor<T> actualCursor = Views.flatIterable(actual).cursor();
+		while (expectedCursor.hasNext()) {
+			assertEquals(expectedCursor.next().getRealDouble(), actualCursor.next().getRealDouble(), 0);
+		}
+	}
+
 	// --------- RAI to TENSOR ---------
 
 	/** Tests the tensor(RAI) function */
@@ -394,6 +508,506 @@ public class TensorsTest {
 				Long.class, (i) -> Tensors.tensorLong(i, mapping));
 	}
 
+	/** Tests that copying a non-ArrayImg in parallel gives the same Tensor */
+	@Test
+	public void testImgToTensorParallelCopy() {
+		final long[] dims = new long[] { 300, 200, 3 };
+		final Img<FloatType> img = new ArrayImgFactory<FloatType>().create(dims, new FloatType());
+		float value = 0;
+		for (final FloatType t : img) {
+			t.set(value++);
+		}
+		// NB: A view is not backed by a single array and has to be copied.
+		final RandomAccessibleInterval<FloatType> view = Views.interval(Views.extendZero(img), img);
+
+		final int parallelism = Tensors.getParallelism();
+		try {
+			for (final int p : new int[] { 1, 4 }) {
+				Tensors.setParallelism(p);
+				try (Tensor<Float> tensor = Tensors.tensorFloat(view)) {
+					assertArrayEquals(new long[] { 3, 200, 300 }, tensor.shape());
+					final FloatBuffer buffer = FloatBuffer.allocate(tensor.numElements());
+					tensor.writeTo(buffer);
+					for (int i = 0; i < buffer.capacity(); i++) {
+						assertEquals(i, buffer.get(i), 0);
+					}
+				}
+			}
+		}
+		finally {
+			Tensors.setParallelism(parallelism);
+		}
+	}
+
+	/** Tests that transposing an ArrayImg gives the same Tensor as copying a view */
+	@Test
+	public void testImgToTensorMappingTranspose() {
+		testImg2TensorTranspose(new long[] { 70, 45, 3 }, new int[] { 1, 0, 2 });
+		testImg2TensorTranspose(new long[] { 70, 45, 3 }, new int[] { 2, 1, 0 });
+		testImg2TensorTranspose(new long[] { 70, 45, 3 }, new int[] { 0, 1, 2 });
+		testImg2TensorTranspose(new long[] { 70, 45, 3 }, new int[] { 2, 0, 1 });
+		testImg2TensorTranspose(new long[] { 33, 1, 40, 2 }, new int[] { 3, 1, 0, 2 });
+		testImg2TensorTranspose(new long[] { 1, 65 }, new int[] { 0, 1 });
+	}
+
+	/** Tests that PlanarImgs and CellImgs are copied blockwise into the right place */
+	@Test
+	public void testPlanarAndCellImgToTensor() {
+		final long[] dims = new long[] { 37, 21, 4, 3 };
+		final int[] mapping = new int[] { 2, 3, 1, 0 };
+		final List<Img<FloatType>> imgs = new ArrayList<>();
+		imgs.add(new PlanarImgFactory<>(new FloatType()).create(dims));
+		imgs.add(new CellImgFactory<>(new FloatType(), 8, 5, 3, 2).create(dims));
+		for (final Img<FloatType> img : imgs) {
+			float value = 0;
+			for (final FloatType t : img) {
+				t.set(value++);
+			}
+			final RandomAccessibleInterval<FloatType> view = Views.interval(Views.extendZero(img), img);
+			assertTensorsEqual(Tensors.tensorFloat(view), Tensors.tensorFloat(img));
+			assertTensorsEqual(Tensors.tensorFloatDirect(view), Tensors.tensorFloatDirect(img));
+			assertTensorsEqual(Tensors.tensorFloat(view, mapping), Tensors.tensorFloat(img, mapping));
+		}
+	}
+
+	/** Tests creating and reading Tensors through pooled staging buffers */
+	@Test
+	public void testPooledTensorRoundTrip() {
+		final long[] dims = new long[] { 37, 21, 3 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final TensorBufferPool pool = new TensorBufferPool();
+		final List<RandomAccessibleInterval<FloatType>> imgs = new ArrayList<>();
+		imgs.add(new ArrayImgFactory<>(new FloatType()).create(dims));
+		imgs.add(new PlanarImgFactory<>(new FloatType()).create(dims));
+		imgs.add(Views.interval(Views.extendZero(imgs.get(0)), imgs.get(0)));
+		for (final RandomAccessibleInterval<FloatType> img : imgs) {
+			float value = 0;
+			for (final FloatType t : Views.flatIterable(img)) {
+				t.set(value++);
+			}
+			@SuppressWarnings("unchecked")
+			final Tensor<Float> pooledReverse = (Tensor<Float>) Tensors.tensor(img, pool);
+			assertTensorsEqual(Tensors.tensorFloat(img), pooledReverse);
+			@SuppressWarnings("unchecked")
+			final Tensor<Float> pooled = (Tensor<Float>) Tensors.tensor(img, mapping, pool);
+			try (Tensor<Float> tensor = Tensors.tensorFloat(img, mapping);
+					TensorBufferPool.Lease lease = pool.lease(tensor.numBytes())) {
+				assertTensorsEqual(Tensors.tensorFloat(img, mapping), pooled);
+				assertImgsEqual(Tensors.imgFloat(tensor), Tensors.imgFloat(tensor, lease));
+			}
+		}
+		// NB: The ArrayImg is not staged in reversed order. All other staging and
+		// readback buffers reuse the buffer allocated first.
+		assertEquals(1, pool.getMisses());
+		assertEquals(7, pool.getHits());
+	}
+
+	/** Tests replacing and clearing the shared staging pool */
+	@Test
+	public void testStagingPool() {
+		final TensorBufferPool original = Tensors.getStagingPool();
+		final TensorBufferPool pool = new TensorBufferPool();
+		Tensors.setStagingPool(pool);
+		try {
+			assertSame(pool, Tensors.getStagingPool());
+			try (Tensor<Float> tensor = Tensor.create(new float[] { 1, 2, 3 },
+				Float.class))
+			{
+				Tensors.imgHalfFloat(tensor);
+				Tensors.imgHalfFloat(tensor);
+			}
+			assertEquals(1, pool.getMisses());
+			assertEquals(1, pool.getHits());
+			assertTrue(pool.getBytesRetained() > 0);
+			// NB: Replacing the pool frees the buffers it retains.
+			Tensors.setStagingPool(new TensorBufferPool(0));
+			assertEquals(0, pool.getBytesRetained());
+		}
+		finally {
+			Tensors.setStagingPool(original);
+		}
+	}
+
+	/** Tests stacking images into a batch Tensor and splitting it again */
+	@Test
+	public void testStackUnstack() {
+		final long[] dims = new long[] { 37, 21, 3 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final List<RandomAccessibleInterval<FloatType>> imgs = new ArrayList<>();
+		imgs.add(new ArrayImgFactory<>(new FloatType()).create(dims));
+		imgs.add(new PlanarImgFactory<>(new FloatType()).create(dims));
+		imgs.add(new CellImgFactory<>(new FloatType(), 8, 5, 2).create(dims));
+		imgs.add(Views.interval(Views.extendZero(imgs.get(0)), imgs.get(0)));
+		float value = 0;
+		for (final RandomAccessibleInterval<FloatType> img : imgs.subList(0, 3)) {
+			for (final FloatType t : Views.flatIterable(img)) {
+				t.set(value++);
+			}
+		}
+
+		try (Tensor<?> batch = Tensors.stack(imgs, mapping)) {
+			assertArrayEquals(new long[] { 4, 3, 37, 21 }, batch.shape());
+			final FloatBuffer buffer = FloatBuffer.allocate(batch.numElements());
+			batch.writeTo(buffer);
+			final int sliceSize = 37 * 21 * 3;
+			for (int i = 0; i < imgs.size(); i++) {
+				try (Tensor<Float> slice = Tensors.tensorFloat(imgs.get(i), mapping)) {
+					final FloatBuffer expected = FloatBuffer.allocate(sliceSize);
+					slice.writeTo(expected);
+					final float[] actual = new float[sliceSize];
+					System.arraycopy(buffer.array(), i * sliceSize, actual, 0, sliceSize);
+					assertArrayEquals(expected.array(), actual, 0);
+				}
+			}
+
+			final List<Img<?>> unstacked = Tensors.unstack(batch, mapping);
+			assertEquals(imgs.size(), unstacked.size());
+			for (int i = 0; i < imgs.size(); i++) {
+				@SuppressWarnings("unchecked")
+				final Img<FloatType> img = (Img<FloatType>) unstacked.get(i);
+				assertImgsEqual(imgs.get(i), img);
+			}
+		}
+
+		try {
+			Tensors.stack(Arrays.asList(imgs.get(0), new ArrayImgFactory<>(new FloatType()).create(37, 21, 2)), mapping);
+			fail("Expected an IllegalArgumentException for mismatching dimensions");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/** Tests unsigned and 16-bit images, as same-width Tensors and converted to float */
+	@Test
+	public void testHalfFloatImg() {
+		final long[] dims = new long[] { 37, 21, 3 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final Img<FloatType> floats = new ArrayImgFactory<>(new FloatType()).create(dims);
+		float value = -100000;
+		for (final FloatType t : floats) {
+			t.set(value);
+			value = value * -0.97f + 0.3f;
+		}
+		// NB: The expected values are rounded to float16.
+		final Img<FloatType> expected = new ArrayImgFactory<>(new FloatType()).create(dims);
+		final Cursor<FloatType> cursor = floats.cursor();
+		for (final FloatType t : expected) {
+			t.set(HalfFloats.fromHalf(HalfFloats.toHalf(cursor.next().get())));
+		}
+		try (Tensor<Float> tensor = Tensors.tensorFloat(floats, mapping)) {
+			assertImgsEqual(expected, toFloats(Tensors.imgHalfFloat(tensor, mapping)));
+		}
+		try (Tensor<Float> tensor = Tensors.tensorFloat(floats)) {
+			final Img<HalfFloatType> halves = Tensors.imgHalfFloat(tensor);
+			assertImgsEqual(expected, toFloats(halves));
+			assertImgsEqual(Tensors.reverse((RandomAccessibleInterval<FloatType>) expected),
+					toFloats(Tensors.imgHalfFloatDirect(tensor)));
+
+			// NB: Half images are decoded into float Tensors, in bulk where stored in arrays.
+			final List<RandomAccessibleInterval<HalfFloatType>> imgs = new ArrayList<>();
+			imgs.add(halves);
+			imgs.add(new PlanarImgFactory<>(new HalfFloatType()).create(dims));
+			imgs.add(Views.interval(Views.extendZero(halves), halves));
+			final Cursor<HalfFloatType> source = halves.cursor();
+			for (final HalfFloatType t : Views.flatIterable(imgs.get(1))) {
+				t.set(source.next());
+			}
+			for (final RandomAccessibleInterval<HalfFloatType> img : imgs) {
+				try (Tensor<?> halfTensor = Tensors.tensor(img, mapping)) {
+					assertEquals(DataType.FLOAT, halfTensor.dataType());
+					assertTensorEquals(Tensors.tensorDouble(toDoubles(expected), mapping), halfTensor);
+				}
+			}
+		}
+	}
+
+	private static Img<FloatType> toFloats(final RandomAccessibleInterval<HalfFloatType> img) {
+		final Img<FloatType> floats = new ArrayImgFactory<>(new FloatType()).create(img);
+		final Cursor<HalfFloatType> cursor = Views.flatIterable(img).cursor();
+		for (final FloatType t : floats) {
+			t.set(cursor.next().get());
+		}
+		return floats;
+	}
+
+	private static Img<DoubleType> toDoubles(final Img<FloatType> img) {
+		final Img<DoubleType> doubles = new ArrayImgFactory<>(new DoubleType()).create(img);
+		final Cursor<FloatType> cursor = img.cursor();
+		for (final DoubleType t : doubles) {
+			t.set(cursor.next().get());
+		}
+		return doubles;
+	}
+
+	@Test
+	public void testUnsignedAndShortTypes() {
+		testWidening(new UnsignedByteType(), DataType.UINT8, 255);
+		testWidening(new ShortType(), DataType.INT32, -30000);
+		testWidening(new UnsignedShortType(), DataType.INT32, 65535);
+		testWidening(new UnsignedIntType(), DataType.INT64, 4000000000L);
+		testWidening(new ByteType(), DataType.UINT8, -128);
+	}
+
+	private <T extends NativeType<T> & RealType<T>> void testWidening(final T type, final DataType dataType,
+			final long extreme) {
+		final long[] dims = new long[] { 37, 21, 3 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final List<RandomAccessibleInterval<T>> imgs = new ArrayList<>();
+		imgs.add(new ArrayImgFactory<>(type).create(dims));
+		imgs.add(new PlanarImgFactory<>(type).create(dims));
+		imgs.add(Views.interval(Views.extendZero(imgs.get(0)), imgs.get(0)));
+		int value = 0;
+		for (final RandomAccessibleInterval<T> img : imgs.subList(0, 2)) {
+			for (final T t : Views.flatIterable(img)) {
+				t.setReal(value++ % 100);
+			}
+			Views.flatIterable(img).firstElement().setReal(extreme);
+		}
+		for (final RandomAccessibleInterval<T> img : imgs) {
+			// NB: A copy as double serves as reference for the values and their layout.
+			final Img<DoubleType> reference = new ArrayImgFactory<>(new DoubleType()).create(dims);
+			final Cursor<T> cursor = Views.flatIterable(img).cursor();
+			for (final DoubleType t : reference) {
+				t.set(cursor.next().getRealDouble());
+			}
+			try (Tensor<?> tensor = Tensors.tensor(img)) {
+				assertEquals(dataType, tensor.dataType());
+				assertTensorEquals(Tensors.tensorDouble(reference), tensor);
+			}
+			try (Tensor<?> tensor = Tensors.tensor(img, mapping)) {
+				assertEquals(dataType, tensor.dataType());
+				assertTensorEquals(Tensors.tensorDouble(reference, mapping), tensor);
+			}
+			try (Tensor<?> tensor = Tensors.tensorAsFloat(img, mapping)) {
+				assertEquals(DataType.FLOAT, tensor.dataType());
+				assertTensorEquals(Tensors.tensorDouble(reference, mapping), tensor);
+			}
+		}
+	}
+
+	@Test
+	public void testNormalization() {
+		final double[] means = { 100, 2000, 30000 };
+		final double[] scales = { 10, 200, 3000 };
+		testNormalization(new long[] { 37, 21, 3 }, 2, means, scales);
+		testNormalization(new long[] { 3, 37, 21 }, 0, means, scales);
+		testNormalization(new long[] { 37, 21 }, -1, new double[] { 500 }, new double[] { 250 });
+		try {
+			Tensors.tensorAsFloat(new ArrayImgFactory<>(new UnsignedShortType()).create(37, 21, 4),
+					Normalization.meanScale(2, means, scales));
+			fail("Expected an exception for a mismatching number of channels");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private void testNormalization(final long[] dims, final int channelDim, final double[] means,
+			final double[] scales) {
+		final Normalization normalization = channelDim < 0 ? Normalization.meanScale(means[0], scales[0])
+				: Normalization.meanScale(channelDim, means, scales);
+		final UnsignedShortType type = new UnsignedShortType();
+		final List<RandomAccessibleInterval<UnsignedShortType>> imgs = new ArrayList<>();
+		imgs.add(new ArrayImgFactory<>(type).create(dims));
+		imgs.add(new PlanarImgFactory<>(type).create(dims));
+		imgs.add(new CellImgFactory<>(type, 2).create(dims));
+		imgs.add(Views.interval(Views.extendZero(imgs.get(0)), imgs.get(0)));
+		for (final RandomAccessibleInterval<UnsignedShortType> img : imgs.subList(0, 3)) {
+			final Cursor<UnsignedShortType> cursor = Views.flatIterable(img).localizingCursor();
+			while (cursor.hasNext()) {
+				cursor.fwd();
+				cursor.get().set((cursor.getIntPosition(0) * 7 + cursor.getIntPosition(1) * 997) % 65536);
+			}
+		}
+		final int[] mapping = IntStream.range(0, dims.length).map(d -> (d + 1) % dims.length).toArray();
+		for (final RandomAccessibleInterval<UnsignedShortType> img : imgs) {
+			// NB: The reference is normalized with the same float arithmetic.
+			final Img<DoubleType> reference = new ArrayImgFactory<>(new DoubleType()).create(dims);
+			final Cursor<UnsignedShortType> cursor = Views.flatIterable(img).localizingCursor();
+			for (final DoubleType t : reference) {
+				cursor.fwd();
+				final int c = channelDim < 0 ? 0 : cursor.getIntPosition(channelDim);
+				t.set(cursor.get().getRealFloat() * normalization.factor(c) + normalization.offset(c));
+			}
+			try (Tensor<Float> tensor = Tensors.tensorAsFloat(img, normalization)) {
+				assertTensorEquals(Tensors.tensorDouble(reference), tensor);
+			}
+			try (Tensor<Float> tensor = Tensors.tensorAsFloat(img, mapping, normalization)) {
+				assertTensorEquals(Tensors.tensorDouble(reference, mapping), tensor);
+			}
+		}
+	}
+
+	/** Tests writing and reading raw Tensor files through memory mappings */
+	@Test
+	public void testMappedTensorFiles() throws IOException {
+		final long[] dims = new long[] { 37, 21, 4 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final Img<UnsignedShortType> img = new CellImgFactory<>(new UnsignedShortType(), 8).create(dims);
+		int value = 0;
+		for (final UnsignedShortType t : img) {
+			t.set(value++ * 997 % 65536);
+		}
+		final Path file = Files.createTempFile("tensor", ".raw");
+		try {
+			// NB: Mappings of 100 bytes split the file into many chunks and cells.
+			Tensors.writeTensor(img, mapping, file, 100);
+			try (Tensor<?> expected = Tensors.tensor(img, mapping);
+					Tensor<?> actual = Tensors.readTensor(file, DataType.INT32, expected.shape())) {
+				assertArrayEquals(intValues(expected), intValues(actual));
+
+				Tensors.writeTensor(actual, file);
+				final Img<?> mapped = Tensors.mappedImg(file, DataType.INT32, actual.shape(),
+						FileChannel.MapMode.READ_WRITE, 100);
+				assertTrue(mapped instanceof CellImg);
+				@SuppressWarnings("unchecked")
+				final Img<IntType> mappedInts = (Img<IntType>) mapped;
+				assertImgsEqual(Tensors.imgInt(actual.expect(Integer.class)), mappedInts);
+
+				// NB: Changes of a writable mapping go to the file.
+				mappedInts.firstElement().set(-1);
+				try (Tensor<?> changed = Tensors.readTensor(file, DataType.INT32, actual.shape())) {
+					assertEquals(-1, intValues(changed)[0]);
+				}
+			}
+			try {
+				Tensors.readTensor(file, DataType.INT32, new long[] { 5 });
+				fail("Expected an exception for a file of the wrong size");
+			}
+			catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	/** Tests that raw Tensor files keep 64-bit integers which are not exact as doubles */
+	@Test
+	public void testMappedLongTensorFiles() throws IOException {
+		final long[] dims = new long[] { 9, 5, 3 };
+		final int[] mapping = new int[] { 1, 2, 0 };
+		final Img<LongType> img = new CellImgFactory<>(new LongType(), 4).create(dims);
+		long value = 0;
+		for (final LongType t : img) {
+			t.set(Long.MAX_VALUE - 1 - value++);
+		}
+		final Path file = Files.createTempFile("tensor", ".raw");
+		try {
+			Tensors.writeTensor(img, mapping, file, 100);
+			try (Tensor<?> expected = Tensors.tensor(img, mapping);
+					Tensor<?> actual = Tensors.readTensor(file, DataType.INT64, expected.shape())) {
+				final long[] actualValues = longValues(actual);
+				assertArrayEquals(longValues(expected), actualValues);
+				assertTrue(Arrays.stream(actualValues).anyMatch(v -> v == Long.MAX_VALUE - 1));
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	private static long[] longValues(final Tensor<?> tensor) {
+		final LongBuffer buffer = LongBuffer.allocate(tensor.numElements());
+		tensor.writeTo(buffer);
+		return buffer.array();
+	}
+
+	private static int[] intValues(final Tensor<?> tensor) {
+		final IntBuffer buffer = IntBuffer.allocate(tensor.numElements());
+		tensor.writeTo(buffer);
+		return buffer.array();
+	}
+
+	/** Checks that a Tensor has the shape and values of a double Tensor, and closes the latter */
+	private void assertTensorEquals(final Tensor<Double> expected, final Tensor<?> actual) {
+		try {
+			assertArrayEquals(expected.shape(), actual.shape());
+			final DoubleBuffer expectedBuffer = DoubleBuffer.allocate(expected.numElements());
+			expected.writeTo(expectedBuffer);
+			final double[] actualValues = new double[actual.numElements()];
+			switch (actual.dataType()) {
+				case UINT8: {
+					final ByteBuffer buffer = ByteBuffer.allocate(actual.numElements());
+					actual.writeTo(buffer);
+					for (int i = 0; i < actualValues.length; i++) {
+						// NB: ByteType pixels are expected with their signed value.
+						actualValues[i] = expectedBuffer.get(i) < 0 ? buffer.get(i) : buffer.get(i) & 0xff;
+					}
+					break;
+				}
+				case INT32: {
+					final IntBuffer buffer = IntBuffer.allocate(actual.numElements());
+					actual.writeTo(buffer);
+					for (int i = 0; i < actualValues.length; i++) {
+						actualValues[i] = buffer.get(i);
+					}
+					break;
+				}
+				case INT64: {
+					final LongBuffer buffer = LongBuffer.allocate(actual.numElements());
+					actual.writeTo(buffer);
+					for (int i = 0; i < actualValues.length; i++) {
+						actualValues[i] = buffer.get(i);
+					}
+					break;
+				}
+				case FLOAT: {
+					final FloatBuffer buffer = FloatBuffer.allocate(actual.numElements());
+					actual.writeTo(buffer);
+					for (int i = 0; i < actualValues.length; i++) {
+						actualValues[i] = buffer.get(i);
+					}
+					break;
+				}
+				default:
+					fail("Unexpected data type " + actual.dataType());
+			}
+			assertArrayEquals(expectedBuffer.array(), actualValues, 0);
+		}
+		finally {
+			expected.close();
+		}
+	}
+
+	/** Checks that two float Tensors have the same shape and data, and closes them */
+	private void assertTensorsEqual(final Tensor<Float> expected, final Tensor<Float> actual) {
+		try {
+			assertArrayEquals(expected.shape(), actual.shape());
+			final FloatBuffer expectedBuffer = FloatBuffer.allocate(expected.numElements());
+			expected.writeTo(expectedBuffer);
+			final FloatBuffer actualBuffer = FloatBuffer.allocate(actual.numElements());
+			actual.writeTo(actualBuffer);
+			assertArrayEquals(expectedBuffer.array(), actualBuffer.array(), 0);
+		}
+		finally {
+			expected.close();
+			actual.close();
+		}
+	}
+
+	/** Compares the Tensors created from an ArrayImg and from a view on it */
+	private void testImg2TensorTranspose(final long[] dims, final int[] mapping) {
+		final Img<IntType> img = new ArrayImgFactory<IntType>().create(dims, new IntType());
+		int value = 0;
+		for (final IntType t : img) {
+			t.set(value++);
+		}
+		final RandomAccessibleInterval<IntType> view = Views.interval(Views.extendZero(img), img);
+
+		try (Tensor<Integer> expected = Tensors.tensorInt(view, mapping);
+				Tensor<Integer> actual = Tensors.tensorInt(img, mapping)) {
+			assertArrayEquals(expected.shape(), actual.shape());
+			final IntBuffer expectedBuffer = IntBuffer.allocate(expected.numElements());
+			expected.writeTo(expectedBuffer);
+			final IntBuffer actualBuffer = IntBuffer.allocate(actual.numElements());
+			actual.writeTo(actualBuffer);
+			assertArrayEquals(expectedBuffer.array(), actualBuffer.array());
+		}
+	}
+
 	/** Tests the tensor(RAI) function for one image */
 	private <T extends RealType<T>> void testImg2TensorReverse(final Img<T> img, final int n, final long[] shape,
 			final DataType t) {
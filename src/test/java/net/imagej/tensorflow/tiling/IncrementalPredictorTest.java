@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static net.imagej.tensorflow.tiling.TilingFixtures.assertImagesEqual;
+import static net.imagej.tensorflow.tiling.TilingFixtures.convolution;
+import static net.imagej.tensorflow.tiling.TilingFixtures.predictor;
+import static net.imagej.tensorflow.tiling.TilingFixtures.rampFilter;
+import static net.imagej.tensorflow.tiling.TilingFixtures.randomImage;
+import static org.junit.Assert.assertEquals;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+
+/**
+ * Tests {@link IncrementalPredictor}.
+ */
+public class IncrementalPredictorTest {
+
+	private Graph graph;
+	private Session session;
+	private Img<FloatType> image;
+	private TiledPredictor predictor;
+
+	@Before
+	public void setUp() {
+		graph = convolution(rampFilter(), null);
+		session = new Session(graph);
+		image = randomImage();
+		predictor = predictor(session);
+	}
+
+	@After
+	public void tearDown() {
+		session.close();
+		graph.close();
+	}
+
+	@Test
+	public void testChangedHashes() {
+		final IncrementalPredictor<FloatType> incremental =
+			new IncrementalPredictor<>(predictor, image);
+		assertImagesEqual(predictor.predict(image), incremental.predict(), 0);
+		assertEquals(16, incremental.getLastPredictedTiles());
+		incremental.predict();
+		assertEquals(0, incremental.getLastPredictedTiles());
+
+		// NB: Inside the core of a single tile of the 4x4 grid.
+		setPixel(20, 15, 5);
+		assertImagesEqual(predictor.predict(image), incremental.predict(), 0);
+		assertEquals(1, incremental.getLastPredictedTiles());
+		// NB: In the halos of the neighbors of a tile corner.
+		setPixel(16, 10, 5);
+		assertImagesEqual(predictor.predict(image), incremental.predict(), 0);
+		assertEquals(4, incremental.getLastPredictedTiles());
+		assertEquals(4, predictor.getStatistics().getTiles());
+	}
+
+	@Test
+	public void testDirtyRegions() {
+		final IncrementalPredictor<FloatType> incremental =
+			new IncrementalPredictor<>(predictor, Views.translate(image, 100, 0, 0,
+				0));
+		incremental.predict();
+		setPixel(20, 15, 5);
+		incremental.markDirty(new FinalInterval(new long[] { 120, 15, 0, 0 },
+			new long[] { 120, 15, 0, 0 }));
+		assertImagesEqual(predictor.predict(image), incremental.predict(), 0);
+		assertEquals(1, incremental.getLastPredictedTiles());
+
+		// NB: A wider receptive field reaches into the tiles left of and below.
+		incremental.setReceptiveField(5, 5, 0, 0);
+		setPixel(20, 15, 7);
+		incremental.markDirty(new FinalInterval(new long[] { 120, 15, 0, 0 },
+			new long[] { 120, 15, 0, 0 }));
+		assertImagesEqual(predictor.predict(image), incremental.predict(), 0);
+		assertEquals(4, incremental.getLastPredictedTiles());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNegativeReceptiveField() {
+		new IncrementalPredictor<>(predictor, image).setReceptiveField(-1, 1, 0,
+			0);
+	}
+
+	private void setPixel(final long x, final long y, final float value) {
+		final RandomAccess<FloatType> access = image.randomAccess();
+		access.setPosition(new long[] { x, y, 0, 0 });
+		access.get().set(value);
+	}
+}
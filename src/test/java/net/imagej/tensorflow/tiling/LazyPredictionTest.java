@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static net.imagej.tensorflow.tiling.TilingFixtures.DIM_ORDER;
+import static net.imagej.tensorflow.tiling.TilingFixtures.assertImagesEqual;
+import static net.imagej.tensorflow.tiling.TilingFixtures.convolution;
+import static net.imagej.tensorflow.tiling.TilingFixtures.predictor;
+import static net.imagej.tensorflow.tiling.TilingFixtures.rampFilter;
+import static net.imagej.tensorflow.tiling.TilingFixtures.randomImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+
+/**
+ * Tests {@link LazyPrediction}.
+ */
+public class LazyPredictionTest {
+
+	private Graph graph;
+	private Session session;
+	private Img<FloatType> image;
+	private TiledPredictor predictor;
+
+	@Before
+	public void setUp() {
+		graph = convolution(rampFilter(), null);
+		session = new Session(graph);
+		image = randomImage();
+		predictor = predictor(session);
+	}
+
+	@After
+	public void tearDown() {
+		session.close();
+		graph.close();
+	}
+
+	@Test
+	public void testPredictsOnDemand() {
+		try (LazyPrediction<FloatType> lazy = new LazyPrediction<>(predictor,
+			image, 100))
+		{
+			lazy.setPrefetchNeighbors(false);
+			assertEquals(1, lazy.getPredictions());
+			final RandomAccess<FloatType> access = lazy.getImg().randomAccess();
+			access.setPosition(new long[] { 40, 30, 1, 0 });
+			access.get();
+			assertEquals(2, lazy.getPredictions());
+			access.setPosition(new long[] { 47, 36, 0, 0 });
+			access.get();
+			assertEquals(2, lazy.getPredictions());
+			assertImagesEqual(predictor.predict(image), lazy.getImg(), 0);
+			assertEquals(16, lazy.getPredictions());
+		}
+	}
+
+	@Test
+	public void testEviction() {
+		final Img<FloatType> expected = predictor.predict(image);
+		try (LazyPrediction<FloatType> lazy = new LazyPrediction<>(predictor,
+			image, 2))
+		{
+			lazy.setPrefetchNeighbors(false);
+			assertImagesEqual(expected, lazy.getImg(), 0);
+			assertImagesEqual(expected, lazy.getImg(), 0);
+			lazy.invalidate();
+			assertImagesEqual(expected, lazy.getImg(), 0);
+			assertTrue(lazy.getPredictions() >= 32);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsEmptyCache() {
+		new LazyPrediction<>(predictor, image, 0);
+	}
+
+	@Test
+	public void testInvalidateDuringPrediction() throws InterruptedException {
+		final TileModel model = TileModel.of(session, "input", "output");
+		final AtomicBoolean block = new AtomicBoolean();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch resume = new CountDownLatch(1);
+		final TiledPredictor blocking = new TiledPredictor(tile -> {
+			if (block.getAndSet(false)) {
+				started.countDown();
+				try {
+					resume.await();
+				}
+				catch (final InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return model.run(tile);
+		}, DIM_ORDER);
+		blocking.setTileSize(16, 10, 1, 1);
+		blocking.setHalo(1, 1, 0, 0);
+		try (LazyPrediction<FloatType> lazy = new LazyPrediction<>(blocking,
+			image, 100))
+		{
+			lazy.setPrefetchNeighbors(false);
+			block.set(true);
+			final Thread reader = new Thread(() -> {
+				final RandomAccess<FloatType> access = lazy.getImg().randomAccess();
+				access.setPosition(new long[] { 40, 30, 0, 0 });
+				access.get();
+			});
+			reader.start();
+			started.await();
+			// NB: The input changes while the prediction of a cell is running.
+			for (final FloatType t : image) {
+				t.set(1 - t.get());
+			}
+			lazy.invalidate();
+			resume.countDown();
+			reader.join();
+			assertImagesEqual(predictor.predict(image), lazy.getImg(), 0);
+		}
+	}
+
+	@Test
+	public void testPrefetchNeighbors() throws InterruptedException {
+		try (LazyPrediction<FloatType> lazy = new LazyPrediction<>(predictor,
+			image, 100))
+		{
+			final RandomAccess<FloatType> access = lazy.getImg().randomAccess();
+			access.setPosition(new long[] { 20, 15, 0, 0 });
+			access.get();
+			// NB: The cell and its four neighbors in the grid of 4x4 tiles.
+			for (int i = 0; i < 100 && lazy.getPredictions() < 6; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(6, lazy.getPredictions());
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static net.imagej.tensorflow.tiling.TilingFixtures.DIM_ORDER;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import net.imagej.tensorflow.GraphBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Shape;
+
+/**
+ * Tests {@link ReceptiveField}.
+ */
+public class ReceptiveFieldTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Graph graph;
+
+	@Before
+	public void setUp() {
+		graph = new Graph();
+		final GraphBuilder b = new GraphBuilder(graph);
+		final Output<Float> input = b.placeholder("input", DataType.FLOAT, Shape
+			.make(-1, -1, -1, 1));
+		// NB: A 3x3 convolution followed by a 5x1 convolution along X.
+		final Output<Float> hidden = b.conv2D(input, b.constant("filter3x3",
+			filter(9), 3, 3, 1, 1), new long[] { 1, 1, 1, 1 }, "SAME", "hidden");
+		b.conv2D(hidden, b.constant("filter5x1", filter(5), 1, 5, 1, 1),
+			new long[] { 1, 1, 1, 1 }, "SAME", "output");
+	}
+
+	@After
+	public void tearDown() {
+		graph.close();
+	}
+
+	@Test
+	public void testMeasure() {
+		final ReceptiveField field = new ReceptiveField(graph, "input", "output",
+			DIM_ORDER);
+		assertArrayEquals(new long[] { 3, 1, 0, 0 }, field.measure());
+		assertArrayEquals(new long[] { 1, 1, 0, 0 }, new ReceptiveField(graph,
+			"input", "hidden", DIM_ORDER).measure());
+		// NB: The probes grow until the receptive field fits.
+		field.setProbeSizes(4, 8, 16);
+		assertArrayEquals(new long[] { 3, 1, 0, 0 }, field.measure());
+		field.setProbeSizes(4, 6);
+		try {
+			field.measure();
+			fail("Expected an exception for a receptive field exceeding the probe");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBatchOfOne() {
+		try (Graph single = new Graph()) {
+			final GraphBuilder b = new GraphBuilder(single);
+			final Output<Float> input = b.placeholder("input", DataType.FLOAT, Shape
+				.make(-1, -1, -1, 1));
+			// NB: Fails for probes with more than one sample.
+			final Output<Float> checked = single.opBuilder("EnsureShape", "checked")
+				.addInput(input).setAttr("shape", Shape.make(1, -1, -1, 1)).build()
+				.output(0);
+			b.conv2D(checked, b.constant("filter3x3", filter(9), 3, 3, 1, 1),
+				new long[] { 1, 1, 1, 1 }, "SAME", "output");
+			final ReceptiveField field = new ReceptiveField(single, "input",
+				"output", DIM_ORDER);
+			assertArrayEquals(new long[] { 1, 1, 0, 0 }, field.measure());
+		}
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		final File cache = new File(folder.getRoot(), ReceptiveField.CACHE_FILE);
+		final ReceptiveField field = new ReceptiveField(graph, "input", "output",
+			DIM_ORDER);
+		assertArrayEquals(new long[] { 3, 1, 0, 0 }, field.measure(cache));
+		assertArrayEquals(new long[] { 1, 1, 0, 0 }, new ReceptiveField(graph,
+			"input", "hidden", DIM_ORDER).measure(cache));
+		// NB: Cached results are not measured again.
+		final String edited = new String(Files.readAllBytes(cache.toPath()),
+			StandardCharsets.ISO_8859_1).replace("3,1,0,0", "7,7,0,0");
+		Files.write(cache.toPath(), edited.getBytes(StandardCharsets.ISO_8859_1));
+		assertArrayEquals(new long[] { 7, 7, 0, 0 }, field.measure(cache));
+		assertArrayEquals(new long[] { 1, 1, 0, 0 }, new ReceptiveField(graph,
+			"input", "hidden", DIM_ORDER).measure(cache));
+	}
+
+	private static float[] filter(final int size) {
+		final float[] filter = new float[size];
+		Arrays.fill(filter, 1f / size);
+		return filter;
+	}
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static net.imagej.tensorflow.tiling.TilingFixtures.DIM_ORDER;
+import static net.imagej.tensorflow.tiling.TilingFixtures.assertImagesEqual;
+import static net.imagej.tensorflow.tiling.TilingFixtures.convolution;
+import static net.imagej.tensorflow.tiling.TilingFixtures.rampFilter;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+import org.tensorflow.Shape;
+
+/**
+ * Tests {@link TilePlanner}.
+ */
+public class TilePlannerTest {
+
+	private Graph graph;
+
+	@Before
+	public void setUp() {
+		graph = convolution(rampFilter(), Shape.make(-1, -1, -1, 1));
+	}
+
+	@After
+	public void tearDown() {
+		graph.close();
+	}
+
+	@Test
+	public void testEstimate() {
+		final TilePlanner planner = new TilePlanner(graph, "input", "output:0",
+			DIM_ORDER);
+		// NB: Per pixel, the float input takes 4 bytes and the two channels of
+		// the convolution and of the fetched output take 8 bytes each.
+		assertEquals((4 * 4 + 8 + 8 * 3) * 32 * 48, planner.nativeBytes(
+			new long[] { 32, 48, 1, 1 }, 2));
+		assertEquals(8 * 32 * 48, planner.heapBytes(new long[] { 32, 48, 1, 1 }));
+	}
+
+	@Test
+	public void testPlan() {
+		final FinalInterval image = new FinalInterval(1000, 800, 1, 1);
+		final TilePlanner planner = new TilePlanner(graph, "input", "output",
+			DIM_ORDER);
+		planner.setHalo(8, 8, 0, 0);
+		planner.setMultipleOf(16, 16, 1, 1);
+		planner.setNativeBudget(4 << 20);
+		final TilePlan plan = planner.plan(image);
+		assertEquals(2, plan.getQueueDepth());
+		assertTrue(plan.getNativeBytes() <= 4 << 20);
+		final long[] inputSize = plan.getInputSize();
+		assertEquals(0, inputSize[0] % 16);
+		assertEquals(0, inputSize[1] % 16);
+		assertEquals(1, inputSize[2]);
+		assertEquals(1, inputSize[3]);
+		// NB: A larger tile would exceed the budget.
+		assertTrue(planner.nativeBytes(new long[] { inputSize[0] + 16,
+			inputSize[1] + 16, 1, 1 }, 2) > 4 << 20);
+
+		planner.setNativeBudget(1L << 30);
+		final TilePlan single = planner.plan(image);
+		assertEquals(0, single.getQueueDepth());
+		assertArrayEquals(new long[] { 1008, 800, 1, 1 }, single.getTileSize());
+
+		// NB: The tiles of the predictor keep the planned input size.
+		try (Session session = new Session(graph)) {
+			final TiledPredictor predictor = new TiledPredictor(TileModel.of(
+				session, "input", "output"), DIM_ORDER);
+			single.apply(predictor);
+			assertArrayEquals(new long[] { 1024, 816, 1, 1 }, predictor.tiling(
+				image).getInputSize());
+			plan.apply(predictor);
+			assertArrayEquals(inputSize, predictor.tiling(image).getInputSize());
+		}
+
+		planner.setNativeBudget(1000);
+		try {
+			planner.plan(image);
+			fail("Expected an exception for a budget too small for any tile");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testApply() {
+		final Img<FloatType> image = new ArrayImgFactory<>(new FloatType()).create(
+			200, 150, 1, 1);
+		int value = 0;
+		for (final FloatType t : image) {
+			t.set(value++ % 17);
+		}
+		try (Session session = new Session(graph)) {
+			final TiledPredictor predictor = new TiledPredictor(TileModel.of(
+				session, "input", "output"), DIM_ORDER);
+			predictor.setHalo(1, 1, 0, 0);
+			final Img<FloatType> expected = predictor.predict(image);
+			final TilePlanner planner = new TilePlanner(graph, "input", "output",
+				DIM_ORDER);
+			planner.setHalo(1, 1, 0, 0);
+			planner.setNativeBudget(200000);
+			planner.plan(image).apply(predictor);
+			assertImagesEqual(expected, predictor.predict(image), 1e-5);
+			assertTrue(predictor.getStatistics().getTiles() > 1);
+		}
+	}
+}
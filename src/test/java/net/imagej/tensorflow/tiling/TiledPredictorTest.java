@@ -0,0 +1,291 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static net.imagej.tensorflow.tiling.TilingFixtures.DIM_ORDER;
+import static net.imagej.tensorflow.tiling.TilingFixtures.assertImagesEqual;
+import static net.imagej.tensorflow.tiling.TilingFixtures.convolution;
+import static net.imagej.tensorflow.tiling.TilingFixtures.randomImage;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+/**
+ * Tests {@link TiledPredictor} with a small convolution graph.
+ */
+public class TiledPredictorTest {
+
+	private Graph graph;
+	private Session session;
+	private Img<FloatType> image;
+
+	@Before
+	public void setUp() {
+		// NB: Channel 0 is a 3x3 box filter, channel 1 a copy of the input.
+		final float[] filter = new float[18];
+		for (int i = 0; i < 9; i++) {
+			filter[2 * i] = 1f / 9;
+		}
+		filter[2 * 4 + 1] = 1;
+		graph = convolution(filter, null);
+		session = new Session(graph);
+		image = randomImage();
+	}
+
+	@After
+	public void tearDown() {
+		session.close();
+		graph.close();
+	}
+
+	@Test
+	public void testTiling() {
+		final Tiling tiling = new Tiling(new FinalInterval(new long[] { 5, 0 },
+			new long[] { 54, 36 }), new long[] { 16, 100 }, new long[] { 2, 0 });
+		assertArrayEquals(new long[] { 4, 1 }, tiling.getGridDimensions());
+		assertArrayEquals(new long[] { 20, 37 }, tiling.getInputSize());
+		final Tile last = tiling.tile(3);
+		assertEquals(53, last.getCore().min(0));
+		assertEquals(54, last.getCore().max(0));
+		assertEquals(51, last.getInput().min(0));
+		assertEquals(70, last.getInput().max(0));
+		long pixels = 0;
+		for (final Tile tile : tiling.tiles()) {
+			pixels += Intervals.numElements(tile.getCore());
+		}
+		assertEquals(50 * 37, pixels);
+	}
+
+	@Test
+	public void testKeepLargeTiles() {
+		final Interval image = new FinalInterval(new long[] { 5, 0 }, new long[] {
+			54, 36 });
+		final Tiling tiling = new Tiling(image, new long[] { 16, 100 },
+			new long[] { 2, 0 }, true);
+		assertArrayEquals(new long[] { 4, 1 }, tiling.getGridDimensions());
+		assertArrayEquals(new long[] { 20, 100 }, tiling.getInputSize());
+		assertEquals(0, tiling.tile(0).getInput().min(1));
+		assertEquals(99, tiling.tile(0).getInput().max(1));
+
+		final TiledPredictor predictor = new TiledPredictor(TileModel.of(session,
+			"input", "output"), new int[] { 0, 1 });
+		predictor.setTileSize(16, 100);
+		assertArrayEquals(new long[] { 16, 37 }, predictor.tiling(image)
+			.getTileSize());
+		predictor.setKeepLargeTiles(true);
+		assertArrayEquals(new long[] { 16, 100 }, predictor.tiling(image)
+			.getTileSize());
+	}
+
+	@Test
+	public void testCrop() {
+		testStitching(Stitching.CROP);
+	}
+
+	@Test
+	public void testBlend() {
+		testStitching(Stitching.BLEND);
+	}
+
+	@Test
+	public void testOutputSizeMismatch() {
+		final TiledPredictor predictor = new TiledPredictor(TileModel.of(session,
+			"input", "output"), DIM_ORDER);
+		try {
+			predictor.predict(image, new ArrayImgFactory<>(new FloatType()).create(
+				50, 37, 1, 1));
+			fail("Expected an exception for an output of the wrong size");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testQueueDepths() {
+		final TiledPredictor predictor = new TiledPredictor(TileModel.of(session,
+			"input", "output"), DIM_ORDER);
+		predictor.setTileSize(8, 8, 1, 1);
+		predictor.setHalo(1, 1, 0, 0);
+		predictor.setQueueDepth(0);
+		final Img<FloatType> expected = predictor.predict(image);
+		assertEquals(0, predictor.getStatistics().getQueueDepth());
+		for (final int depth : new int[] { 1, 3 }) {
+			predictor.setQueueDepth(depth);
+			assertImagesEqual(expected, predictor.predict(image), 1e-5);
+			final TileStatistics statistics = predictor.getStatistics();
+			assertEquals(depth, statistics.getQueueDepth());
+			assertEquals(35, statistics.getTiles());
+		}
+	}
+
+	@Test
+	public void testFailureInPipeline() {
+		final TileModel model = TileModel.of(session, "input", "output");
+		final AtomicInteger count = new AtomicInteger();
+		final TiledPredictor predictor = new TiledPredictor(tile -> {
+			if (count.incrementAndGet() == 5) {
+				throw new IllegalStateException("Tile failed");
+			}
+			return model.run(tile);
+		}, DIM_ORDER);
+		predictor.setTileSize(8, 8, 1, 1);
+		predictor.setQueueDepth(1);
+		try {
+			predictor.predict(image);
+			fail("Expected the failure of the model");
+		}
+		catch (final IllegalStateException e) {
+			assertEquals("Tile failed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testInterruptedPipeline() {
+		final TileModel model = TileModel.of(session, "input", "output");
+		final List<Tensor<?>> results = new ArrayList<>();
+		final TiledPredictor predictor = new TiledPredictor(tile -> {
+			final Tensor<?> result = model.run(tile);
+			results.add(result);
+			// NB: Tiles run on the calling thread, e.g. a cancelled command.
+			if (results.size() == 5) Thread.currentThread().interrupt();
+			return result;
+		}, DIM_ORDER);
+		predictor.setTileSize(8, 8, 1, 1);
+		predictor.setQueueDepth(1);
+		try {
+			predictor.predict(image);
+			fail("Expected the prediction to be interrupted");
+		}
+		catch (final IllegalStateException e) {
+			assertTrue(Thread.interrupted());
+		}
+		assertEquals(5, results.size());
+		for (final Tensor<?> result : results) {
+			assertTrue(isClosed(result));
+		}
+	}
+
+	private static boolean isClosed(final Tensor<?> tensor) {
+		try {
+			tensor.writeTo(FloatBuffer.allocate(tensor.numElements()));
+			return false;
+		}
+		catch (final RuntimeException e) {
+			return true;
+		}
+	}
+
+	@Test
+	public void testOpensModelOncePerPrediction() {
+		final TileModel model = TileModel.of(session, "input", "output");
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		final TiledPredictor predictor = new TiledPredictor(new TileModel() {
+
+			@Override
+			public Tensor<?> run(final Tensor<?> input) {
+				throw new IllegalStateException("Tiles run on the opened model");
+			}
+
+			@Override
+			public Opened open() {
+				opened.incrementAndGet();
+				final Opened delegate = model.open();
+				return new Opened() {
+
+					@Override
+					public Tensor<?> run(final Tensor<?> input) {
+						return delegate.run(input);
+					}
+
+					@Override
+					public void close() {
+						closed.incrementAndGet();
+						delegate.close();
+					}
+				};
+			}
+		}, DIM_ORDER);
+		predictor.setTileSize(8, 8, 1, 1);
+		for (final int depth : new int[] { 0, 2 }) {
+			predictor.setQueueDepth(depth);
+			predictor.predict(image);
+		}
+		assertEquals(2, opened.get());
+		assertEquals(2, closed.get());
+	}
+
+	private void testStitching(final Stitching stitching) {
+		final TiledPredictor whole = new TiledPredictor(TileModel.of(session,
+			"input", "output"), DIM_ORDER);
+		whole.setHalo(2, 2, 0, 0);
+		final Img<FloatType> expected = whole.predict(image);
+		assertArrayEquals(new long[] { 50, 37, 2, 1 }, Intervals
+			.dimensionsAsLongArray(expected));
+		assertEquals(1, whole.getStatistics().getTiles());
+
+		final TiledPredictor tiled = new TiledPredictor(TileModel.of(session,
+			"input", "output"), DIM_ORDER);
+		tiled.setTileSize(16, 10, 1, 1);
+		tiled.setHalo(2, 2, 0, 0);
+		tiled.setStitching(stitching);
+		final Img<FloatType> actual = tiled.predict(image);
+		assertEquals(16, tiled.getStatistics().getTiles());
+		assertEquals(50 * 37, tiled.getStatistics().getPixels());
+		assertImagesEqual(expected, actual, 1e-5);
+
+		// NB: Channel 1 copies the input.
+		assertImagesEqual(Views.hyperSlice(image, 2, 0), Views.hyperSlice(actual,
+			2, 1), 1e-5);
+	}
+}
@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * ImageJ/TensorFlow integration.
+ * %%
+ * Copyright (C) 2017 - 2025 Board of Regents of the University of
+ * Wisconsin-Madison and Google, Inc.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.tensorflow.tiling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imagej.tensorflow.GraphBuilder;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.Shape;
+
+/**
+ * Builds the graphs, images and predictors shared by the tiling tests.
+ */
+final class TilingFixtures {
+
+	/** Maps image dimensions XYCN to a Tensor of shape NHWC. */
+	static final int[] DIM_ORDER = { 2, 1, 3, 0 };
+
+	private TilingFixtures() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Builds a graph convolving its {@code input} with a 3x3 filter into the
+	 * two channels of its {@code output}.
+	 *
+	 * @param filter The 18 weights of the filter, ordered by row, column and
+	 *          output channel.
+	 * @param shape The shape of the input, or null if it is unknown.
+	 */
+	static Graph convolution(final float[] filter, final Shape shape) {
+		final Graph graph = new Graph();
+		final GraphBuilder b = new GraphBuilder(graph);
+		final Output<Float> input = shape == null ? b.placeholder("input",
+			DataType.FLOAT) : b.placeholder("input", DataType.FLOAT, shape);
+		b.conv2D(input, b.constant("filter", filter, 3, 3, 1, 2), new long[] { 1,
+			1, 1, 1 }, "SAME", "output");
+		return graph;
+	}
+
+	/** Gets the weights of a filter rising from 0 to 17/18. */
+	static float[] rampFilter() {
+		final float[] filter = new float[18];
+		for (int i = 0; i < filter.length; i++) {
+			filter[i] = i / 18f;
+		}
+		return filter;
+	}
+
+	/** Creates an image of 50x37 random pixels with one channel. */
+	static Img<FloatType> randomImage() {
+		final Img<FloatType> image = new ArrayImgFactory<>(new FloatType())
+			.create(50, 37, 1, 1);
+		final Random random = new Random(42);
+		for (final FloatType t : image) {
+			t.set(random.nextFloat());
+		}
+		return image;
+	}
+
+	/**
+	 * Creates a predictor cutting the {@link #randomImage() random image} into
+	 * 4x4 tiles of 16x10 pixels with a halo of one pixel.
+	 */
+	static TiledPredictor predictor(final Session session) {
+		final TiledPredictor predictor = new TiledPredictor(TileModel.of(session,
+			"input", "output"), DIM_ORDER);
+		predictor.setTileSize(16, 10, 1, 1);
+		predictor.setHalo(1, 1, 0, 0);
+		return predictor;
+	}
+
+	static void assertImagesEqual(
+		final RandomAccessibleInterval<FloatType> expected,
+		final RandomAccessibleInterval<FloatType> actual, final double delta)
+	{
+		assertArrayEquals(Intervals.dimensionsAsLongArray(expected), Intervals
+			.dimensionsAsLongArray(actual));
+		final Cursor<FloatType> cursor = Views.flatIterable(actual).cursor();
+		for (final FloatType t : Views.flatIterable(expected)) {
+			assertEquals(t.get(), cursor.next().get(), delta);
+		}
+	}
+}